@@ -34,6 +34,25 @@ public class Args {
     @Parameter(names = {"--useJarLocation"})
     private boolean useJarLocation;
 
+    @Parameter(names = {"--importBundle"})
+    private String importBundlePath;
+
+    @Parameter(names = {"--exportBundle"})
+    private String exportBundlePath;
+
+    @Parameter(names = {"--bundleVersion"})
+    private String bundleVersion;
+
+    // In the form of loader:version, for example fabric:0.16.5
+    @Parameter(names = {"--bundleLoader"})
+    private String bundleLoader;
+
+    @Parameter(names = {"--bundleJava"})
+    private boolean bundleJava;
+
+    @Parameter(names = {"--cacheGcReport"})
+    private boolean cacheGcReport;
+
     private final List<String> unknownOptions;
 
     private Args() {
@@ -66,6 +85,30 @@ public class Args {
         return this.unknownOptions;
     }
 
+    public Path getImportBundle() {
+        return this.importBundlePath == null ? null : Paths.get(this.importBundlePath);
+    }
+
+    public Path getExportBundle() {
+        return this.exportBundlePath == null ? null : Paths.get(this.exportBundlePath);
+    }
+
+    public String getBundleVersion() {
+        return this.bundleVersion;
+    }
+
+    public String getBundleLoader() {
+        return this.bundleLoader;
+    }
+
+    public boolean isBundleJava() {
+        return this.bundleJava;
+    }
+
+    public boolean isCacheGcReport() {
+        return this.cacheGcReport;
+    }
+
     public Path getWorkDir() {
         Path workDir;
 
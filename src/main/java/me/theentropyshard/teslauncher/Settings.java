@@ -26,6 +26,10 @@ import me.theentropyshard.teslauncher.utils.json.Json;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * I don't usually like making fields public, but ok, those are settings
@@ -48,6 +52,42 @@ public class Settings {
     public boolean showConsoleAtStartup = true;
     public boolean checkUpdatesStartup = true;
     public boolean disableFileIntegrityCheck = false;
+    public boolean deepVerifyFiles = false;
+    public int downloadSegments = 4;
+    public int segmentedDownloadThresholdMb = 8;
+    public boolean downloadLzmaRuntimes = true;
+    public int minDownloadConnections = 2;
+    public int maxDownloadConnections = 32;
+    public boolean useHttp2 = true;
+    public List<String> http1OnlyHosts = new ArrayList<>();
+    public int downloadRetries = 3;
+    public boolean hedgeSlowDownloads = true;
+    public int hedgePercentile = 10;
+    // Endpoint key (manifest, piston-meta, piston-data, resources, libraries, fabric-meta) to base URLs, best first
+    public Map<String, List<String>> mirrors = new LinkedHashMap<>();
+    // KiB per second, 0 means unlimited. Foreground installs are only bound by the global limit
+    public int downloadSpeedLimitKb = 0;
+    public int backgroundSpeedLimitKb = 0;
+    public int repairSpeedLimitKb = 0;
+    public boolean peerServerEnabled = false;
+    public int peerServerPort = 25580;
+    public int peerServerMaxConnections = 16;
+    // LAN launchers ("host:port") asked for objects before the origin
+    public List<String> peers = new ArrayList<>();
+    // Deletes libraries, assets, versions and runtimes that no instance refers to any more
+    public boolean cacheGcEnabled = false;
+    public int cacheGcIntervalHours = 24;
+    public int cacheGcFilesPerSecond = 200;
+    // Installs the newest release or snapshot for instances set to auto update while the launcher is idle.
+    // Off by default, switching versions converts worlds on their next launch
+    public boolean prefetchLatestVersions = false;
+    public int prefetchIntervalMinutes = 30;
+    // Re-hashes libraries, asset objects and runtimes in the background and downloads the ones that are damaged.
+    // Off by default, a pass reads gigabytes from disk. 0 means unlimited
+    public boolean integrityScrubEnabled = false;
+    public int integrityScrubIntervalHours = 168;
+    public int integrityScrubFilesPerSecond = 50;
+    public int integrityScrubKbPerSecond = 4096;
     public boolean showOnlyInstalledVersions;
     public boolean alphaSelected = false;
     public boolean betaSelected = false;
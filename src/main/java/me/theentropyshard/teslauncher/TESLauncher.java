@@ -26,19 +26,38 @@ import me.theentropyshard.teslauncher.language.Language;
 import me.theentropyshard.teslauncher.language.LanguageManager;
 import me.theentropyshard.teslauncher.language.LanguageSection;
 import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.minecraft.MinecraftInstance;
 import me.theentropyshard.teslauncher.minecraft.account.AccountManager;
-import me.theentropyshard.teslauncher.network.UserAgentInterceptor;
+import me.theentropyshard.teslauncher.minecraft.bundle.BundleExporter;
+import me.theentropyshard.teslauncher.minecraft.bundle.BundleImporter;
+import me.theentropyshard.teslauncher.minecraft.bundle.BundleManifest;
+import me.theentropyshard.teslauncher.minecraft.data.Version;
+import me.theentropyshard.teslauncher.minecraft.download.CacheCollector;
+import me.theentropyshard.teslauncher.minecraft.download.IntegrityScrubber;
+import me.theentropyshard.teslauncher.minecraft.download.MinecraftDownloadListener;
+import me.theentropyshard.teslauncher.minecraft.download.MinecraftDownloader;
+import me.theentropyshard.teslauncher.minecraft.download.VersionPrefetcher;
+import me.theentropyshard.teslauncher.minecraft.mods.ModLoader;
+import me.theentropyshard.teslauncher.minecraft.mods.ModLoaderInfo;
+import me.theentropyshard.teslauncher.network.HttpTransport;
+import me.theentropyshard.teslauncher.network.MetadataCache;
+import me.theentropyshard.teslauncher.network.download.DownloadEngine;
+import me.theentropyshard.teslauncher.network.peer.PeerServer;
+import me.theentropyshard.teslauncher.storage.DownloadJournal;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
 import me.theentropyshard.teslauncher.utils.FileUtils;
 import okhttp3.OkHttpClient;
-import okhttp3.Protocol;
 
 import javax.swing.*;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class TESLauncher {
@@ -57,11 +76,20 @@ public class TESLauncher {
     private final Path versionsDir;
     private final Path log4jConfigsDir;
     private final Path languagesDir;
+    private final Path storeDir;
 
     private final Path settingsFile;
     private final Settings settings;
 
+    private final WorkDirLocks workDirLocks;
+    private final FileIndex fileIndex;
+    private final DownloadJournal downloadJournal;
+    private final HttpTransport httpTransport;
     private final OkHttpClient httpClient;
+    private final MetadataCache metadataCache;
+    private final DownloadEngine downloadEngine;
+    private final PeerServer peerServer;
+    private final IntegrityScrubber integrityScrubber;
 
     private final LanguageManager languageManager;
     private final AccountManager accountManager;
@@ -69,6 +97,7 @@ public class TESLauncher {
     private final IconManager iconManager;
 
     private final ExecutorService taskPool;
+    private final ScheduledExecutorService maintenance;
 
     private Gui gui;
 
@@ -96,18 +125,63 @@ public class TESLauncher {
         this.versionsDir = minecraftDir.resolve("versions");
         this.log4jConfigsDir = minecraftDir.resolve("log4j");
         this.languagesDir = this.workDir.resolve("languages");
+        this.storeDir = minecraftDir.resolve("store");
         this.createDirectories();
 
         this.settingsFile = this.workDir.resolve("settings.json");
         this.settings = Settings.load(this.settingsFile);
 
-        this.httpClient = new OkHttpClient.Builder()
-            .addNetworkInterceptor(new UserAgentInterceptor(TESLauncher.USER_AGENT))
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(5, TimeUnit.MINUTES)
-            .writeTimeout(5, TimeUnit.MINUTES)
-            .protocols(Collections.singletonList(Protocol.HTTP_1_1))
-            .build();
+        this.workDirLocks = new WorkDirLocks(this.workDir.resolve("locks"));
+
+        this.fileIndex = new FileIndex(minecraftDir.resolve("file_index.json"), this.settings);
+        try {
+            this.fileIndex.load();
+        } catch (IOException e) {
+            Log.error("Unable to load file index", e);
+        }
+
+        this.downloadJournal = new DownloadJournal(minecraftDir.resolve("download_journal.jsonl"), this.workDirLocks);
+        try {
+            this.downloadJournal.open(this.fileIndex);
+            this.fileIndex.save();
+        } catch (IOException e) {
+            Log.error("Unable to open download journal", e);
+        }
+
+        this.httpTransport = new HttpTransport(this.settings, TESLauncher.USER_AGENT);
+        this.httpClient = this.httpTransport.newClient();
+        this.metadataCache = new MetadataCache(
+            this.httpClient, this.workDir.resolve("cache").resolve("metadata"), this.workDirLocks
+        );
+
+        ObjectStore objectStore = new ObjectStore(this.storeDir, this.workDirLocks);
+        this.downloadEngine = new DownloadEngine(
+            this.httpTransport, this.settings, objectStore, this.fileIndex, this.downloadJournal
+        );
+
+        this.integrityScrubber = new IntegrityScrubber(
+            minecraftDir.resolve("integrity_scrub.json"), this.versionsDir, this.assetsDir, this.librariesDir,
+            this.runtimesDir, this.downloadEngine, this.settings
+        );
+        try {
+            this.integrityScrubber.load();
+        } catch (IOException e) {
+            Log.error("Unable to load integrity check progress", e);
+        }
+
+        if (this.settings.peerServerEnabled) {
+            this.peerServer = new PeerServer(
+                objectStore, List.of(this.assetsDir.resolve("objects")), this.settings.peerServerPort,
+                this.settings.peerServerMaxConnections
+            );
+            try {
+                this.peerServer.start();
+            } catch (IOException e) {
+                Log.error("Unable to start peer server", e);
+            }
+        } else {
+            this.peerServer = null;
+        }
 
         this.languageManager = new LanguageManager(this.languagesDir);
         this.languageManager.load();
@@ -144,6 +218,49 @@ public class TESLauncher {
 
         this.taskPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
+        // Background upkeep of the shared dirs, one job at a time
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Maintenance");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+
+            return thread;
+        });
+
+        // Bundle operations are command line only, the launcher exits once they are done instead of showing the GUI
+        if (this.args.getImportBundle() != null || this.args.getExportBundle() != null) {
+            this.shutdown(this.processBundleArgs() ? 0 : 1);
+
+            return;
+        }
+
+        if (this.args.isCacheGcReport()) {
+            this.maintenance.execute(() -> this.collectCache(true));
+        }
+
+        if (this.settings.cacheGcEnabled) {
+            long intervalMinutes = Math.max(1, this.settings.cacheGcIntervalHours) * 60L;
+            this.maintenance.scheduleWithFixedDelay(() -> this.collectCache(false), 10, intervalMinutes, TimeUnit.MINUTES);
+        }
+
+        if (this.settings.prefetchLatestVersions) {
+            VersionPrefetcher prefetcher = new VersionPrefetcher();
+            long intervalMinutes = Math.max(1, this.settings.prefetchIntervalMinutes);
+            this.maintenance.scheduleWithFixedDelay(() -> {
+                // A thrown exception would cancel the schedule
+                try {
+                    prefetcher.run();
+                } catch (Exception e) {
+                    Log.error("Version prefetch failed", e);
+                }
+            }, 1, intervalMinutes, TimeUnit.MINUTES);
+        }
+
+        if (this.settings.integrityScrubEnabled) {
+            // Each run picks up where the last one stopped, a finished pass waits for integrityScrubIntervalHours
+            this.maintenance.scheduleWithFixedDelay(() -> this.checkIntegrity(false), 15, 15, TimeUnit.MINUTES);
+        }
+
         try {
             SwingUtilities.invokeAndWait(() -> {
                 this.gui = new Gui(BuildConfig.APP_NAME, this.settings.darkTheme);
@@ -172,11 +289,144 @@ public class TESLauncher {
             FileUtils.createDirectoryIfNotExists(this.versionsDir);
             FileUtils.createDirectoryIfNotExists(this.log4jConfigsDir);
             FileUtils.createDirectoryIfNotExists(this.languagesDir);
+            FileUtils.createDirectoryIfNotExists(this.storeDir);
         } catch (IOException e) {
             Log.error("Unable to create launcher directories", e);
         }
     }
 
+    // Returns false if any of the requested bundle operations failed
+    private boolean processBundleArgs() {
+        Path importBundle = this.args.getImportBundle();
+
+        if (importBundle != null) {
+            try {
+                new BundleImporter(
+                    this.workDir, this.fileIndex, this.downloadEngine.getObjectStore(), this.downloadEngine.getExecutor()
+                ).importBundle(importBundle);
+            } catch (IOException e) {
+                Log.error("Unable to import bundle " + importBundle, e);
+
+                return false;
+            }
+        }
+
+        Path exportBundle = this.args.getExportBundle();
+
+        if (exportBundle == null) {
+            return true;
+        }
+
+        String versionId = this.args.getBundleVersion();
+
+        if (versionId == null) {
+            Log.error("Cannot export a bundle without --bundleVersion");
+
+            return false;
+        }
+
+        ModLoaderInfo loaderInfo = null;
+        String loader = this.args.getBundleLoader();
+
+        if (loader != null) {
+            String[] parts = loader.split(":", 2);
+            loaderInfo = new ModLoaderInfo(ModLoader.getByName(parts[0]), parts.length > 1 ? parts[1] : null);
+        }
+
+        // Only reads what is already installed, so the dirs of a particular instance are not needed
+        MinecraftDownloader downloader = new MinecraftDownloader(
+            this.versionsDir, this.assetsDir, this.librariesDir, null, this.runtimesDir, null,
+            MinecraftDownloadListener.NONE, this.args.isBundleJava()
+        );
+
+        try {
+            Version version = downloader.loadInstalledVersion(versionId, loaderInfo);
+
+            BundleManifest manifest = new BundleManifest(
+                versionId,
+                loaderInfo == null ? null : loaderInfo.getLoader().getName(),
+                loaderInfo == null ? null : loaderInfo.getVersion(),
+                this.args.isBundleJava()
+            );
+
+            new BundleExporter(this.workDir, this.fileIndex, this.downloadEngine.getExecutor())
+                .export(manifest, downloader.getInstalledFiles(version, loaderInfo), exportBundle);
+        } catch (IOException e) {
+            Log.error("Unable to export bundle " + exportBundle, e);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    public CacheCollector.Report collectCache(boolean dryRun) {
+        CacheCollector collector = new CacheCollector(
+            this.versionsDir, this.assetsDir, this.librariesDir, this.runtimesDir, this.downloadEngine.getObjectStore(),
+            this.fileIndex, this.settings.cacheGcFilesPerSecond
+        );
+
+        try {
+            collector.markInstances(this.instanceManager.getInstances());
+
+            CacheCollector.Report report = collector.sweep(dryRun, this::isBusy);
+            Log.info(report.toString());
+
+            return report;
+        } catch (IOException | RuntimeException e) {
+            // Runs on the maintenance schedule, which stops for good after the first exception that gets through
+            Log.error("Could not collect unused files", e);
+
+            return null;
+        }
+    }
+
+    public void checkIntegrity(boolean force) {
+        try {
+            if (this.integrityScrubber.run(force, this::isBusy)) {
+                IntegrityScrubber.State state = this.integrityScrubber.getState();
+                Log.info("Integrity check finished: " + state.getFilesChecked() + " files, " +
+                    state.getCorruptFiles() + " damaged, " + state.getRepairedFiles() + " repaired");
+            }
+        } catch (IOException | RuntimeException e) {
+            // Also catches runtime exceptions, one escaping would cancel the schedule
+            Log.error("Integrity check failed", e);
+        }
+    }
+
+    public void checkIntegrityLater() {
+        this.maintenance.execute(() -> this.checkIntegrity(true));
+    }
+
+    public boolean isBusy() {
+        if (this.downloadEngine.getActiveDownloads() > 0) {
+            return true;
+        }
+
+        for (MinecraftInstance instance : this.instanceManager.getInstances()) {
+            if (instance.isRunning()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // No background download starts while any game is running, so they never compete with it for the network
+    public void updateBackgroundPause() {
+        boolean gameRunning = false;
+
+        for (MinecraftInstance instance : this.instanceManager.getInstances()) {
+            if (instance.isRunning()) {
+                gameRunning = true;
+
+                break;
+            }
+        }
+
+        this.downloadEngine.setBackgroundPaused(gameRunning);
+    }
+
     public void doTask(Runnable r) {
         this.taskPool.submit(r);
     }
@@ -193,6 +443,18 @@ public class TESLauncher {
         this.shutdown = true;
 
         this.taskPool.shutdown();
+        this.maintenance.shutdownNow();
+        this.downloadEngine.shutdown();
+
+        if (this.peerServer != null) {
+            this.peerServer.stop();
+        }
+
+        try {
+            this.downloadJournal.close();
+        } catch (IOException e) {
+            Log.error("Exception while closing download journal", e);
+        }
 
         try {
             this.accountManager.save();
@@ -208,8 +470,17 @@ public class TESLauncher {
             }
         });
 
-        this.settings.lastInstanceGroup = String.valueOf(this.gui.getPlayView().getModel().getSelectedItem());
-        this.settings.lastDisplay = this.gui.getCurrentDisplayIndex();
+        try {
+            this.fileIndex.save();
+        } catch (IOException e) {
+            Log.error("Exception while saving file index", e);
+        }
+
+        // There is no GUI after a command line bundle operation
+        if (this.gui != null) {
+            this.settings.lastInstanceGroup = String.valueOf(this.gui.getPlayView().getModel().getSelectedItem());
+            this.settings.lastDisplay = this.gui.getCurrentDisplayIndex();
+        }
 
         this.settings.save(this.settingsFile);
 
@@ -244,6 +515,30 @@ public class TESLauncher {
         return this.httpClient;
     }
 
+    public MetadataCache getMetadataCache() {
+        return this.metadataCache;
+    }
+
+    public IntegrityScrubber getIntegrityScrubber() {
+        return this.integrityScrubber;
+    }
+
+    public WorkDirLocks getWorkDirLocks() {
+        return this.workDirLocks;
+    }
+
+    public HttpTransport getHttpTransport() {
+        return this.httpTransport;
+    }
+
+    public DownloadEngine getDownloadEngine() {
+        return this.downloadEngine;
+    }
+
+    public FileIndex getFileIndex() {
+        return this.fileIndex;
+    }
+
     public Settings getSettings() {
         return this.settings;
     }
@@ -276,6 +571,10 @@ public class TESLauncher {
         return this.versionsDir;
     }
 
+    public Path getStoreDir() {
+        return this.storeDir;
+    }
+
     public Path getLog4jConfigsDir() {
         return this.log4jConfigsDir;
     }
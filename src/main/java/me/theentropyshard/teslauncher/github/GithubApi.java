@@ -19,15 +19,13 @@
 package me.theentropyshard.teslauncher.github;
 
 import me.theentropyshard.teslauncher.TESLauncher;
-import me.theentropyshard.teslauncher.network.HttpRequest;
 import me.theentropyshard.teslauncher.network.download.HttpDownload;
 import me.theentropyshard.teslauncher.network.progress.ProgressListener;
-import me.theentropyshard.teslauncher.network.progress.ProgressNetworkInterceptor;
 import me.theentropyshard.teslauncher.utils.json.Json;
-import okhttp3.OkHttpClient;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,34 +33,29 @@ public class GithubApi {
     private static final String URL_LATEST = "https://api.github.com/repos/%s/%s/releases/latest";
     private static final String URL = "https://api.github.com/repos/%s/%s/releases";
 
+    // Always revalidated, GitHub does not count 304 responses against the rate limit
     public GithubRelease getLatestRelease(String owner, String repo) throws IOException {
-        try (HttpRequest request = new HttpRequest(TESLauncher.getInstance().getHttpClient())) {
-            return Json.parse(request.asString(String.format(GithubApi.URL_LATEST, owner, repo)), GithubRelease.class);
-        }
+        String string = TESLauncher.getInstance().getMetadataCache().get(String.format(GithubApi.URL_LATEST, owner, repo), Duration.ZERO);
+
+        return Json.parse(string, GithubRelease.class);
     }
 
     public List<GithubRelease> getAllReleases(String owner, String repo) throws IOException {
-        try (HttpRequest request = new HttpRequest(TESLauncher.getInstance().getHttpClient())) {
-            String string = request.asString(GithubApi.URL.formatted(owner, repo));
+        String string = TESLauncher.getInstance().getMetadataCache().get(GithubApi.URL.formatted(owner, repo), Duration.ZERO);
 
-            return new ArrayList<>(List.of(Json.parse(string, GithubRelease[].class)));
-        }
+        return new ArrayList<>(List.of(Json.parse(string, GithubRelease[].class)));
     }
 
     public void downloadRelease(Path saveAs, GithubRelease release, int index, ProgressListener listener) throws IOException {
         GithubRelease.Asset asset = release.assets.get(index);
 
-        OkHttpClient httpClient = TESLauncher.getInstance().getHttpClient().newBuilder()
-                .addNetworkInterceptor(new ProgressNetworkInterceptor(listener))
-                .build();
-
         HttpDownload download = new HttpDownload.Builder()
                 .url(asset.browser_download_url)
                 .saveAs(saveAs)
                 .expectedSize(asset.size)
-                .httpClient(httpClient)
+                .httpClient(TESLauncher.getInstance().getHttpClient())
                 .build();
 
-        download.execute();
+        TESLauncher.getInstance().getDownloadEngine().download(download, listener);
     }
 }
@@ -21,6 +21,7 @@ package me.theentropyshard.teslauncher.gui.dialogs;
 import com.formdev.flatlaf.FlatClientProperties;
 import me.theentropyshard.teslauncher.TESLauncher;
 import me.theentropyshard.teslauncher.minecraft.download.MinecraftDownloadListener;
+import me.theentropyshard.teslauncher.network.progress.ProgressSnapshot;
 import me.theentropyshard.teslauncher.utils.MathUtils;
 
 import javax.swing.*;
@@ -69,6 +70,24 @@ public class ProgressDialog extends AppDialog implements MinecraftDownloadListen
         this.progressBar.setString(String.format("%.2f MiB / %.2f MiB", downloaded, total));
     }
 
+    @Override
+    public void onProgress(ProgressSnapshot snapshot) {
+        SwingUtilities.invokeLater(() -> {
+            this.onProgress(snapshot.getTotalBytes(), snapshot.getDownloadedBytes());
+
+            double speed = MathUtils.round(snapshot.getBytesPerSecond() / 1024.0D / 1024.0D, 2);
+            String text = String.format("%s - %.2f MiB/s - %d/%d files - %d/%d connections",
+                this.progressBar.getString(), speed, snapshot.getFilesDone(), snapshot.getFilesTotal(),
+                snapshot.getActiveConnections(), snapshot.getConcurrencyLimit());
+
+            if (snapshot.getEtaSeconds() >= 0) {
+                text = text + String.format(" - %d:%02d left", snapshot.getEtaSeconds() / 60, snapshot.getEtaSeconds() % 60);
+            }
+
+            this.progressBar.setString(text);
+        });
+    }
+
     @Override
     public void onFinish() {
 
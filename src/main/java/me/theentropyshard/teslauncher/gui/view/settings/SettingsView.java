@@ -26,6 +26,7 @@ import java.util.List;
 import me.theentropyshard.teslauncher.TESLauncher;
 import me.theentropyshard.teslauncher.gui.view.settings.section.OtherSettingsSection;
 import me.theentropyshard.teslauncher.gui.view.settings.section.SettingsSection;
+import me.theentropyshard.teslauncher.gui.view.settings.section.StorageHealthSection;
 import me.theentropyshard.teslauncher.gui.view.settings.section.ThemeSettingsSection;
 import me.theentropyshard.teslauncher.gui.view.settings.section.UiSettingsSection;
 import me.theentropyshard.teslauncher.language.Language;
@@ -46,6 +47,7 @@ public class SettingsView extends JPanel {
         this.addSection(new ThemeSettingsSection());
         this.addSection(new UiSettingsSection());
         this.addSection(new OtherSettingsSection());
+        this.addSection(new StorageHealthSection());
 
         this.finish(gbc);
     }
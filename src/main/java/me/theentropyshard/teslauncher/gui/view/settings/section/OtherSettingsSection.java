@@ -27,13 +27,15 @@ import me.theentropyshard.teslauncher.language.Language;
 
 public class OtherSettingsSection extends SettingsSection {
     private final JCheckBox prettyJson;
+    private final JCheckBox disableIntegrityCheck;
+    private final JCheckBox deepVerify;
     private final JLabel whenMinecraftLaunchesLabel;
     private final JComboBox<String> whenLaunchesBehavior;
     private final JLabel whenMinecraftExits;
     private final JComboBox<String> whenExitsBehavior;
 
     public OtherSettingsSection() {
-        super("Other", new GridLayout(3, 3));
+        super("Other", new GridLayout(5, 3));
 
         this.prettyJson = new JCheckBox("Write pretty JSON files (useful for development/debugging)");
         this.prettyJson.setSelected(TESLauncher.getInstance().getSettings().writePrettyJson);
@@ -43,6 +45,22 @@ public class OtherSettingsSection extends SettingsSection {
         this.add(this.prettyJson);
         this.add(Box.createHorizontalGlue());
 
+        this.disableIntegrityCheck = new JCheckBox("Check only size of existing files (skip SHA-1 verification)");
+        this.disableIntegrityCheck.setSelected(TESLauncher.getInstance().getSettings().disableFileIntegrityCheck);
+        this.disableIntegrityCheck.addActionListener(e -> {
+            TESLauncher.getInstance().getSettings().disableFileIntegrityCheck = this.disableIntegrityCheck.isSelected();
+        });
+        this.add(this.disableIntegrityCheck);
+        this.add(Box.createHorizontalGlue());
+
+        this.deepVerify = new JCheckBox("Always re-hash existing files (ignore the verified file index)");
+        this.deepVerify.setSelected(TESLauncher.getInstance().getSettings().deepVerifyFiles);
+        this.deepVerify.addActionListener(e -> {
+            TESLauncher.getInstance().getSettings().deepVerifyFiles = this.deepVerify.isSelected();
+        });
+        this.add(this.deepVerify);
+        this.add(Box.createHorizontalGlue());
+
         this.whenMinecraftLaunchesLabel = new JLabel("When Minecraft launches: ");
         this.add(this.whenMinecraftLaunchesLabel);
         String[] whenLaunchesOptions = {
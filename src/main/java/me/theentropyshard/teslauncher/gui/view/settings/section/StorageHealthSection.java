@@ -0,0 +1,130 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.gui.view.settings.section;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import me.theentropyshard.teslauncher.TESLauncher;
+import me.theentropyshard.teslauncher.language.Language;
+import me.theentropyshard.teslauncher.minecraft.download.IntegrityScrubber;
+
+public class StorageHealthSection extends SettingsSection {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm").withZone(ZoneId.systemDefault());
+    private static final int REFRESH_DELAY = 5000;
+
+    private final JLabel lastCheckLabel;
+    private final JLabel currentCheckLabel;
+    private final JLabel damagedLabel;
+    private final DefaultListModel<String> problemsModel;
+    private final JButton checkNowButton;
+    private final Timer refreshTimer;
+
+    public StorageHealthSection() {
+        super("Storage health", new BorderLayout());
+
+        JPanel labelsPanel = new JPanel(new GridLayout(3, 1));
+        this.lastCheckLabel = new JLabel();
+        labelsPanel.add(this.lastCheckLabel);
+        this.currentCheckLabel = new JLabel();
+        labelsPanel.add(this.currentCheckLabel);
+        this.damagedLabel = new JLabel();
+        labelsPanel.add(this.damagedLabel);
+        this.add(labelsPanel, BorderLayout.NORTH);
+
+        this.problemsModel = new DefaultListModel<>();
+        JList<String> problemsList = new JList<>(this.problemsModel);
+        problemsList.setVisibleRowCount(4);
+        this.add(new JScrollPane(problemsList), BorderLayout.CENTER);
+
+        this.checkNowButton = new JButton("Check now");
+        this.checkNowButton.addActionListener(e -> {
+            TESLauncher.getInstance().checkIntegrityLater();
+            this.checkNowButton.setEnabled(false);
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 5));
+        buttonPanel.add(this.checkNowButton);
+        this.add(buttonPanel, BorderLayout.SOUTH);
+
+        // The check runs on the maintenance thread, its progress is picked up from here while the section is shown
+        this.refreshTimer = new Timer(StorageHealthSection.REFRESH_DELAY, e -> this.refresh());
+
+        this.refresh();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+
+        this.refresh();
+        this.refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        this.refreshTimer.stop();
+
+        super.removeNotify();
+    }
+
+    private void refresh() {
+        IntegrityScrubber.State state = TESLauncher.getInstance().getIntegrityScrubber().getState();
+
+        if (state.getPassFinished() == 0L) {
+            this.lastCheckLabel.setText("Last full check: never");
+        } else {
+            this.lastCheckLabel.setText("Last full check: " + StorageHealthSection.format(state.getPassFinished()));
+        }
+
+        String checked = state.getFilesChecked() + " files (" + (state.getBytesChecked() / (1024 * 1024)) + " MiB)";
+
+        if (state.isInProgress()) {
+            this.currentCheckLabel.setText("Current check: " + checked + " since " +
+                StorageHealthSection.format(state.getPassStarted()));
+        } else {
+            this.currentCheckLabel.setText("Checked: " + checked);
+            this.checkNowButton.setEnabled(true);
+        }
+
+        String damaged = "Damaged files: " + state.getCorruptFiles() + ", repaired: " + state.getRepairedFiles();
+        if (state.getPendingRepairs() > 0) {
+            damaged += ", waiting for repair: " + state.getPendingRepairs();
+        }
+        this.damagedLabel.setText(damaged);
+
+        this.problemsModel.clear();
+        for (IntegrityScrubber.Problem problem : state.getProblems()) {
+            this.problemsModel.addElement(StorageHealthSection.format(problem.getTime()) + " " +
+                (problem.isRepaired() ? "repaired" : "NOT repaired") + ": " + problem.getFile());
+        }
+    }
+
+    private static String format(long millis) {
+        return StorageHealthSection.FORMATTER.format(Instant.ofEpochMilli(millis));
+    }
+
+    @Override
+    public void updateLanguage(Language language) {
+
+    }
+}
@@ -21,6 +21,7 @@ package me.theentropyshard.teslauncher.instance;
 import me.theentropyshard.teslauncher.Settings;
 import me.theentropyshard.teslauncher.TESLauncher;
 import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
 import me.theentropyshard.teslauncher.utils.FileUtils;
 import me.theentropyshard.teslauncher.utils.json.Json;
 
@@ -47,7 +48,10 @@ public abstract class Instance {
     public void save() throws IOException {
         Settings settings = TESLauncher.getInstance().getSettings();
         String content = settings.writePrettyJson ? Json.writePretty(this) : Json.write(this);
-        FileUtils.writeUtf8(this.getWorkDir().resolve(Instance.FILE_NAME), content);
+
+        try (WorkDirLocks.Handle lock = TESLauncher.getInstance().getWorkDirLocks().exclusive(WorkDirLocks.instance(this.getWorkDir()))) {
+            FileUtils.writeUtf8(this.getWorkDir().resolve(Instance.FILE_NAME), content);
+        }
     }
 
     public void updatePlaytime(long seconds) {
@@ -18,7 +18,9 @@
 
 package me.theentropyshard.teslauncher.instance;
 
+import me.theentropyshard.teslauncher.TESLauncher;
 import me.theentropyshard.teslauncher.minecraft.MinecraftInstance;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
 import me.theentropyshard.teslauncher.utils.FileUtils;
 import me.theentropyshard.teslauncher.utils.StringUtils;
 import me.theentropyshard.teslauncher.utils.ZipUtils;
@@ -70,7 +72,13 @@ public class InstanceManager {
             return null;
         }
 
-        MinecraftInstance instance = Json.parse(FileUtils.readUtf8(instanceFile), MinecraftInstance.class);
+        String json;
+
+        try (WorkDirLocks.Handle lock = TESLauncher.getInstance().getWorkDirLocks().shared(WorkDirLocks.instance(instanceDir))) {
+            json = FileUtils.readUtf8(instanceFile);
+        }
+
+        MinecraftInstance instance = Json.parse(json, MinecraftInstance.class);
         instance.setWorkDir(instanceDir);
 
         this.cacheInstance(instance);
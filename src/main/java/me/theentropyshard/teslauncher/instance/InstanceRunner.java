@@ -157,6 +157,8 @@ public class InstanceRunner extends Thread {
 
             long start = System.currentTimeMillis();
 
+            TESLauncher.getInstance().updateBackgroundPause();
+
             exitCode = this.startProcess(
                 launcher,
                 classpath -> {
@@ -215,6 +217,8 @@ public class InstanceRunner extends Thread {
             this.instance.setRunning(false);
             this.item.setEnabled(true);
             this.deleteTempClient();
+
+            TESLauncher.getInstance().updateBackgroundPause();
         }
     }
 
@@ -20,11 +20,11 @@ package me.theentropyshard.teslauncher.minecraft.account;
 
 import me.theentropyshard.teslauncher.Settings;
 import me.theentropyshard.teslauncher.TESLauncher;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
 import me.theentropyshard.teslauncher.utils.FileUtils;
 import me.theentropyshard.teslauncher.utils.json.Json;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -52,13 +52,19 @@ public class AccountManager {
     }
 
     public void load() throws IOException {
-        if (Files.size(this.accountsFile) == 0L) {
+        String json;
+
+        try (WorkDirLocks.Handle lock = TESLauncher.getInstance().getWorkDirLocks().shared(WorkDirLocks.file(this.accountsFile))) {
+            json = FileUtils.readUtf8(this.accountsFile);
+        }
+
+        if (json.isEmpty()) {
             this.accountStorage = new AccountStorage();
 
             return;
         }
 
-        this.accountStorage = Json.parse(FileUtils.readUtf8(this.accountsFile), AccountStorage.class);
+        this.accountStorage = Json.parse(json, AccountStorage.class);
 
         if (this.accountStorage == null) {
             throw new IOException("Could not load account storage from '" + this.accountsFile + "'");
@@ -88,7 +94,10 @@ public class AccountManager {
     public void save() throws IOException {
         Settings settings = TESLauncher.getInstance().getSettings();
         String json = settings.writePrettyJson ? Json.writePretty(this.accountStorage) : Json.write(this.accountStorage);
-        FileUtils.writeUtf8(this.accountsFile, json);
+
+        try (WorkDirLocks.Handle lock = TESLauncher.getInstance().getWorkDirLocks().exclusive(WorkDirLocks.file(this.accountsFile))) {
+            FileUtils.writeUtf8(this.accountsFile, json);
+        }
     }
 
     public List<Account> getAccounts() {
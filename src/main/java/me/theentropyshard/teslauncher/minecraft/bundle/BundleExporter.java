@@ -0,0 +1,165 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.bundle;
+
+import net.lingala.zip4j.io.outputstream.ZipOutputStream;
+import net.lingala.zip4j.model.ZipParameters;
+import net.lingala.zip4j.model.enums.CompressionLevel;
+import net.lingala.zip4j.model.enums.CompressionMethod;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.utils.OperatingSystem;
+import me.theentropyshard.teslauncher.utils.json.Json;
+
+public class BundleExporter {
+    // Jars, sounds and textures are already compressed, deflating them again only costs time
+    private static final Set<String> STORED_EXTENSIONS = Set.of("jar", "zip", "ogg", "png", "lzma");
+
+    private final Path workDir;
+    private final FileIndex fileIndex;
+    private final Executor executor;
+
+    public BundleExporter(Path workDir, FileIndex fileIndex, Executor executor) {
+        this.workDir = workDir.toAbsolutePath().normalize();
+        this.fileIndex = fileIndex;
+        this.executor = executor;
+    }
+
+    public BundleManifest export(BundleManifest manifest, Collection<Path> files, Path output) throws IOException {
+        Set<Path> unique = new TreeSet<>();
+
+        for (Path file : files) {
+            Path absolute = file.toAbsolutePath().normalize();
+
+            if (!absolute.startsWith(this.workDir)) {
+                throw new IOException("File " + file + " is outside of the work dir");
+            }
+
+            if (!Files.isRegularFile(absolute)) {
+                throw new IOException("File " + file + " is missing, install the version before exporting it");
+            }
+
+            unique.add(absolute);
+        }
+
+        long start = System.currentTimeMillis();
+
+        // Hashes are mostly answered by the file index, the rest are computed in parallel
+        List<CompletableFuture<BundleManifest.Entry>> futures = new ArrayList<>();
+        for (Path file : unique) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return this.createEntry(file);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, this.executor));
+        }
+
+        for (CompletableFuture<BundleManifest.Entry> future : futures) {
+            manifest.addEntry(BundleExporter.join(future));
+        }
+
+        Path tempFile = output.resolveSibling(output.getFileName() + ".part");
+
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            // The manifest goes first so that an importer knows every hash before the first object arrives
+            byte[] manifestBytes = Json.write(manifest).getBytes(StandardCharsets.UTF_8);
+            zip.putNextEntry(BundleExporter.parameters(BundleManifest.FILE_NAME, manifestBytes.length));
+            zip.write(manifestBytes, 0, manifestBytes.length);
+            zip.closeEntry();
+
+            for (BundleManifest.Entry entry : manifest.getEntries()) {
+                zip.putNextEntry(BundleExporter.parameters(entry.getPath(), entry.getSize()));
+                Files.copy(this.workDir.resolve(entry.getPath()), zip);
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+
+            throw e;
+        }
+
+        Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Log.info("Exported " + manifest.getEntries().size() + " files of Minecraft " + manifest.getMinecraftVersion() +
+            " to " + output + " in " + (System.currentTimeMillis() - start) + " ms");
+
+        return manifest;
+    }
+
+    private BundleManifest.Entry createEntry(Path file) throws IOException {
+        String path = this.workDir.relativize(file).toString().replace('\\', '/');
+        boolean executable = !OperatingSystem.isWindows() && Files.isExecutable(file);
+
+        return new BundleManifest.Entry(path, this.fileIndex.sha1(file), Files.size(file), executable);
+    }
+
+    private static ZipParameters parameters(String name, long size) {
+        ZipParameters parameters = new ZipParameters();
+        parameters.setFileNameInZip(name);
+
+        int dot = name.lastIndexOf('.');
+        if (dot != -1 && BundleExporter.STORED_EXTENSIONS.contains(name.substring(dot + 1))) {
+            parameters.setCompressionMethod(CompressionMethod.STORE);
+        } else {
+            parameters.setCompressionMethod(CompressionMethod.DEFLATE);
+            parameters.setCompressionLevel(CompressionLevel.FASTEST);
+        }
+
+        // Stored entries are unreadable from a stream unless their size is in the local header
+        parameters.setEntrySize(size);
+
+        return parameters;
+    }
+
+    static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.bundle;
+
+import net.lingala.zip4j.io.inputstream.ZipInputStream;
+import net.lingala.zip4j.model.LocalFileHeader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import me.theentropyshard.teslauncher.utils.json.Json;
+
+public class BundleImporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Only shared game files and cached metadata can be imported, never settings, accounts or instances
+    private static final List<String> IMPORTABLE_DIRS = List.of(
+        "minecraft/versions", "minecraft/libraries", "minecraft/assets", "minecraft/runtimes", "cache/metadata"
+    );
+
+    private final Path workDir;
+    private final FileIndex fileIndex;
+    private final ObjectStore objectStore;
+    private final Executor executor;
+
+    public BundleImporter(Path workDir, FileIndex fileIndex, ObjectStore objectStore, Executor executor) {
+        this.workDir = workDir.toAbsolutePath().normalize();
+        this.fileIndex = fileIndex;
+        this.objectStore = objectStore;
+        this.executor = executor;
+    }
+
+    public BundleManifest importBundle(Path bundle) throws IOException {
+        long start = System.currentTimeMillis();
+
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(bundle), BundleImporter.BUFFER_SIZE))) {
+            LocalFileHeader header = zip.getNextEntry();
+
+            if (header == null || !BundleManifest.FILE_NAME.equals(header.getFileName())) {
+                throw new IOException(bundle + " is not a launcher bundle");
+            }
+
+            BundleManifest manifest = Json.parse(new String(zip.readAllBytes(), StandardCharsets.UTF_8), BundleManifest.class);
+
+            if (manifest.getFormatVersion() != BundleManifest.FORMAT_VERSION) {
+                throw new IOException("Unsupported bundle format " + manifest.getFormatVersion());
+            }
+
+            Map<String, BundleManifest.Entry> expected = new HashMap<>();
+            for (BundleManifest.Entry entry : manifest.getEntries()) {
+                expected.put(entry.getPath(), entry);
+            }
+
+            Set<String> seen = new HashSet<>();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            int upToDate = 0;
+
+            try {
+                while ((header = zip.getNextEntry()) != null) {
+                    if (header.isDirectory()) {
+                        continue;
+                    }
+
+                    String name = header.getFileName();
+                    BundleManifest.Entry entry = expected.get(name);
+
+                    if (entry == null) {
+                        throw new IOException("File " + name + " is not listed in the bundle manifest");
+                    }
+
+                    if (!seen.add(name)) {
+                        throw new IOException("File " + name + " appears in the bundle twice");
+                    }
+
+                    Path target = this.resolve(name);
+
+                    if (this.fileIndex.matches(target, entry.getSize(), entry.getSha1())) {
+                        upToDate++;
+
+                        continue;
+                    }
+
+                    // The archive can only be read front to back, so this thread inflates and hashes
+                    // while committing the verified files is left to the pool
+                    Path partFile = target.resolveSibling(target.getFileName() + ".part");
+                    FileUtils.createDirectoryIfNotExists(target.getParent());
+
+                    MessageDigest md = HashUtils.newDigest("SHA-1");
+                    long size;
+                    try {
+                        size = BundleImporter.copy(zip, partFile, md);
+                    } catch (IOException e) {
+                        Files.deleteIfExists(partFile);
+
+                        throw e;
+                    }
+
+                    String sha1 = HashUtils.toHex(md.digest());
+
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            this.commit(entry, partFile, target, size, sha1);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, this.executor));
+                }
+            } finally {
+                // Let the commits in flight settle before reporting, so no part file is left behind
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).handle((result, t) -> null).join();
+            }
+
+            for (CompletableFuture<Void> future : futures) {
+                BundleExporter.join(future);
+            }
+
+            if (seen.size() != expected.size()) {
+                throw new IOException("Bundle is truncated, " + (expected.size() - seen.size()) + " files are missing");
+            }
+
+            this.fileIndex.save();
+
+            Log.info("Imported Minecraft " + manifest.getMinecraftVersion() + " from " + bundle + ": " + futures.size() +
+                " files written, " + upToDate + " already present, in " + (System.currentTimeMillis() - start) + " ms");
+
+            return manifest;
+        }
+    }
+
+    private Path resolve(String name) throws IOException {
+        Path target = this.workDir.resolve(name).normalize();
+
+        if (!target.startsWith(this.workDir) || target.equals(this.workDir)) {
+            throw new IOException("File " + name + " points outside of the work dir");
+        }
+
+        for (String dir : BundleImporter.IMPORTABLE_DIRS) {
+            Path importableDir = this.workDir.resolve(dir);
+
+            if (target.startsWith(importableDir) && !target.equals(importableDir)) {
+                return target;
+            }
+        }
+
+        throw new IOException("File " + name + " is not a game file and cannot be imported");
+    }
+
+    private void commit(BundleManifest.Entry entry, Path partFile, Path target, long size, String sha1) throws IOException {
+        if (size != entry.getSize() || !sha1.equals(entry.getSha1())) {
+            Files.deleteIfExists(partFile);
+
+            throw new IOException("File " + entry.getPath() + " in the bundle is corrupted, expected " +
+                entry.getSha1() + " but got " + sha1);
+        }
+
+        if (entry.isExecutable()) {
+            partFile.toFile().setExecutable(true);
+        }
+
+        try (WorkDirLocks.Handle lock = this.objectStore.getLocks().exclusive(WorkDirLocks.objectShard(sha1))) {
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.fileIndex.record(target, sha1);
+            this.objectStore.add(target, sha1);
+        }
+    }
+
+    private static long copy(InputStream in, Path file, MessageDigest md) throws IOException {
+        byte[] buffer = new byte[BundleImporter.BUFFER_SIZE];
+        long total = 0;
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                total += read;
+            }
+        }
+
+        return total;
+    }
+}
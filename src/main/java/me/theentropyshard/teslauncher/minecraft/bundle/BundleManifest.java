@@ -0,0 +1,110 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.bundle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BundleManifest {
+    public static final String FILE_NAME = "bundle.json";
+    public static final int FORMAT_VERSION = 1;
+
+    private int formatVersion;
+    private String minecraftVersion;
+    private String loader;
+    private String loaderVersion;
+    private boolean includesJava;
+    private List<Entry> entries;
+
+    public BundleManifest() {
+
+    }
+
+    public BundleManifest(String minecraftVersion, String loader, String loaderVersion, boolean includesJava) {
+        this.formatVersion = BundleManifest.FORMAT_VERSION;
+        this.minecraftVersion = minecraftVersion;
+        this.loader = loader;
+        this.loaderVersion = loaderVersion;
+        this.includesJava = includesJava;
+        this.entries = new ArrayList<>();
+    }
+
+    public void addEntry(Entry entry) {
+        this.entries.add(entry);
+    }
+
+    public int getFormatVersion() {
+        return this.formatVersion;
+    }
+
+    public String getMinecraftVersion() {
+        return this.minecraftVersion;
+    }
+
+    public String getLoader() {
+        return this.loader;
+    }
+
+    public String getLoaderVersion() {
+        return this.loaderVersion;
+    }
+
+    public boolean isIncludesJava() {
+        return this.includesJava;
+    }
+
+    public List<Entry> getEntries() {
+        return this.entries;
+    }
+
+    public static class Entry {
+        // Relative to the launcher work dir, always separated with '/'
+        private String path;
+        private String sha1;
+        private long size;
+        private boolean executable;
+
+        public Entry() {
+
+        }
+
+        public Entry(String path, String sha1, long size, boolean executable) {
+            this.path = path;
+            this.sha1 = sha1;
+            this.size = size;
+            this.executable = executable;
+        }
+
+        public String getPath() {
+            return this.path;
+        }
+
+        public String getSha1() {
+            return this.sha1;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public boolean isExecutable() {
+            return this.executable;
+        }
+    }
+}
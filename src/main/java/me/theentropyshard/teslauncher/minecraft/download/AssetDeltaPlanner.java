@@ -0,0 +1,234 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.download;
+
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.minecraft.data.AssetIndex;
+import me.theentropyshard.teslauncher.minecraft.data.AssetObject;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import me.theentropyshard.teslauncher.utils.json.Json;
+
+public class AssetDeltaPlanner {
+    private static final int MAX_VERIFIED = 8;
+    private static final int SAMPLE_SIZE = 16;
+
+    private final Path indexesDir;
+    private final Path objectsDir;
+    private final Path verifiedFile;
+    private final Path deltasDir;
+    private final WorkDirLocks locks;
+
+    public AssetDeltaPlanner(Path indexesDir, Path objectsDir, WorkDirLocks locks) {
+        this.indexesDir = indexesDir;
+        this.objectsDir = objectsDir;
+        this.verifiedFile = indexesDir.resolve("verified.json");
+        this.deltasDir = indexesDir.resolve("deltas");
+        this.locks = locks;
+    }
+
+    public static String key(String indexId, String sha1) {
+        return FileUtils.sanitizeFileName(indexId) + "-" + sha1;
+    }
+
+    // Returns the objects of the index that no previously verified index already vouches for
+    public Collection<AssetObject> select(String indexId, String key, AssetIndex index) throws IOException {
+        Collection<AssetObject> objects = index.getObjects().values();
+        List<Verified> verified = this.readVerified();
+
+        if (verified.isEmpty()) {
+            return objects;
+        }
+
+        Verified base = verified.get(0);
+        for (Verified candidate : verified) {
+            if (candidate.key.equals(key)) {
+                base = candidate;
+
+                break;
+            }
+        }
+
+        Set<String> changed = base.key.equals(key) ? Set.of() : this.getDelta(base, key, index);
+
+        if (changed == null) {
+            return objects;
+        }
+
+        List<AssetObject> selected = new ArrayList<>();
+        List<AssetObject> unchanged = new ArrayList<>();
+
+        for (AssetObject object : objects) {
+            if (changed.contains(object.getHash())) {
+                selected.add(object);
+            } else {
+                unchanged.add(object);
+            }
+        }
+
+        // Objects may have been deleted behind the launcher's back, a few probes catch the common cases
+        if (!this.sample(unchanged)) {
+            Log.warn("Objects of verified asset index " + base.id + " are missing, checking " + indexId + " in full");
+            this.forgetAll();
+
+            return objects;
+        }
+
+        Log.info("Asset index " + indexId + " differs from verified index " + base.id + " in " +
+            selected.size() + " of " + objects.size() + " objects");
+
+        return selected;
+    }
+
+    private Set<String> getDelta(Verified base, String key, AssetIndex index) throws IOException {
+        Path deltaFile = this.deltasDir.resolve(base.key + "_" + key + ".json");
+
+        if (Files.exists(deltaFile)) {
+            try {
+                return new HashSet<>(Arrays.asList(Json.parse(FileUtils.readUtf8(deltaFile), String[].class)));
+            } catch (JsonParseException e) {
+                Log.warn("Ignoring unreadable asset delta " + deltaFile + ": " + e.getMessage());
+            }
+        }
+
+        Path baseFile = this.indexesDir.resolve(base.id + ".json");
+
+        // Both keys carry the content hash, so a cached delta stays valid for as long as its name matches
+        if (!Files.exists(baseFile) || !HashUtils.sha1(baseFile).equals(base.sha1)) {
+            return null;
+        }
+
+        Set<String> baseHashes = new HashSet<>();
+        for (AssetObject object : Json.parse(FileUtils.readUtf8(baseFile), AssetIndex.class).getObjects().values()) {
+            baseHashes.add(object.getHash());
+        }
+
+        Set<String> changed = new HashSet<>();
+        for (AssetObject object : index.getObjects().values()) {
+            if (!baseHashes.contains(object.getHash())) {
+                changed.add(object.getHash());
+            }
+        }
+
+        FileUtils.createDirectoryIfNotExists(this.deltasDir);
+        FileUtils.writeUtf8(deltaFile, Json.write(changed));
+
+        return changed;
+    }
+
+    private boolean sample(List<AssetObject> objects) {
+        int step = Math.max(1, objects.size() / AssetDeltaPlanner.SAMPLE_SIZE);
+
+        for (int i = 0; i < objects.size(); i += step) {
+            AssetObject object = objects.get(i);
+
+            if (!Files.exists(this.objectsDir.resolve(object.getPrefix()).resolve(object.getHash()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public void markVerified(String indexId, String key, String sha1) throws IOException {
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocks.file(this.verifiedFile))) {
+            List<Verified> verified = this.readVerified();
+            verified.removeIf(entry -> entry.key.equals(key));
+
+            Verified entry = new Verified();
+            entry.key = key;
+            entry.id = indexId;
+            entry.sha1 = sha1;
+            entry.verifiedAt = System.currentTimeMillis();
+            verified.add(0, entry);
+
+            while (verified.size() > AssetDeltaPlanner.MAX_VERIFIED) {
+                verified.remove(verified.size() - 1);
+            }
+
+            FileUtils.writeUtf8(this.verifiedFile, Json.write(verified));
+            this.pruneDeltas(verified);
+        }
+    }
+
+    public void forgetAll() throws IOException {
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocks.file(this.verifiedFile))) {
+            Files.deleteIfExists(this.verifiedFile);
+            this.pruneDeltas(List.of());
+        }
+    }
+
+    // A delta is only read while both of its indexes are verified, the others would pile up with every release
+    private void pruneDeltas(List<Verified> verified) {
+        if (!Files.isDirectory(this.deltasDir)) {
+            return;
+        }
+
+        Set<String> kept = new HashSet<>();
+        for (Verified base : verified) {
+            for (Verified target : verified) {
+                kept.add(base.key + "_" + target.key + ".json");
+            }
+        }
+
+        try {
+            for (Path deltaFile : FileUtils.list(this.deltasDir, file -> !kept.contains(file.getFileName().toString()))) {
+                Files.deleteIfExists(deltaFile);
+            }
+        } catch (IOException e) {
+            Log.warn("Could not prune asset deltas: " + e.getMessage());
+        }
+    }
+
+    private List<Verified> readVerified() throws IOException {
+        if (!Files.exists(this.verifiedFile)) {
+            return new ArrayList<>();
+        }
+
+        try {
+            Verified[] verified = Json.parse(FileUtils.readUtf8(this.verifiedFile), Verified[].class);
+
+            return verified == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(verified));
+        } catch (JsonParseException e) {
+            Log.warn("Ignoring unreadable " + this.verifiedFile + ": " + e.getMessage());
+
+            return new ArrayList<>();
+        }
+    }
+
+    private static final class Verified {
+        private String key;
+        private String id;
+        private String sha1;
+        private long verifiedAt;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.download;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import me.theentropyshard.teslauncher.minecraft.data.AssetObject;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+
+public class AssetPlanner {
+    private final Path objectsDir;
+    private final Set<Path> createdDirs;
+
+    private int present;
+
+    public AssetPlanner(Path objectsDir) {
+        this.objectsDir = objectsDir;
+        this.createdDirs = ConcurrentHashMap.newKeySet();
+    }
+
+    // Lists each objects/xx shard once instead of probing every object, and returns the objects
+    // that are missing, have the wrong size or fail the hash check
+    public List<AssetObject> plan(Collection<AssetObject> objects, FileIndex fileIndex, Executor executor) throws IOException {
+        Map<String, Map<String, AssetObject>> shards = new HashMap<>();
+        int unique = 0;
+
+        for (AssetObject object : objects) {
+            Map<String, AssetObject> shard = shards.computeIfAbsent(object.getPrefix(), prefix -> new LinkedHashMap<>());
+
+            if (shard.putIfAbsent(object.getHash(), object) == null) {
+                unique++;
+            }
+        }
+
+        List<CompletableFuture<List<AssetObject>>> futures = new ArrayList<>();
+        for (Map.Entry<String, Map<String, AssetObject>> shard : shards.entrySet()) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return this.planShard(shard.getKey(), shard.getValue(), fileIndex);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        List<AssetObject> missing = new ArrayList<>();
+
+        for (CompletableFuture<List<AssetObject>> future : futures) {
+            try {
+                missing.addAll(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+
+                throw e;
+            }
+        }
+
+        this.present = unique - missing.size();
+
+        return missing;
+    }
+
+    private List<AssetObject> planShard(String prefix, Map<String, AssetObject> wanted, FileIndex fileIndex) throws IOException {
+        Path shardDir = this.objectsDir.resolve(prefix);
+        Map<String, BasicFileAttributes> listed = new HashMap<>();
+
+        try {
+            // One listing per shard replaces an exists and a size call per object. Only on Windows does the listing
+            // carry the attributes too, elsewhere the walker still stats each file once
+            Files.walkFileTree(shardDir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile()) {
+                        listed.put(file.getFileName().toString(), attributes);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            this.createdDirs.add(shardDir);
+        } catch (NoSuchFileException ignored) {
+
+        }
+
+        List<AssetObject> missing = new ArrayList<>();
+
+        for (AssetObject object : wanted.values()) {
+            BasicFileAttributes attributes = listed.get(object.getHash());
+
+            if (attributes == null ||
+                !fileIndex.matches(shardDir.resolve(object.getHash()), attributes, object.getSize(), object.getHash())) {
+
+                missing.add(object);
+            }
+        }
+
+        return missing;
+    }
+
+    public Path getPath(AssetObject object) {
+        return this.objectsDir.resolve(object.getPrefix()).resolve(object.getHash());
+    }
+
+    public void ensureDirectory(Path dir) throws IOException {
+        if (!this.createdDirs.add(dir)) {
+            return;
+        }
+
+        try {
+            FileUtils.createDirectoryIfNotExists(dir);
+        } catch (IOException e) {
+            this.createdDirs.remove(dir);
+
+            throw e;
+        }
+    }
+
+    public int getPresent() {
+        return this.present;
+    }
+}
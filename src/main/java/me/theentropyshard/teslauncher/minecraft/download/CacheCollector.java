@@ -0,0 +1,446 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.download;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.minecraft.MinecraftInstance;
+import me.theentropyshard.teslauncher.minecraft.data.Version;
+import me.theentropyshard.teslauncher.minecraft.mods.ModLoaderInfo;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+
+public class CacheCollector {
+    // Files younger than this may belong to an install that has not saved its instance yet
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    private final Path versionsDir;
+    private final Path assetsDir;
+    private final Path librariesDir;
+    private final Path runtimesDir;
+    private final ObjectStore objectStore;
+    private final FileIndex fileIndex;
+    private final int filesPerSecond;
+
+    private final Set<Path> markedFiles;
+    private final Set<String> markedVersions;
+    private final Set<String> markedRuntimes;
+
+    private Set<Path> materializedFiles;
+    private long sweepStart;
+    private long visited;
+
+    public CacheCollector(Path versionsDir, Path assetsDir, Path librariesDir, Path runtimesDir, ObjectStore objectStore,
+                          FileIndex fileIndex, int filesPerSecond) {
+        this.versionsDir = versionsDir;
+        this.assetsDir = assetsDir;
+        this.librariesDir = librariesDir;
+        this.runtimesDir = runtimesDir;
+        this.objectStore = objectStore;
+        this.fileIndex = fileIndex;
+        this.filesPerSecond = filesPerSecond;
+
+        this.markedFiles = new HashSet<>();
+        this.markedVersions = new HashSet<>();
+        this.markedRuntimes = new HashSet<>();
+    }
+
+    public void markInstances(Collection<MinecraftInstance> instances) throws IOException {
+        MinecraftDownloader downloader = new MinecraftDownloader(
+            this.versionsDir, this.assetsDir, this.librariesDir, null, this.runtimesDir, null,
+            MinecraftDownloadListener.NONE, false
+        );
+
+        for (MinecraftInstance instance : instances) {
+            String versionId = instance.getMinecraftVersion();
+            this.markVersion(versionId);
+
+            if (!Files.exists(this.versionsDir.resolve(versionId).resolve(versionId + ".json"))) {
+                continue;
+            }
+
+            // Failing to mark an installed version would sweep its files, so the whole run is abandoned instead
+            ModLoaderInfo loaderInfo = instance.createLoaderInfo();
+            Version version = downloader.loadInstalledVersion(versionId, loaderInfo);
+
+            for (Path file : downloader.getInstalledFiles(version, loaderInfo)) {
+                this.markFile(file);
+            }
+
+            this.markRuntime(MinecraftDownloader.getJavaKey(version));
+
+            String javaPath = instance.getJavaPath();
+            if (javaPath != null && !javaPath.isEmpty()) {
+                Path javaFile = Path.of(javaPath).toAbsolutePath().normalize();
+                Path runtimes = this.runtimesDir.toAbsolutePath().normalize();
+
+                if (javaFile.startsWith(runtimes) && javaFile.getNameCount() > runtimes.getNameCount()) {
+                    this.markRuntime(javaFile.getName(runtimes.getNameCount()).toString());
+                }
+            }
+        }
+    }
+
+    public void markFile(Path file) {
+        this.markedFiles.add(file.toAbsolutePath().normalize());
+    }
+
+    public void markVersion(String versionId) {
+        this.markedVersions.add(versionId);
+    }
+
+    public void markRuntime(String component) {
+        this.markedRuntimes.add(component);
+    }
+
+    // Sweeps one unit (a shard, a version, a runtime) at a time and stops early once shouldStop says so
+    public Report sweep(boolean dryRun, BooleanSupplier shouldStop) throws IOException {
+        Report report = new Report(dryRun);
+        long graceStart = System.currentTimeMillis() - CacheCollector.GRACE_PERIOD.toMillis();
+        this.materializedFiles = this.objectStore.getMaterializedSince(graceStart);
+        this.sweepStart = System.nanoTime();
+        this.visited = 0;
+
+        this.sweepFiles(report, "Libraries", this.librariesDir, dryRun, shouldStop);
+
+        boolean assetsSwept = !report.stopped && this.sweepAssets(report, dryRun, shouldStop);
+
+        if (!report.stopped) {
+            this.sweepDirs(report, "Versions", this.versionsDir, this.markedVersions, dryRun, shouldStop);
+        }
+
+        if (!report.stopped) {
+            this.sweepDirs(report, "Runtimes", this.runtimesDir, this.markedRuntimes, dryRun, shouldStop);
+        }
+
+        if (!report.stopped) {
+            this.sweepStore(report, dryRun, shouldStop);
+        }
+
+        if (assetsSwept && !dryRun) {
+            // Verified indexes vouch for objects without looking at them, some of which are gone now
+            new AssetDeltaPlanner(
+                this.assetsDir.resolve("indexes"), this.assetsDir.resolve("objects"), this.objectStore.getLocks()
+            ).forgetAll();
+        }
+
+        if (!dryRun) {
+            this.objectStore.pruneMaterialized(graceStart);
+            this.fileIndex.pruneMissing();
+            this.fileIndex.save();
+        }
+
+        return report;
+    }
+
+    private void sweepFiles(Report report, String category, Path dir, boolean dryRun, BooleanSupplier shouldStop) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> walked = Files.walk(dir)) {
+            files = walked.filter(Files::isRegularFile).toList();
+        }
+
+        boolean deleted = false;
+
+        for (Path file : files) {
+            if (this.shouldStop(report, shouldStop)) {
+                break;
+            }
+
+            if (this.isKept(file)) {
+                continue;
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (CacheCollector.isRecent(attributes)) {
+                continue;
+            }
+
+            report.add(category, 1, attributes.size());
+
+            if (!dryRun) {
+                Files.deleteIfExists(file);
+                this.fileIndex.invalidate(file);
+                deleted = true;
+            }
+        }
+
+        if (deleted) {
+            CacheCollector.deleteEmptyDirs(dir);
+        }
+    }
+
+    private boolean sweepAssets(Report report, boolean dryRun, BooleanSupplier shouldStop) throws IOException {
+        Path objectsDir = this.assetsDir.resolve("objects");
+
+        if (!Files.isDirectory(objectsDir)) {
+            return false;
+        }
+
+        boolean deleted = false;
+
+        for (Path shard : FileUtils.list(objectsDir, Files::isDirectory)) {
+            if (this.shouldStop(report, shouldStop)) {
+                break;
+            }
+
+            for (Path file : FileUtils.list(shard, Files::isRegularFile)) {
+                if (this.isKept(file)) {
+                    continue;
+                }
+
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (CacheCollector.isRecent(attributes)) {
+                    continue;
+                }
+
+                report.add("Assets", 1, attributes.size());
+
+                if (!dryRun) {
+                    String hash = file.getFileName().toString();
+
+                    try (WorkDirLocks.Handle lock = this.objectStore.getLocks().exclusive(WorkDirLocks.objectShard(hash))) {
+                        Files.deleteIfExists(file);
+                    }
+
+                    this.fileIndex.invalidate(file);
+                    deleted = true;
+                }
+
+                this.pace();
+            }
+        }
+
+        return deleted;
+    }
+
+    private void sweepDirs(Report report, String category, Path parent, Set<String> marked, boolean dryRun,
+                           BooleanSupplier shouldStop) throws IOException {
+
+        if (!Files.isDirectory(parent)) {
+            return;
+        }
+
+        for (Path dir : FileUtils.list(parent, Files::isDirectory)) {
+            if (this.shouldStop(report, shouldStop)) {
+                break;
+            }
+
+            if (marked.contains(dir.getFileName().toString()) ||
+                CacheCollector.isRecent(Files.readAttributes(dir, BasicFileAttributes.class))) {
+
+                continue;
+            }
+
+            List<Path> files;
+            try (Stream<Path> walked = Files.walk(dir)) {
+                files = walked.filter(Files::isRegularFile).toList();
+            }
+
+            long bytes = 0;
+            for (Path file : files) {
+                bytes += Files.size(file);
+            }
+
+            report.add(category, files.size(), bytes);
+
+            if (!dryRun) {
+                Log.info("Removing unused " + category.toLowerCase() + " directory " + dir);
+                FileUtils.delete(dir);
+                files.forEach(this.fileIndex::invalidate);
+            }
+        }
+    }
+
+    // A store object whose only link is the store itself is no longer used by any installed file
+    private void sweepStore(Report report, boolean dryRun, BooleanSupplier shouldStop) throws IOException {
+        Path storeDir = this.objectStore.getDir();
+
+        if (!Files.isDirectory(storeDir)) {
+            return;
+        }
+
+        for (Path shard : FileUtils.list(storeDir, path -> Files.isDirectory(path) && path.getFileName().toString().length() == 2)) {
+            if (this.shouldStop(report, shouldStop)) {
+                break;
+            }
+
+            for (Path object : FileUtils.list(shard, path -> path.getFileName().toString().length() == 40)) {
+                int links;
+                try {
+                    links = (Integer) Files.getAttribute(object, "unix:nlink");
+                } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                    Log.debug("Link counts are not available, not collecting the object store");
+
+                    return;
+                }
+
+                BasicFileAttributes attributes = Files.readAttributes(object, BasicFileAttributes.class);
+                if (links > 1 || CacheCollector.isRecent(attributes)) {
+                    continue;
+                }
+
+                report.add("Store", 1, attributes.size());
+
+                if (!dryRun) {
+                    String sha1 = object.getFileName().toString();
+
+                    try (WorkDirLocks.Handle lock = this.objectStore.getLocks().exclusive(WorkDirLocks.objectShard(sha1))) {
+                        Files.deleteIfExists(object);
+                    }
+                }
+
+                this.pace();
+            }
+        }
+    }
+
+    private boolean isKept(Path file) {
+        // In-flight downloads and their staging files belong to whoever is writing them
+        String name = file.getFileName().toString();
+        Path normalized = file.toAbsolutePath().normalize();
+
+        return name.endsWith(".part") || name.endsWith(".hedge") || this.markedFiles.contains(normalized) ||
+            this.materializedFiles.contains(normalized);
+    }
+
+    private boolean shouldStop(Report report, BooleanSupplier shouldStop) throws IOException {
+        this.pace();
+
+        if (shouldStop.getAsBoolean()) {
+            report.stopped = true;
+        }
+
+        return report.stopped;
+    }
+
+    private void pace() throws IOException {
+        this.visited++;
+
+        if (this.filesPerSecond <= 0) {
+            return;
+        }
+
+        long dueNanos = this.visited * 1_000_000_000L / this.filesPerSecond;
+        long aheadNanos = dueNanos - (System.nanoTime() - this.sweepStart);
+
+        if (aheadNanos > 0) {
+            try {
+                Thread.sleep(aheadNanos / 1_000_000L, (int) (aheadNanos % 1_000_000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new InterruptedIOException("Cache collection interrupted");
+            }
+        }
+    }
+
+    private static boolean isRecent(BasicFileAttributes attributes) {
+        return System.currentTimeMillis() - attributes.lastModifiedTime().toMillis() < CacheCollector.GRACE_PERIOD.toMillis();
+    }
+
+    private static void deleteEmptyDirs(Path root) throws IOException {
+        List<Path> dirs;
+        try (Stream<Path> walked = Files.walk(root)) {
+            dirs = walked.filter(Files::isDirectory).sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList();
+        }
+
+        for (Path dir : dirs) {
+            if (dir.equals(root)) {
+                continue;
+            }
+
+            try (Stream<Path> entries = Files.list(dir)) {
+                if (entries.findAny().isEmpty()) {
+                    Files.delete(dir);
+                }
+            }
+        }
+    }
+
+    public static final class Report {
+        private final boolean dryRun;
+        private final Map<String, long[]> categories;
+
+        private boolean stopped;
+
+        public Report(boolean dryRun) {
+            this.dryRun = dryRun;
+            this.categories = new LinkedHashMap<>();
+        }
+
+        private void add(String category, long files, long bytes) {
+            long[] totals = this.categories.computeIfAbsent(category, key -> new long[2]);
+            totals[0] += files;
+            totals[1] += bytes;
+        }
+
+        public long getFiles() {
+            return this.categories.values().stream().mapToLong(totals -> totals[0]).sum();
+        }
+
+        public long getBytes() {
+            return this.categories.values().stream().mapToLong(totals -> totals[1]).sum();
+        }
+
+        public boolean isDryRun() {
+            return this.dryRun;
+        }
+
+        public boolean isStopped() {
+            return this.stopped;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(this.dryRun ? "Reclaimable: " : "Reclaimed: ");
+            builder.append(this.getFiles()).append(" files, ").append(this.getBytes() / 1024 / 1024).append(" MiB");
+
+            for (Map.Entry<String, long[]> entry : this.categories.entrySet()) {
+                builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue()[0])
+                    .append(" files, ").append(entry.getValue()[1] / 1024).append(" KiB");
+            }
+
+            if (this.stopped) {
+                builder.append("\n  (stopped early, the next run continues)");
+            }
+
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.download;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import me.theentropyshard.teslauncher.network.download.DownloadListener;
+import me.theentropyshard.teslauncher.network.progress.ProgressSnapshot;
+
+public class InstallProgress {
+    private final MinecraftDownloadListener listener;
+    private final Map<String, ProgressSnapshot> snapshots;
+    private final Map<String, Boolean> finished;
+
+    public InstallProgress(MinecraftDownloadListener listener) {
+        this.listener = listener;
+        this.snapshots = new LinkedHashMap<>();
+        this.finished = new LinkedHashMap<>();
+    }
+
+    public synchronized void stageStarted(String stage) {
+        this.finished.put(stage, false);
+        this.publish();
+    }
+
+    public synchronized void stageFinished(String stage) {
+        this.finished.put(stage, true);
+        this.publish();
+    }
+
+    public DownloadListener listenerFor(String stage) {
+        return snapshot -> this.update(stage, snapshot);
+    }
+
+    private synchronized void update(String stage, ProgressSnapshot snapshot) {
+        this.snapshots.put(stage, snapshot);
+        this.publish();
+    }
+
+    private void publish() {
+        StringJoiner stages = new StringJoiner(", ");
+
+        long totalBytes = 0;
+        long downloadedBytes = 0;
+        double bytesPerSecond = 0;
+        int activeConnections = 0;
+        int concurrencyLimit = 0;
+        int filesTotal = 0;
+        int filesDone = 0;
+        int filesFailed = 0;
+
+        for (Map.Entry<String, Boolean> entry : this.finished.entrySet()) {
+            String stage = entry.getKey();
+            ProgressSnapshot snapshot = this.snapshots.get(stage);
+
+            if (entry.getValue()) {
+                stages.add(stage + " (done)");
+            } else if (snapshot == null || snapshot.getTotalBytes() <= 0) {
+                stages.add(stage);
+            } else {
+                stages.add(stage + " (" + (snapshot.getDownloadedBytes() * 100 / snapshot.getTotalBytes()) + "%)");
+            }
+
+            if (snapshot != null) {
+                totalBytes += snapshot.getTotalBytes();
+                downloadedBytes += snapshot.getDownloadedBytes();
+                bytesPerSecond += entry.getValue() ? 0 : snapshot.getBytesPerSecond();
+                activeConnections = Math.max(activeConnections, snapshot.getActiveConnections());
+                concurrencyLimit = Math.max(concurrencyLimit, snapshot.getConcurrencyLimit());
+                filesTotal += snapshot.getFilesTotal();
+                filesDone += snapshot.getFilesDone();
+                filesFailed += snapshot.getFilesFailed();
+            }
+        }
+
+        long eta = bytesPerSecond >= 1.0D ? (long) (Math.max(0L, totalBytes - downloadedBytes) / bytesPerSecond) : -1L;
+
+        this.listener.onStageChanged(stages.toString());
+        this.listener.onProgress(new ProgressSnapshot(
+            totalBytes, downloadedBytes, bytesPerSecond, eta, activeConnections, concurrencyLimit, filesTotal, filesDone, filesFailed
+        ));
+    }
+}
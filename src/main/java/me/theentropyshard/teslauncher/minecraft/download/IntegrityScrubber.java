@@ -0,0 +1,656 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.minecraft.ApiUrls;
+import me.theentropyshard.teslauncher.minecraft.data.AssetIndex;
+import me.theentropyshard.teslauncher.minecraft.data.AssetObject;
+import me.theentropyshard.teslauncher.minecraft.data.JavaRuntimeManifest;
+import me.theentropyshard.teslauncher.minecraft.data.JreFile;
+import me.theentropyshard.teslauncher.minecraft.data.Library;
+import me.theentropyshard.teslauncher.minecraft.data.Version;
+import me.theentropyshard.teslauncher.network.download.DownloadEngine;
+import me.theentropyshard.teslauncher.network.download.DownloadList;
+import me.theentropyshard.teslauncher.network.download.DownloadPriority;
+import me.theentropyshard.teslauncher.network.download.HttpDownload;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import me.theentropyshard.teslauncher.utils.json.Json;
+
+public class IntegrityScrubber {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SAVE_EVERY_FILES = 100;
+    private static final int MAX_PROBLEMS = 50;
+
+    private final Path stateFile;
+    private final Path versionsDir;
+    private final Path assetsDir;
+    private final Path librariesDir;
+    private final Path runtimesDir;
+    private final DownloadEngine engine;
+    private final Settings settings;
+
+    private State state;
+
+    private long runStart;
+    private long runFiles;
+    private long runBytes;
+
+    public IntegrityScrubber(Path stateFile, Path versionsDir, Path assetsDir, Path librariesDir, Path runtimesDir,
+                             DownloadEngine engine, Settings settings) {
+        this.stateFile = stateFile;
+        this.versionsDir = versionsDir;
+        this.assetsDir = assetsDir;
+        this.librariesDir = librariesDir;
+        this.runtimesDir = runtimesDir;
+        this.engine = engine;
+        this.settings = settings;
+
+        this.state = new State();
+    }
+
+    public synchronized void load() throws IOException {
+        if (!Files.exists(this.stateFile)) {
+            return;
+        }
+
+        try (WorkDirLocks.Handle lock = this.engine.getObjectStore().getLocks().shared(WorkDirLocks.file(this.stateFile))) {
+            State state = Json.parse(FileUtils.readUtf8(this.stateFile), State.class);
+
+            if (state != null) {
+                this.state = state;
+            }
+        }
+    }
+
+    // Continues the current pass from its cursor. A finished pass is only followed by a new one once the
+    // interval is over, unless force is set. Returns whether the pass was completed
+    public boolean run(boolean force, BooleanSupplier shouldStop) throws IOException {
+        synchronized (this) {
+            if (this.state.cursor == null) {
+                long intervalMillis = Math.max(1, this.settings.integrityScrubIntervalHours) * 3_600_000L;
+
+                if (!force && System.currentTimeMillis() - this.state.passFinished < intervalMillis) {
+                    return false;
+                }
+
+                this.state.startPass();
+            }
+        }
+
+        NavigableMap<String, Target> targets = this.collectTargets();
+
+        String cursor = this.getCursor();
+        if (!cursor.isEmpty()) {
+            targets = targets.tailMap(cursor, false);
+        }
+
+        this.runStart = System.nanoTime();
+        this.runFiles = 0;
+        this.runBytes = 0;
+
+        List<Target> corrupt = new ArrayList<>();
+        boolean stopped = false;
+        int visited = 0;
+
+        try {
+            // Found by a run that had to stop, unless something else has replaced them since
+            for (Target target : this.takePendingRepairs()) {
+                if (this.confirmCorrupt(target)) {
+                    corrupt.add(target);
+                }
+            }
+
+            for (Map.Entry<String, Target> entry : targets.entrySet()) {
+                if (shouldStop.getAsBoolean()) {
+                    stopped = true;
+
+                    break;
+                }
+
+                Target target = entry.getValue();
+
+                if (Files.isRegularFile(target.file)) {
+                    this.check(target, corrupt);
+                }
+
+                synchronized (this) {
+                    this.state.cursor = entry.getKey();
+                }
+
+                if (++visited % IntegrityScrubber.SAVE_EVERY_FILES == 0) {
+                    this.save();
+                }
+            }
+        } finally {
+            boolean interrupted = Thread.currentThread().isInterrupted();
+
+            // A run that was told to stop leaves the downloads to the next idle one, the launcher is busy or going away
+            if (stopped || interrupted) {
+                this.deferRepairs(corrupt);
+            } else if (!corrupt.isEmpty()) {
+                this.repair(corrupt);
+            }
+
+            synchronized (this) {
+                if (!stopped && !interrupted) {
+                    this.state.finishPass();
+                }
+            }
+
+            this.save();
+            this.engine.getFileIndex().save();
+        }
+
+        return !stopped;
+    }
+
+    private void check(Target target, List<Target> corrupt) throws InterruptedIOException {
+        try {
+            long size = Files.size(target.file);
+            String sha1 = this.hash(target.file);
+
+            if (sha1.equals(target.sha1)) {
+                this.engine.getFileIndex().record(target.file, sha1);
+            } else if (this.confirmCorrupt(target)) {
+                Log.warn("Integrity check: " + target.file + " does not match its manifest");
+                corrupt.add(target);
+            }
+
+            synchronized (this) {
+                this.state.filesChecked++;
+                this.state.bytesChecked += size;
+            }
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            Log.warn("Integrity check could not read " + target.file + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized State getState() {
+        return new State(this.state);
+    }
+
+    private synchronized List<Target> takePendingRepairs() {
+        List<Target> targets = new ArrayList<>();
+
+        if (this.state.pendingRepairs != null) {
+            for (PendingRepair repair : this.state.pendingRepairs) {
+                targets.add(new Target(Paths.get(repair.file), repair.sha1, repair.size, repair.url, repair.executable));
+            }
+
+            this.state.pendingRepairs.clear();
+        }
+
+        return targets;
+    }
+
+    private synchronized void deferRepairs(List<Target> corrupt) {
+        this.state.pendingRepairs = new ArrayList<>();
+
+        for (Target target : corrupt) {
+            this.state.pendingRepairs.add(new PendingRepair(target));
+        }
+    }
+
+    private synchronized String getCursor() {
+        return this.state.cursor == null ? "" : this.state.cursor;
+    }
+
+    private void save() throws IOException {
+        String json;
+        synchronized (this) {
+            json = Json.write(this.state);
+        }
+
+        try (WorkDirLocks.Handle lock = this.engine.getObjectStore().getLocks().exclusive(WorkDirLocks.file(this.stateFile))) {
+            FileUtils.writeUtf8(this.stateFile, json);
+        }
+    }
+
+    // Keyed by path, so that a pass visits the files in the same order every time and the cursor stays valid
+    private NavigableMap<String, Target> collectTargets() {
+        NavigableMap<String, Target> targets = new TreeMap<>();
+
+        this.collectLibraries(targets);
+        this.collectAssets(targets);
+        this.collectRuntimes(targets);
+
+        return targets;
+    }
+
+    private void collectLibraries(Map<String, Target> targets) {
+        for (Path versionDir : IntegrityScrubber.listDirs(this.versionsDir)) {
+            String versionId = versionDir.getFileName().toString();
+            Path jsonFile = versionDir.resolve(versionId + ".json");
+
+            if (!Files.isRegularFile(jsonFile)) {
+                continue;
+            }
+
+            Version version;
+            try (WorkDirLocks.Handle lock = this.engine.getObjectStore().getLocks().shared(WorkDirLocks.version(versionId))) {
+                version = Json.parse(FileUtils.readUtf8(jsonFile), Version.class);
+            } catch (IOException | RuntimeException e) {
+                Log.warn("Integrity check skips version " + versionId + ": " + e.getMessage());
+
+                continue;
+            }
+
+            if (version == null || version.getLibraries() == null) {
+                continue;
+            }
+
+            // All platforms, files that were never downloaded here are simply not found
+            for (Library library : version.getLibraries()) {
+                Library.DownloadList downloads = library.getDownloads();
+
+                if (downloads == null) {
+                    continue;
+                }
+
+                this.addLibrary(targets, downloads.getArtifact());
+
+                if (downloads.getClassifiers() != null) {
+                    for (Library.Artifact classifier : downloads.getClassifiers().values()) {
+                        this.addLibrary(targets, classifier);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addLibrary(Map<String, Target> targets, Library.Artifact artifact) {
+        if (artifact == null || artifact.getSha1() == null || artifact.getUrl() == null || artifact.getPath() == null) {
+            return;
+        }
+
+        Path file = this.librariesDir.resolve(artifact.getPath());
+        IntegrityScrubber.add(targets, new Target(file, artifact.getSha1(), artifact.getSize(), artifact.getUrl(), false));
+    }
+
+    private void collectAssets(Map<String, Target> targets) {
+        Path objectsDir = this.assetsDir.resolve("objects");
+
+        for (Path indexFile : IntegrityScrubber.listFiles(this.assetsDir.resolve("indexes"))) {
+            AssetIndex assetIndex;
+            try {
+                assetIndex = Json.parse(FileUtils.readUtf8(indexFile), AssetIndex.class);
+            } catch (IOException | RuntimeException e) {
+                continue;
+            }
+
+            if (assetIndex == null || assetIndex.getObjects() == null) {
+                continue;
+            }
+
+            for (AssetObject object : assetIndex.getObjects().values()) {
+                Path file = objectsDir.resolve(object.getPrefix()).resolve(object.getHash());
+                String url = ApiUrls.RESOURCES + object.getPrefix() + "/" + object.getHash();
+
+                IntegrityScrubber.add(targets, new Target(file, object.getHash(), object.getSize(), url, false));
+            }
+        }
+    }
+
+    private void collectRuntimes(Map<String, Target> targets) {
+        for (Path componentDir : IntegrityScrubber.listDirs(this.runtimesDir)) {
+            Path componentInfoFile = componentDir.resolve("component.json");
+
+            if (!Files.isRegularFile(componentInfoFile)) {
+                continue;
+            }
+
+            JavaRuntimeManifest manifest;
+            try {
+                manifest = Json.parse(FileUtils.readUtf8(componentInfoFile), JavaRuntimeManifest.class);
+            } catch (IOException | RuntimeException e) {
+                Log.warn("Integrity check skips runtime " + componentDir.getFileName() + ": " + e.getMessage());
+
+                continue;
+            }
+
+            if (manifest == null || manifest.files == null) {
+                continue;
+            }
+
+            for (Map.Entry<String, JreFile> entry : manifest.files.entrySet()) {
+                JreFile jreFile = entry.getValue();
+
+                if (!"file".equals(jreFile.type) || jreFile.downloads == null) {
+                    continue;
+                }
+
+                JreFile.Download raw = jreFile.downloads.get("raw");
+
+                if (raw == null || raw.sha1 == null) {
+                    continue;
+                }
+
+                Path file = componentDir.resolve(entry.getKey());
+                IntegrityScrubber.add(targets, new Target(file, raw.sha1, raw.size, raw.url, jreFile.executable));
+            }
+        }
+    }
+
+    private static void add(Map<String, Target> targets, Target target) {
+        targets.put(target.file.toAbsolutePath().normalize().toString(), target);
+    }
+
+    private String hash(Path file) throws IOException {
+        MessageDigest md = HashUtils.newDigest("SHA-1");
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] buffer = new byte[IntegrityScrubber.BUFFER_SIZE];
+
+            int numRead;
+            while ((numRead = inputStream.read(buffer)) != -1) {
+                md.update(buffer, 0, numRead);
+
+                this.runBytes += numRead;
+                this.pace();
+            }
+        }
+
+        this.runFiles++;
+        this.pace();
+
+        return HashUtils.toHex(md.digest());
+    }
+
+    // Sleeps until the files and bytes read in this run are back within both budgets
+    private void pace() throws IOException {
+        long dueNanos = 0L;
+
+        if (this.settings.integrityScrubFilesPerSecond > 0) {
+            dueNanos = this.runFiles * 1_000_000_000L / this.settings.integrityScrubFilesPerSecond;
+        }
+
+        if (this.settings.integrityScrubKbPerSecond > 0) {
+            long bytesPerSecond = this.settings.integrityScrubKbPerSecond * 1024L;
+            dueNanos = Math.max(dueNanos, (long) (this.runBytes * 1_000_000_000D / bytesPerSecond));
+        }
+
+        long aheadNanos = dueNanos - (System.nanoTime() - this.runStart);
+
+        if (aheadNanos > 0) {
+            try {
+                Thread.sleep(aheadNanos / 1_000_000L, (int) (aheadNanos % 1_000_000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new InterruptedIOException("Integrity check interrupted");
+            }
+        }
+    }
+
+    // A download may have replaced the file since it was read, so it is hashed again under the lock downloads
+    // commit under
+    private boolean confirmCorrupt(Target target) throws IOException {
+        try (WorkDirLocks.Handle lock = this.engine.getObjectStore().getLocks().shared(WorkDirLocks.objectShard(target.sha1))) {
+            return Files.isRegularFile(target.file) && !HashUtils.sha1(target.file).equals(target.sha1);
+        }
+    }
+
+    private void repair(List<Target> corrupt) throws IOException {
+        ObjectStore objectStore = this.engine.getObjectStore();
+
+        DownloadList list = new DownloadList(this.engine, snapshot -> {});
+        list.setPriority(DownloadPriority.REPAIR);
+
+        for (Target target : corrupt) {
+            this.engine.getFileIndex().invalidate(target.file);
+
+            // A store object linked to the damaged file is damaged too, and would be linked right back
+            Path object = objectStore.getPath(target.sha1);
+            try (WorkDirLocks.Handle lock = objectStore.getLocks().exclusive(WorkDirLocks.objectShard(target.sha1))) {
+                if (Files.exists(object) && Files.isSameFile(object, target.file)) {
+                    FileUtils.delete(object);
+                }
+            }
+
+            list.add(new HttpDownload.Builder()
+                .httpClient(this.engine.getHttpClient())
+                .url(target.url)
+                .sha1(target.sha1)
+                .expectedSize(target.size)
+                .executable(target.executable)
+                .forceDownload()
+                .saveAs(target.file)
+                .build());
+        }
+
+        list.downloadAll().join();
+
+        for (Target target : corrupt) {
+            boolean repaired = Files.isRegularFile(target.file) && HashUtils.sha1(target.file).equals(target.sha1);
+
+            if (!repaired) {
+                Log.warn("Integrity check could not repair " + target.file);
+            }
+
+            synchronized (this) {
+                this.state.addProblem(new Problem(target.file.toString(), repaired, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    private static List<Path> listDirs(Path dir) {
+        return IntegrityScrubber.list(dir, true);
+    }
+
+    private static List<Path> listFiles(Path dir) {
+        return IntegrityScrubber.list(dir, false);
+    }
+
+    private static List<Path> list(Path dir, boolean dirs) {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(path -> dirs ? Files.isDirectory(path) : Files.isRegularFile(path)).sorted().toList();
+        } catch (IOException e) {
+            Log.warn("Could not list " + dir + ": " + e.getMessage());
+
+            return List.of();
+        }
+    }
+
+    private static final class Target {
+        private final Path file;
+        private final String sha1;
+        private final long size;
+        private final String url;
+        private final boolean executable;
+
+        private Target(Path file, String sha1, long size, String url, boolean executable) {
+            this.file = file;
+            this.sha1 = sha1;
+            this.size = size;
+            this.url = url;
+            this.executable = executable;
+        }
+    }
+
+    public static final class State {
+        private String cursor;
+        private long passStarted;
+        private long passFinished;
+        private long filesChecked;
+        private long bytesChecked;
+        private int corruptFiles;
+        private int repairedFiles;
+        private List<Problem> problems;
+        private List<PendingRepair> pendingRepairs;
+
+        public State() {
+            this.problems = new ArrayList<>();
+            this.pendingRepairs = new ArrayList<>();
+        }
+
+        private State(State state) {
+            this.cursor = state.cursor;
+            this.passStarted = state.passStarted;
+            this.passFinished = state.passFinished;
+            this.filesChecked = state.filesChecked;
+            this.bytesChecked = state.bytesChecked;
+            this.corruptFiles = state.corruptFiles;
+            this.repairedFiles = state.repairedFiles;
+            this.problems = new ArrayList<>(state.problems == null ? List.of() : state.problems);
+            this.pendingRepairs = new ArrayList<>(state.pendingRepairs == null ? List.of() : state.pendingRepairs);
+        }
+
+        private void startPass() {
+            this.cursor = "";
+            this.passStarted = System.currentTimeMillis();
+            this.filesChecked = 0;
+            this.bytesChecked = 0;
+            this.corruptFiles = 0;
+            this.repairedFiles = 0;
+        }
+
+        private void finishPass() {
+            this.cursor = null;
+            this.passFinished = System.currentTimeMillis();
+        }
+
+        private void addProblem(Problem problem) {
+            if (this.problems == null) {
+                this.problems = new ArrayList<>();
+            }
+
+            this.corruptFiles++;
+            if (problem.repaired) {
+                this.repairedFiles++;
+            }
+
+            this.problems.add(0, problem);
+
+            if (this.problems.size() > IntegrityScrubber.MAX_PROBLEMS) {
+                this.problems.subList(IntegrityScrubber.MAX_PROBLEMS, this.problems.size()).clear();
+            }
+        }
+
+        public boolean isInProgress() {
+            return this.cursor != null;
+        }
+
+        public long getPassStarted() {
+            return this.passStarted;
+        }
+
+        public long getPassFinished() {
+            return this.passFinished;
+        }
+
+        public long getFilesChecked() {
+            return this.filesChecked;
+        }
+
+        public long getBytesChecked() {
+            return this.bytesChecked;
+        }
+
+        public int getCorruptFiles() {
+            return this.corruptFiles;
+        }
+
+        public int getRepairedFiles() {
+            return this.repairedFiles;
+        }
+
+        public List<Problem> getProblems() {
+            return this.problems;
+        }
+
+        public int getPendingRepairs() {
+            return this.pendingRepairs == null ? 0 : this.pendingRepairs.size();
+        }
+    }
+
+    // Saved with the state, so that a restart does not lose damaged files the cursor has already passed
+    private static final class PendingRepair {
+        private String file;
+        private String sha1;
+        private long size;
+        private String url;
+        private boolean executable;
+
+        public PendingRepair() {
+
+        }
+
+        private PendingRepair(Target target) {
+            this.file = target.file.toString();
+            this.sha1 = target.sha1;
+            this.size = target.size;
+            this.url = target.url;
+            this.executable = target.executable;
+        }
+    }
+
+    public static final class Problem {
+        private String file;
+        private boolean repaired;
+        private long time;
+
+        public Problem() {
+
+        }
+
+        private Problem(String file, boolean repaired, long time) {
+            this.file = file;
+            this.repaired = repaired;
+            this.time = time;
+        }
+
+        public String getFile() {
+            return this.file;
+        }
+
+        public boolean isRepaired() {
+            return this.repaired;
+        }
+
+        public long getTime() {
+            return this.time;
+        }
+    }
+}
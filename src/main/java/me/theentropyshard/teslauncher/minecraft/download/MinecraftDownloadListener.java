@@ -18,10 +18,34 @@
 
 package me.theentropyshard.teslauncher.minecraft.download;
 
+import me.theentropyshard.teslauncher.network.progress.ProgressSnapshot;
+
 public interface MinecraftDownloadListener {
+    // For downloaders that only read what is installed
+    MinecraftDownloadListener NONE = new MinecraftDownloadListener() {
+        @Override
+        public void onStageChanged(String stage) {
+
+        }
+
+        @Override
+        public void onProgress(long totalSize, long downloadedBytes) {
+
+        }
+
+        @Override
+        public void onFinish() {
+
+        }
+    };
+
     void onStageChanged(String stage);
 
     void onProgress(long totalSize, long downloadedBytes);
 
+    default void onProgress(ProgressSnapshot snapshot) {
+        this.onProgress(snapshot.getTotalBytes(), snapshot.getDownloadedBytes());
+    }
+
     void onFinish();
 }
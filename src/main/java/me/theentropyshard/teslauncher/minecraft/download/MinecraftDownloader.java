@@ -21,20 +21,20 @@ package me.theentropyshard.teslauncher.minecraft.download;
 import com.google.gson.JsonObject;
 import net.lingala.zip4j.ZipFile;
 import net.lingala.zip4j.model.FileHeader;
-import okhttp3.OkHttpClient;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Duration;
-import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import me.theentropyshard.teslauncher.TESLauncher;
 import me.theentropyshard.teslauncher.logging.Log;
@@ -42,17 +42,25 @@ import me.theentropyshard.teslauncher.minecraft.ApiUrls;
 import me.theentropyshard.teslauncher.minecraft.data.*;
 import me.theentropyshard.teslauncher.minecraft.data.argument.ArgumentType;
 import me.theentropyshard.teslauncher.minecraft.data.gson.VersionDeserializer;
+import me.theentropyshard.teslauncher.minecraft.mods.ModLoader;
 import me.theentropyshard.teslauncher.minecraft.mods.ModLoaderInfo;
 import me.theentropyshard.teslauncher.minecraft.mods.fabric.FabricMetaAPI;
 import me.theentropyshard.teslauncher.network.HttpRequest;
+import me.theentropyshard.teslauncher.network.MetadataCache;
 import me.theentropyshard.teslauncher.network.download.DownloadList;
+import me.theentropyshard.teslauncher.network.download.DownloadPriority;
 import me.theentropyshard.teslauncher.network.download.HttpDownload;
-import me.theentropyshard.teslauncher.network.progress.ProgressNetworkInterceptor;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
 import me.theentropyshard.teslauncher.utils.*;
 import me.theentropyshard.teslauncher.utils.json.Json;
 
 public class MinecraftDownloader {
     private static final Duration MANIFEST_UPDATE_INTERVAL = Duration.ofHours(12);
+    private static final Duration RUNTIMES_UPDATE_INTERVAL = Duration.ofHours(24);
+    // An index id keeps its url until Mojang publishes a new one, which always triggers a refetch
+    private static final Duration ASSET_INDEX_UPDATE_INTERVAL = Duration.ofDays(7);
 
     private final Path versionsDir;
     private final Path assetsDir;
@@ -62,6 +70,8 @@ public class MinecraftDownloader {
     private final Path instanceResourcesDir;
     private final MinecraftDownloadListener minecraftDownloadListener;
     private final boolean downloadJava;
+    private final AssetDeltaPlanner assetDeltaPlanner;
+    private DownloadPriority priority = DownloadPriority.FOREGROUND;
 
     public MinecraftDownloader(Path versionsDir, Path assetsDir, Path librariesDir, Path nativesDir, Path runtimesDir,
                                Path instanceResourcesDir, MinecraftDownloadListener minecraftDownloadListener,
@@ -74,6 +84,13 @@ public class MinecraftDownloader {
         this.instanceResourcesDir = instanceResourcesDir;
         this.minecraftDownloadListener = minecraftDownloadListener;
         this.downloadJava = downloadJava;
+        this.assetDeltaPlanner = new AssetDeltaPlanner(
+            assetsDir.resolve("indexes"), assetsDir.resolve("objects"), TESLauncher.getInstance().getWorkDirLocks()
+        );
+    }
+
+    public void setPriority(DownloadPriority priority) {
+        this.priority = priority;
     }
 
     public Version downloadMinecraft(String versionId, ModLoaderInfo loaderInfo) throws IOException {
@@ -94,119 +111,331 @@ public class MinecraftDownloader {
 
         Log.info("Found Minecraft " + versionId);
 
-        if (TESLauncher.getInstance().getSettings().useDownloadDialog) {
+        Executor executor = TESLauncher.getInstance().getDownloadEngine().getExecutor();
+        InstallProgress progress = new InstallProgress(this.minecraftDownloadListener);
+        this.minecraftDownloadListener.onProgress(0, 0);
+
+        CompletableFuture<Version> versionFuture = MinecraftDownloader.supplyAsync(
+            () -> this.loadVersion(manifestVersion), executor
+        );
+        CompletableFuture<JsonObject> loaderFuture = MinecraftDownloader.supplyAsync(
+            () -> this.fetchLoaderProfile(versionId, loaderInfo), executor
+        );
+        CompletableFuture<Version> fullVersionFuture = versionFuture.thenCombine(loaderFuture, (version, profile) -> {
+            MinecraftDownloader.applyLoaderProfile(version, profile);
+
+            return version;
+        });
+
+        CompletableFuture<Void> clientFuture = versionFuture.thenComposeAsync(version -> {
             Log.info("Downloading client...");
-            this.minecraftDownloadListener.onProgress(0, 0);
-            this.minecraftDownloadListener.onStageChanged("Downloading client");
-            DownloadList clientList = new DownloadList(this.minecraftDownloadListener::onProgress);
-            Version version = this.downloadClient(manifestVersion, clientList, loaderInfo);
-            clientList.downloadAll();
 
+            return this.runStage(progress, "Client", list -> this.addClientDownload(version, list));
+        }, executor);
+
+        CompletableFuture<Void> librariesFuture = fullVersionFuture.thenComposeAsync(version -> {
             Log.info("Downloading libraries...");
-            this.minecraftDownloadListener.onProgress(0, 0);
-            this.minecraftDownloadListener.onStageChanged("Downloading libraries");
-            DownloadList librariesList = new DownloadList(this.minecraftDownloadListener::onProgress);
-            List<Library> nativeLibraries = this.downloadLibraries(version, librariesList);
-            librariesList.downloadAll();
 
-            Log.info("Extracting natives...");
-            this.minecraftDownloadListener.onProgress(0, 0);
-            this.minecraftDownloadListener.onStageChanged("Extracting natives");
-            this.extractNatives(nativeLibraries);
+            return this.runLibrariesStage(progress, version, executor);
+        }, executor);
 
+        CompletableFuture<Void> assetsFuture = versionFuture.thenComposeAsync(version -> {
             Log.info("Downloading assets...");
-            this.minecraftDownloadListener.onProgress(0, 0);
-            this.minecraftDownloadListener.onStageChanged("Downloading assets");
-            DownloadList assetsList = new DownloadList(this.minecraftDownloadListener::onProgress);
-            this.downloadAssets(version, assetsList);
-            assetsList.downloadAll();
 
-            if (this.downloadJava) {
+            return this.runAssetsStage(progress, version);
+        }, executor);
+
+        CompletableFuture<Void> javaFuture;
+        if (this.downloadJava) {
+            javaFuture = versionFuture.thenComposeAsync(version -> {
                 Log.info("Downloading Java...");
-                this.minecraftDownloadListener.onProgress(0, 0);
-                this.minecraftDownloadListener.onStageChanged("Downloading Java");
-                DownloadList javaList = new DownloadList(this.minecraftDownloadListener::onProgress);
-                this.downloadJava(version, javaList);
-                javaList.downloadAll();
-            } else {
-                Log.info("Not downloading Java");
+
+                return this.runStage(progress, "Java", list -> this.downloadJava(version, list));
+            }, executor);
+        } else {
+            Log.info("Not downloading Java");
+            javaFuture = CompletableFuture.completedFuture(null);
+        }
+
+        long start = System.currentTimeMillis();
+        MinecraftDownloader.await(CompletableFuture.allOf(clientFuture, librariesFuture, assetsFuture, javaFuture));
+        Log.debug("Installed Minecraft " + versionId + " in " + (System.currentTimeMillis() - start) + " ms");
+
+        MinecraftDownloader.saveFileIndex();
+
+        this.minecraftDownloadListener.onFinish();
+
+        return fullVersionFuture.join();
+    }
+
+    public Version loadInstalledVersion(String versionId, ModLoaderInfo loaderInfo) throws IOException {
+        Path jsonFile = this.versionsDir.resolve(versionId).resolve(versionId + ".json");
+
+        if (!Files.exists(jsonFile)) {
+            throw new IOException("Minecraft " + versionId + " is not installed");
+        }
+
+        Version version;
+        try (WorkDirLocks.Handle lock = TESLauncher.getInstance().getWorkDirLocks().shared(WorkDirLocks.version(versionId))) {
+            version = Json.parse(FileUtils.readUtf8(jsonFile), Version.class);
+        }
+
+        MinecraftDownloader.applyLoaderProfile(version, this.fetchLoaderProfile(versionId, loaderInfo));
+
+        return version;
+    }
+
+    // Everything downloadMinecraft reads or writes for this version, metadata included, so that a copy of
+    // these files lets it finish without the network
+    public List<Path> getInstalledFiles(Version version, ModLoaderInfo loaderInfo) throws IOException {
+        List<Path> files = new ArrayList<>();
+
+        MinecraftDownloader.addMetadataFile(files, this.versionsDir.resolve("version_manifest_v2.json"));
+
+        Path versionDir = this.versionsDir.resolve(version.getId());
+        files.add(versionDir.resolve(version.getId() + ".json"));
+        files.add(versionDir.resolve(version.getId() + ".jar"));
+
+        if (loaderInfo != null && loaderInfo.getLoader() == ModLoader.FABRIC) {
+            String profileUrl = new FabricMetaAPI().getLauncherProfileUrl(version.getId(), loaderInfo.getVersion());
+            MinecraftDownloader.addMetadataFile(files, TESLauncher.getInstance().getMetadataCache().getFile(profileUrl));
+        }
+
+        for (Library library : version.getLibraries()) {
+            if (!library.applyOnThisPlatform()) {
+                continue;
             }
 
-            this.minecraftDownloadListener.onFinish();
+            Library.DownloadList downloads = library.getDownloads();
 
-            return version;
-        } else {
-            this.minecraftDownloadListener.onProgress(0, 0);
-            DownloadList list = new DownloadList(this.minecraftDownloadListener::onProgress);
+            if (downloads == null) {
+                files.add(this.librariesDir.resolve(MavenArtifact.parse(library.getName()).createPath("jar")));
 
-            Log.info("Downloading client...");
-            Version version = this.downloadClient(manifestVersion, list, loaderInfo);
+                continue;
+            }
 
-            Log.info("Downloading libraries...");
-            List<Library> nativeLibraries = this.downloadLibraries(version, list);
+            if (downloads.getArtifact() != null) {
+                files.add(this.librariesDir.resolve(downloads.getArtifact().getPath()));
+            }
 
-            Log.info("Extracting natives...");
-            this.extractNatives(nativeLibraries);
+            Library.Artifact classifier = this.getClassifier(library);
 
-            Log.info("Downloading assets...");
-            this.downloadAssets(version, list);
+            if (classifier != null) {
+                files.add(this.librariesDir.resolve(classifier.getPath()));
+            }
+        }
 
-            if (this.downloadJava) {
-                Log.info("Downloading Java...");
-                this.downloadJava(version, list);
-            } else {
-                Log.info("Not downloading Java");
+        Version.AssetIndex vAssetIndex = version.getAssetIndex();
+
+        if (vAssetIndex != null) {
+            Path assetsIndexFile = this.assetsDir.resolve("indexes").resolve(vAssetIndex.getId() + ".json");
+            MinecraftDownloader.addMetadataFile(files, assetsIndexFile);
+
+            AssetIndex assetIndex = Json.parse(FileUtils.readUtf8(assetsIndexFile), AssetIndex.class);
+
+            for (Map.Entry<String, AssetObject> entry : assetIndex.getObjects().entrySet()) {
+                AssetObject assetObject = entry.getValue();
+
+                if (assetIndex.isMapToResources()) {
+                    files.add(this.assetsDir.resolve("resources").resolve(entry.getKey()));
+                } else if (assetIndex.isVirtual()) {
+                    files.add(this.assetsDir.resolve("virtual").resolve(vAssetIndex.getId()).resolve(entry.getKey()));
+                } else {
+                    files.add(this.assetsDir.resolve("objects").resolve(assetObject.getPrefix()).resolve(assetObject.getHash()));
+                }
             }
+        }
 
-            list.downloadAll();
+        if (this.downloadJava) {
+            MinecraftDownloader.addMetadataFile(files, this.runtimesDir.resolve("all_runtimes.json"));
 
-            this.minecraftDownloadListener.onFinish();
+            Path componentDir = this.runtimesDir.resolve(MinecraftDownloader.getJavaKey(version));
+            Path componentInfoFile = componentDir.resolve("component.json");
+            files.add(componentInfoFile);
 
-            return version;
+            JavaRuntimeManifest manifest = Json.parse(FileUtils.readUtf8(componentInfoFile), JavaRuntimeManifest.class);
+
+            for (Map.Entry<String, JreFile> entry : manifest.files.entrySet()) {
+                if (entry.getValue().type.equals("file")) {
+                    files.add(componentDir.resolve(entry.getKey()));
+                }
+            }
         }
+
+        return files;
     }
 
-    private static VersionManifest fetchAndSaveVersionManifest(Path manifestFile) throws IOException {
-        try (HttpRequest request = new HttpRequest(TESLauncher.getInstance().getHttpClient())) {
-            String string = request.asString(ApiUrls.VERSION_MANIFEST);
-            FileUtils.writeUtf8(manifestFile, string);
-            return Json.parse(string, VersionManifest.class);
+    private static void addMetadataFile(List<Path> files, Path file) {
+        files.add(file);
+
+        Path validatorsFile = MetadataCache.getValidatorsFile(file);
+        if (Files.exists(validatorsFile)) {
+            files.add(validatorsFile);
         }
     }
 
-    public static VersionManifest getVersionManifest(Path versionsDir) throws IOException {
-        return MinecraftDownloader.getVersionManifest(versionsDir, false);
+    private CompletableFuture<Void> runStage(InstallProgress progress, String stage, ListFiller filler) {
+        progress.stageStarted(stage);
+
+        DownloadList list = new DownloadList(progress.listenerFor(stage));
+        list.setPriority(this.priority);
+
+        try {
+            filler.fill(list);
+        } catch (IOException e) {
+            progress.stageFinished(stage);
+
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return list.downloadAll().whenComplete((result, throwable) -> progress.stageFinished(stage));
     }
 
-    public static VersionManifest getVersionManifest(Path versionsDir, boolean forceNetwork) throws IOException {
-        Path manifestFile = versionsDir.resolve("version_manifest_v2.json");
+    private CompletableFuture<Void> runLibrariesStage(InstallProgress progress, Version version, Executor executor) {
+        progress.stageStarted("Libraries");
 
-        if (forceNetwork) {
-            return MinecraftDownloader.fetchAndSaveVersionManifest(manifestFile);
+        DownloadList list = new DownloadList(progress.listenerFor("Libraries"));
+        list.setPriority(this.priority);
+
+        List<Library> nativeLibraries;
+        try {
+            nativeLibraries = this.downloadLibraries(version, list);
+        } catch (IOException e) {
+            progress.stageFinished("Libraries");
+
+            return CompletableFuture.failedFuture(e);
         }
 
-        if (Files.exists(manifestFile)) {
-            VersionManifest manifest = Json.parse(FileUtils.readUtf8(manifestFile), VersionManifest.class);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(list.downloadAll().thenRun(() -> {
+            // The game cannot start without any one of them, so the install must not look finished
+            if (list.getFailedFiles() > 0) {
+                throw new CompletionException(new IOException(list.getFailedFiles() + " libraries could not be downloaded"));
+            }
+        }));
 
-            BasicFileAttributes basicFileAttributes = Files.readAttributes(manifestFile, BasicFileAttributes.class);
-            OffsetDateTime lastModified = OffsetDateTime.parse(basicFileAttributes.lastModifiedTime().toString());
-            if (OffsetDateTime.now().minus(MinecraftDownloader.MANIFEST_UPDATE_INTERVAL).isAfter(lastModified)) {
+        // Each native jar is extracted as soon as it lands instead of waiting for the whole list.
+        // A jar that failed to download fails its future, so extraction is skipped for it
+        for (Library library : nativeLibraries) {
+            Path file = this.librariesDir.resolve(this.getClassifier(library).getPath());
+
+            futures.add(list.whenDownloaded(file).thenRunAsync(() -> {
                 try {
-                    return MinecraftDownloader.fetchAndSaveVersionManifest(manifestFile);
+                    this.extractNatives(library);
                 } catch (IOException e) {
-                    Log.error("Could not fetch and save version manifest to " + manifestFile, e);
-
-                    return manifest;
+                    throw new CompletionException(e);
                 }
-            } else {
-                return manifest;
+            }, executor));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .whenComplete((result, throwable) -> progress.stageFinished("Libraries"));
+    }
+
+    private CompletableFuture<Void> runAssetsStage(InstallProgress progress, Version version) {
+        progress.stageStarted("Assets");
+
+        DownloadList list = new DownloadList(progress.listenerFor("Assets"));
+        list.setPriority(this.priority);
+
+        VerifiedIndex verifiedIndex;
+        try {
+            verifiedIndex = this.downloadAssets(version, list);
+        } catch (IOException e) {
+            progress.stageFinished("Assets");
+
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return list.downloadAll().thenRun(() -> {
+            // Only a complete set of objects may serve as the base of later deltas
+            if (verifiedIndex == null || list.getFailedFiles() > 0) {
+                return;
+            }
+
+            try {
+                this.assetDeltaPlanner.markVerified(verifiedIndex.id, verifiedIndex.key, verifiedIndex.sha1);
+            } catch (IOException e) {
+                Log.warn("Could not record verified asset index " + verifiedIndex.id + ": " + e.getMessage());
             }
+        }).whenComplete((result, throwable) -> progress.stageFinished("Assets"));
+    }
+
+    private static final class VerifiedIndex {
+        private final String id;
+        private final String key;
+        private final String sha1;
+
+        private VerifiedIndex(String id, String key, String sha1) {
+            this.id = id;
+            this.key = key;
+            this.sha1 = sha1;
+        }
+    }
+
+    private static <T> CompletableFuture<T> supplyAsync(IOSupplier<T> supplier, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return supplier.get();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private static void await(CompletableFuture<?> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    private interface ListFiller {
+        void fill(DownloadList list) throws IOException;
+    }
+
+    private static void saveFileIndex() {
+        try {
+            TESLauncher.getInstance().getFileIndex().save();
+        } catch (IOException e) {
+            Log.error("Could not save file index", e);
+        }
+    }
+
+    public static VersionManifest getVersionManifest(Path versionsDir) throws IOException {
+        return MinecraftDownloader.getVersionManifest(versionsDir, false);
+    }
+
+    public static VersionManifest getVersionManifest(Path versionsDir, boolean forceNetwork) throws IOException {
+        Path manifestFile = versionsDir.resolve("version_manifest_v2.json");
+        MetadataCache cache = TESLauncher.getInstance().getMetadataCache();
+
+        String string;
+        if (forceNetwork) {
+            string = cache.fetch(ApiUrls.VERSION_MANIFEST, manifestFile);
         } else {
-            return MinecraftDownloader.fetchAndSaveVersionManifest(manifestFile);
+            string = cache.get(ApiUrls.VERSION_MANIFEST, manifestFile, MinecraftDownloader.MANIFEST_UPDATE_INTERVAL);
         }
+
+        return Json.parse(string, VersionManifest.class);
     }
 
-    private static String getJavaKey(Version version) {
+    public static String getJavaKey(Version version) {
         String javaKey;
         Version.JavaVersion javaVersion = version.getJavaVersion();
         if (javaVersion == null) {
@@ -245,32 +474,36 @@ public class MinecraftDownloader {
         }
     }
 
-    private Version downloadClient(VersionManifest.Version manifestVersion, DownloadList clientList, ModLoaderInfo loaderInfo) throws IOException {
-        Version version;
-
+    private Version loadVersion(VersionManifest.Version manifestVersion) throws IOException {
         Path jsonFile = this.versionsDir.resolve(manifestVersion.getId()).resolve(manifestVersion.getId() + ".json");
+        WorkDirLocks locks = TESLauncher.getInstance().getWorkDirLocks();
+        String lockKey = WorkDirLocks.version(manifestVersion.getId());
+
         if (!Files.exists(jsonFile)) {
-            this.saveClientJson(manifestVersion, jsonFile);
+            try (WorkDirLocks.Handle lock = locks.exclusive(lockKey)) {
+                // Another launcher process may have saved it while this one waited
+                if (!Files.exists(jsonFile)) {
+                    this.saveClientJson(manifestVersion, jsonFile);
+                }
+            }
         }
 
-        version = Json.parse(FileUtils.readUtf8(jsonFile), Version.class);
+        try (WorkDirLocks.Handle lock = locks.shared(lockKey)) {
+            return Json.parse(FileUtils.readUtf8(jsonFile), Version.class);
+        }
+    }
 
+    private void addClientDownload(Version version, DownloadList clientList) throws IOException {
         Version.Download client = version.getDownloads().get(DownloadType.CLIENT);
 
         Path jarFile = this.versionsDir.resolve(version.getId()).resolve(version.getId() + ".jar");
 
         if (Files.exists(jarFile) && Files.size(jarFile) == client.getSize()) {
-            return version;
+            return;
         }
 
-        OkHttpClient httpClient = TESLauncher.getInstance().getHttpClient().newBuilder()
-            .addNetworkInterceptor(new ProgressNetworkInterceptor((contentLength, bytesRead, bytesThisTime, done) -> {
-                this.minecraftDownloadListener.onProgress(contentLength, bytesRead);
-            }))
-            .build();
-
         HttpDownload download = new HttpDownload.Builder()
-            .httpClient(httpClient)
+            .httpClient(TESLauncher.getInstance().getHttpClient())
             .url(client.getUrl())
             .expectedSize(client.getSize())
             .sha1(client.getSha1())
@@ -278,23 +511,33 @@ public class MinecraftDownloader {
             .build();
 
         clientList.add(download);
+    }
 
-        if (loaderInfo != null) {
-            switch (loaderInfo.getLoader()) {
-                case FABRIC -> {
-                    JsonObject fabricVersion = new FabricMetaAPI().getLauncherProfile(version.getId(), loaderInfo.getVersion());
-
-                    version.setMainClass(fabricVersion.get("mainClass").getAsString());
-                    Arrays.asList(Json.parse(fabricVersion.get("libraries"), Library[].class)).forEach(version::addLibrary);
-                    JsonObject args = Json.parse(fabricVersion.get("arguments"), JsonObject.class);
-                    version.getArguments().get(ArgumentType.JVM).addAll(VersionDeserializer.processArgs(
-                        args.get("jvm").getAsJsonArray(), Json::parse
-                    ));
-                }
+    private JsonObject fetchLoaderProfile(String versionId, ModLoaderInfo loaderInfo) throws IOException {
+        if (loaderInfo == null) {
+            return null;
+        }
+
+        switch (loaderInfo.getLoader()) {
+            case FABRIC -> {
+                return new FabricMetaAPI().getLauncherProfile(versionId, loaderInfo.getVersion());
             }
         }
 
-        return version;
+        return null;
+    }
+
+    private static void applyLoaderProfile(Version version, JsonObject profile) {
+        if (profile == null) {
+            return;
+        }
+
+        version.setMainClass(profile.get("mainClass").getAsString());
+        Arrays.asList(Json.parse(profile.get("libraries"), Library[].class)).forEach(version::addLibrary);
+        JsonObject args = Json.parse(profile.get("arguments"), JsonObject.class);
+        version.getArguments().get(ArgumentType.JVM).addAll(VersionDeserializer.processArgs(
+            args.get("jvm").getAsJsonArray(), Json::parse
+        ));
     }
 
     public static String getMcName() {
@@ -411,21 +654,31 @@ public class MinecraftDownloader {
         return nativeLibraries;
     }
 
-    private void downloadAssets(Version version, DownloadList assetsList) throws IOException {
+    private VerifiedIndex downloadAssets(Version version, DownloadList assetsList) throws IOException {
         Version.AssetIndex vAssetIndex = version.getAssetIndex();
 
         if (vAssetIndex == null) {
-            return;
+            return null;
         }
 
         Path assetsIndexFile = this.assetsDir.resolve("indexes").resolve(vAssetIndex.getId() + ".json");
-        if (!Files.exists(assetsIndexFile)) {
-            try (HttpRequest request = new HttpRequest(TESLauncher.getInstance().getHttpClient())) {
-                FileUtils.writeUtf8(assetsIndexFile, request.asString(vAssetIndex.getUrl()));
-            }
-        }
+        String assetIndexJson = TESLauncher.getInstance().getMetadataCache().get(
+            vAssetIndex.getUrl(), assetsIndexFile, MinecraftDownloader.ASSET_INDEX_UPDATE_INTERVAL
+        );
+
+        AssetIndex assetIndex = Json.parse(assetIndexJson, AssetIndex.class);
+
+        FileIndex fileIndex = TESLauncher.getInstance().getFileIndex();
+
+        if (!assetIndex.isMapToResources() && !assetIndex.isVirtual()) {
+            String sha1 = fileIndex.sha1(assetsIndexFile);
+            String key = AssetDeltaPlanner.key(vAssetIndex.getId(), sha1);
 
-        AssetIndex assetIndex = Json.parse(FileUtils.readUtf8(assetsIndexFile), AssetIndex.class);
+            Collection<AssetObject> objects = this.assetDeltaPlanner.select(vAssetIndex.getId(), key, assetIndex);
+            this.addMissingObjects(objects, fileIndex, assetsList);
+
+            return new VerifiedIndex(vAssetIndex.getId(), key, sha1);
+        }
 
         for (Map.Entry<String, AssetObject> entry : assetIndex.getObjects().entrySet()) {
             String fileName = entry.getKey();
@@ -446,12 +699,10 @@ public class MinecraftDownloader {
                 Path resourcesFile = this.assetsDir.resolve("resources").resolve(fileName);
 
                 if (!Files.exists(saveAs)) {
-                    if (Files.exists(resourcesFile) &&
-                        Files.size(resourcesFile) == assetObject.getSize() &&
-                        HashUtils.sha1(resourcesFile).equals(assetObject.getHash())) {
+                    if (fileIndex.matches(resourcesFile, assetObject.getSize(), assetObject.getHash())) {
 
                         FileUtils.createDirectoryIfNotExists(saveAs.getParent());
-                        Files.copy(resourcesFile, saveAs, StandardCopyOption.REPLACE_EXISTING);
+                        ObjectStore.copy(resourcesFile, saveAs);
 
                         continue;
                     } else {
@@ -459,17 +710,15 @@ public class MinecraftDownloader {
                         saveAs = resourcesFile;
                     }
                 } else {
-                    if (Files.size(saveAs) == assetObject.getSize() && HashUtils.sha1(saveAs).equals(assetObject.getHash())) {
+                    if (fileIndex.matches(saveAs, assetObject.getSize(), assetObject.getHash())) {
                         continue;
                     } else {
                         copyTo = saveAs;
                         saveAs = resourcesFile;
                     }
                 }
-            } else if (assetIndex.isVirtual()) {
-                saveAs = this.assetsDir.resolve("virtual").resolve(vAssetIndex.getId()).resolve(fileName);
             } else {
-                saveAs = this.assetsDir.resolve("objects").resolve(assetObject.getPrefix()).resolve(assetObject.getHash());
+                saveAs = this.assetsDir.resolve("virtual").resolve(vAssetIndex.getId()).resolve(fileName);
             }
 
             FileUtils.createDirectoryIfNotExists(saveAs.getParent());
@@ -480,6 +729,31 @@ public class MinecraftDownloader {
             }
             assetsList.add(builder.build());
         }
+
+        return null;
+    }
+
+    private void addMissingObjects(Collection<AssetObject> objects, FileIndex fileIndex, DownloadList assetsList) throws IOException {
+        AssetPlanner planner = new AssetPlanner(this.assetsDir.resolve("objects"));
+        Executor executor = TESLauncher.getInstance().getDownloadEngine().getExecutor();
+
+        long start = System.currentTimeMillis();
+        List<AssetObject> missing = planner.plan(objects, fileIndex, executor);
+        Log.info("Planned assets in " + (System.currentTimeMillis() - start) + " ms: " + planner.getPresent() +
+            " present, " + missing.size() + " to download");
+
+        for (AssetObject assetObject : missing) {
+            Path saveAs = planner.getPath(assetObject);
+            planner.ensureDirectory(saveAs.getParent());
+
+            assetsList.add(new HttpDownload.Builder()
+                .httpClient(TESLauncher.getInstance().getHttpClient())
+                .url(ApiUrls.RESOURCES + assetObject.getPrefix() + "/" + assetObject.getHash())
+                .expectedSize(assetObject.getSize())
+                .sha1(assetObject.getHash())
+                .saveAs(saveAs)
+                .build());
+        }
     }
 
     private boolean excludeFromExtract(Library library, String fileName) {
@@ -496,62 +770,37 @@ public class MinecraftDownloader {
         return false;
     }
 
-    private void extractNatives(List<Library> nativeLibraries) throws IOException {
-        for (Library library : nativeLibraries) {
-            Library.Artifact classifier = this.getClassifier(library);
-            if (classifier == null) {
-                continue;
-            }
+    private void extractNatives(Library library) throws IOException {
+        Library.Artifact classifier = this.getClassifier(library);
+        if (classifier == null) {
+            return;
+        }
 
-            String extractPath = this.nativesDir.normalize().toAbsolutePath().toString();
-            Path path = this.librariesDir.resolve(classifier.getPath()).toAbsolutePath();
+        String extractPath = this.nativesDir.normalize().toAbsolutePath().toString();
+        Path path = this.librariesDir.resolve(classifier.getPath()).toAbsolutePath();
 
-            try (ZipFile zipFile = new ZipFile(path.toFile())) {
-                List<FileHeader> fileHeaders = zipFile.getFileHeaders();
-                for (FileHeader fileHeader : fileHeaders) {
-                    if (this.excludeFromExtract(library, fileHeader.getFileName())) {
-                        continue;
-                    }
-
-                    if (Files.exists(this.nativesDir.resolve(fileHeader.getFileName()))) {
-                        continue;
-                    }
-
-                    zipFile.extractFile(fileHeader, extractPath);
+        try (ZipFile zipFile = new ZipFile(path.toFile())) {
+            List<FileHeader> fileHeaders = zipFile.getFileHeaders();
+            for (FileHeader fileHeader : fileHeaders) {
+                if (this.excludeFromExtract(library, fileHeader.getFileName())) {
+                    continue;
                 }
-            }
-        }
-    }
 
-    private static JsonObject fetchAndSaveAllRuntimes(Path runtimesFile) throws IOException {
-        try (HttpRequest request = new HttpRequest(TESLauncher.getInstance().getHttpClient())) {
-            String string = request.asString(ApiUrls.ALL_RUNTIMES);
-            FileUtils.writeUtf8(runtimesFile, string);
+                if (Files.exists(this.nativesDir.resolve(fileHeader.getFileName()))) {
+                    continue;
+                }
 
-            return Json.parse(string, JsonObject.class);
+                zipFile.extractFile(fileHeader, extractPath);
+            }
         }
     }
 
     private static JsonObject getAllRuntimesObject(Path runtimesFile) throws IOException {
-        if (Files.exists(runtimesFile)) {
-            JsonObject jsonObject = Json.parse(FileUtils.readUtf8(runtimesFile), JsonObject.class);
-
-            BasicFileAttributes basicFileAttributes = Files.readAttributes(runtimesFile, BasicFileAttributes.class);
-            String string = basicFileAttributes.lastModifiedTime().toString();
-            if (OffsetDateTime.now().minus(Duration.ofHours(24)).isAfter(OffsetDateTime.parse(string))) {
-                try {
-                    return MinecraftDownloader.fetchAndSaveAllRuntimes(runtimesFile);
-                } catch (IOException e) {
-                    Log.error("Could not fetch and save all runtimes to " + runtimesFile, e);
+        String string = TESLauncher.getInstance().getMetadataCache().get(
+            ApiUrls.ALL_RUNTIMES, runtimesFile, MinecraftDownloader.RUNTIMES_UPDATE_INTERVAL
+        );
 
-                    return jsonObject;
-                }
-            } else {
-                return jsonObject;
-            }
-        } else {
-            return MinecraftDownloader.fetchAndSaveAllRuntimes(runtimesFile);
-        }
+        return Json.parse(string, JsonObject.class);
     }
 
     public void downloadRuntime(String componentName, DownloadList javaList) throws IOException {
@@ -579,6 +828,8 @@ public class MinecraftDownloader {
                     }
                 }
 
+                boolean useLzma = TESLauncher.getInstance().getDownloadEngine().isLzmaEnabled();
+
                 for (Map.Entry<String, JreFile> entry : manifest.files.entrySet()) {
                     JreFile jreFile = entry.getValue();
                     Path savePath = componentDir.resolve(entry.getKey());
@@ -586,19 +837,22 @@ public class MinecraftDownloader {
                     if (jreFile.type.equals("directory")) {
                         FileUtils.createDirectoryIfNotExists(savePath);
                     } else if (jreFile.type.equals("file")) {
-                        // TODO: there is also 'lzma' available. maybe use it and decompress?
                         JreFile.Download raw = jreFile.downloads.get("raw");
+                        JreFile.Download lzma = jreFile.downloads.get("lzma");
 
-                        HttpDownload download = new HttpDownload.Builder()
+                        HttpDownload.Builder builder = new HttpDownload.Builder()
                             .httpClient(TESLauncher.getInstance().getHttpClient())
                             .url(raw.url)
                             .expectedSize(raw.size)
                             .sha1(raw.sha1)
                             .executable(jreFile.executable)
-                            .saveAs(savePath)
-                            .build();
+                            .saveAs(savePath);
+
+                        if (useLzma && lzma != null) {
+                            builder.lzma(lzma.url, lzma.size);
+                        }
 
-                        javaList.add(download);
+                        javaList.add(builder.build());
                     }
                 }
             } else {
@@ -0,0 +1,166 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.minecraft.download;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import javax.swing.SwingUtilities;
+
+import me.theentropyshard.teslauncher.TESLauncher;
+import me.theentropyshard.teslauncher.gui.utils.MessageBox;
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.minecraft.MinecraftInstance;
+import me.theentropyshard.teslauncher.minecraft.data.VersionManifest;
+import me.theentropyshard.teslauncher.minecraft.data.VersionType;
+import me.theentropyshard.teslauncher.minecraft.mods.ModLoader;
+import me.theentropyshard.teslauncher.network.download.DownloadPriority;
+import me.theentropyshard.teslauncher.utils.ListUtils;
+
+public class VersionPrefetcher {
+    private final Set<String> failed;
+
+    public VersionPrefetcher() {
+        this.failed = new HashSet<>();
+    }
+
+    public void run() {
+        TESLauncher launcher = TESLauncher.getInstance();
+
+        if (!launcher.getSettings().prefetchLatestVersions || launcher.isBusy()) {
+            return;
+        }
+
+        boolean optedIn = false;
+        for (MinecraftInstance instance : launcher.getInstanceManager().getInstances()) {
+            optedIn |= instance.isAutoUpdateToLatest();
+        }
+
+        if (!optedIn) {
+            return;
+        }
+
+        VersionManifest manifest;
+        try {
+            // Refreshes the manifest once it is older than its update interval
+            manifest = MinecraftDownloader.getVersionManifest(launcher.getVersionsDir());
+        } catch (IOException e) {
+            Log.warn("Could not refresh version manifest for prefetching: " + e.getMessage());
+
+            return;
+        }
+
+        for (MinecraftInstance instance : launcher.getInstanceManager().getInstances()) {
+            if (!instance.isAutoUpdateToLatest() || instance.isRunning()) {
+                continue;
+            }
+
+            // Mods are built against one version, moving a modded instance would break it
+            if (instance.getModLoader() != null && instance.getModLoader() != ModLoader.NONE) {
+                continue;
+            }
+
+            String latest = VersionPrefetcher.getLatest(manifest, instance.getMinecraftVersion());
+
+            if (latest == null || latest.equals(instance.getMinecraftVersion()) || this.failed.contains(latest)) {
+                continue;
+            }
+
+            if (launcher.isBusy()) {
+                return;
+            }
+
+            try {
+                this.prefetch(instance, latest);
+            } catch (IOException e) {
+                Log.warn("Could not prefetch Minecraft " + latest + ": " + e.getMessage());
+                this.failed.add(latest);
+
+                continue;
+            }
+
+            // The user may have launched it or changed their mind in the meantime
+            if (!instance.isAutoUpdateToLatest() || instance.isRunning()) {
+                continue;
+            }
+
+            String previous = instance.getMinecraftVersion();
+            Log.info("Updating instance '" + instance.getName() + "' from " + previous + " to " + latest);
+            VersionPrefetcher.notifyUpdate(instance, previous, latest);
+            instance.setMinecraftVersion(latest);
+
+            try {
+                instance.save();
+            } catch (IOException e) {
+                Log.error("Could not save instance '" + instance.getName() + "'", e);
+            }
+        }
+    }
+
+    private void prefetch(MinecraftInstance instance, String versionId) throws IOException {
+        TESLauncher launcher = TESLauncher.getInstance();
+        Path versionsDir = launcher.getVersionsDir();
+
+        String javaPath = instance.getJavaPath();
+
+        MinecraftDownloader downloader = new MinecraftDownloader(
+            versionsDir,
+            launcher.getAssetsDir(),
+            launcher.getLibrariesDir(),
+            versionsDir.resolve(versionId).resolve("natives"),
+            launcher.getRuntimesDir(),
+            instance.getMinecraftDir().resolve("resources"),
+            MinecraftDownloadListener.NONE,
+            javaPath == null || javaPath.isEmpty()
+        );
+
+        // Throttled by the background speed limit and held while a game is running
+        downloader.setPriority(DownloadPriority.BACKGROUND);
+
+        Log.info("Prefetching Minecraft " + versionId + " for instance '" + instance.getName() + "'");
+
+        if (downloader.downloadMinecraft(versionId, null) == null) {
+            throw new IOException("Minecraft " + versionId + " is not in the manifest");
+        }
+    }
+
+    // Worlds are converted on the first launch with the new version, this is the user's chance to go back before that
+    private static void notifyUpdate(MinecraftInstance instance, String previous, String latest) {
+        if (TESLauncher.frame == null) {
+            return;
+        }
+
+        String message = "Instance '" + instance.getName() + "' is set to update automatically and now uses Minecraft " +
+            latest + " instead of " + previous + ".\nWorlds are converted when they are opened with the new version. " +
+            "To stay on " + previous + ", select it again in the instance settings before playing.";
+
+        SwingUtilities.invokeLater(() -> MessageBox.showPlainMessage(TESLauncher.frame, "Instance updated", message));
+    }
+
+    private static String getLatest(VersionManifest manifest, String currentId) {
+        VersionManifest.Version current = ListUtils.search(manifest.getVersions(), v -> v.getId().equals(currentId));
+
+        if (current != null && current.getType() == VersionType.SNAPSHOT) {
+            return manifest.getLatest().getSnapshot();
+        }
+
+        return manifest.getLatest().getRelease();
+    }
+}
@@ -19,12 +19,9 @@
 package me.theentropyshard.teslauncher.minecraft.mods.fabric;
 
 import com.google.gson.JsonObject;
-import okhttp3.HttpUrl;
-import okhttp3.Request;
-import okhttp3.Response;
 
 import java.io.IOException;
-import java.util.Objects;
+import java.time.Duration;
 
 import me.theentropyshard.teslauncher.TESLauncher;
 import me.theentropyshard.teslauncher.utils.json.Json;
@@ -32,6 +29,8 @@ import me.theentropyshard.teslauncher.utils.json.Json;
 public class FabricMetaAPI {
     public static final String OFFICIAL_FABRIC_URL = "https://meta.fabricmc.net/";
 
+    private static final Duration PROFILE_MAX_AGE = Duration.ofDays(1);
+
     private final String url;
 
     public FabricMetaAPI() {
@@ -43,12 +42,13 @@ public class FabricMetaAPI {
     }
 
     public JsonObject getLauncherProfile(String minecraftVersion, String loaderVersion) throws IOException {
-        Request request = new Request.Builder()
-            .url(HttpUrl.get(this.url + "v2/versions/loader/" + minecraftVersion + "/" + loaderVersion + "/profile/json"))
-            .build();
+        String profileUrl = this.getLauncherProfileUrl(minecraftVersion, loaderVersion);
+        String json = TESLauncher.getInstance().getMetadataCache().get(profileUrl, FabricMetaAPI.PROFILE_MAX_AGE);
+
+        return Json.parse(json, JsonObject.class);
+    }
 
-        try (Response response = TESLauncher.getInstance().getHttpClient().newCall(request).execute()) {
-            return Json.parse(Objects.requireNonNull(response.body()).string(), JsonObject.class);
-        }
+    public String getLauncherProfileUrl(String minecraftVersion, String loaderVersion) {
+        return this.url + "v2/versions/loader/" + minecraftVersion + "/" + loaderVersion + "/profile/json";
     }
 }
@@ -0,0 +1,125 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network;
+
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.network.mirror.MirrorInterceptor;
+import me.theentropyshard.teslauncher.network.mirror.MirrorRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class HttpTransport {
+    private static final long KEEP_ALIVE_MINUTES = 5L;
+
+    private final Settings settings;
+    private final OkHttpClient baseClient;
+    private final MirrorRegistry mirrors;
+    private final Set<String> http1Hosts;
+    private final Map<String, Protocol> negotiatedProtocols;
+
+    public HttpTransport(Settings settings, String userAgent) {
+        this.settings = settings;
+        this.http1Hosts = ConcurrentHashMap.newKeySet();
+        this.negotiatedProtocols = new ConcurrentHashMap<>();
+        this.mirrors = new MirrorRegistry(settings.mirrors);
+
+        if (settings.http1OnlyHosts != null) {
+            this.http1Hosts.addAll(settings.http1OnlyHosts);
+        }
+
+        // Per-host concurrency is bounded by ConcurrencyLimitInterceptor, the dispatcher's limits only apply to enqueued calls
+        int maxPerHost = Math.max(1, settings.maxDownloadConnections);
+
+        // All clients derived from this transport share one pool, so HTTP/2 connections
+        // and idle HTTP/1.1 keep-alive connections are reused across the launcher
+        this.baseClient = new OkHttpClient.Builder()
+            .addNetworkInterceptor(new UserAgentInterceptor(userAgent))
+            .connectTimeout(30, TimeUnit.SECONDS)
+            .readTimeout(5, TimeUnit.MINUTES)
+            .writeTimeout(5, TimeUnit.MINUTES)
+            .connectionPool(new ConnectionPool(maxPerHost, HttpTransport.KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .build();
+    }
+
+    public OkHttpClient newClient() {
+        return this.newClient(builder -> {});
+    }
+
+    public OkHttpClient newClient(Consumer<OkHttpClient.Builder> customizer) {
+        OkHttpClient.Builder http1Builder = this.baseClient.newBuilder()
+            .addInterceptor(new MirrorInterceptor(this.mirrors))
+            .protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        customizer.accept(http1Builder);
+        OkHttpClient http1Client = http1Builder.build();
+
+        if (!this.settings.useHttp2) {
+            return http1Client;
+        }
+
+        ProtocolFallbackInterceptor fallback = new ProtocolFallbackInterceptor(this, http1Client);
+
+        OkHttpClient.Builder builder = this.baseClient.newBuilder()
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .addInterceptor(new MirrorInterceptor(this.mirrors))
+            .addInterceptor(fallback)
+            .eventListener(fallback.newCancelListener())
+            .addNetworkInterceptor(chain -> {
+                this.recordProtocol(chain.request().url().host(), chain.connection().protocol());
+
+                return chain.proceed(chain.request());
+            });
+        customizer.accept(builder);
+
+        return builder.build();
+    }
+
+    private void recordProtocol(String host, Protocol protocol) {
+        if (protocol != null && this.negotiatedProtocols.put(host, protocol) != protocol) {
+            Log.debug("Using " + protocol + " for " + host);
+        }
+    }
+
+    public boolean isHttp1Only(String host) {
+        return this.http1Hosts.contains(host);
+    }
+
+    public void fallBackToHttp1(String host, Throwable cause) {
+        if (this.http1Hosts.add(host)) {
+            Log.warn("Falling back to HTTP/1.1 for " + host + ": " + cause);
+        }
+    }
+
+    public MirrorRegistry getMirrors() {
+        return this.mirrors;
+    }
+
+    public Protocol getNegotiatedProtocol(String host) {
+        return this.negotiatedProtocols.get(host);
+    }
+}
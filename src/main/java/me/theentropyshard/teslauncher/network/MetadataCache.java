@@ -0,0 +1,192 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network;
+
+import com.google.gson.JsonParseException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import me.theentropyshard.teslauncher.utils.json.Json;
+
+public class MetadataCache {
+    private static final String VALIDATORS_SUFFIX = ".validators";
+
+    private final OkHttpClient httpClient;
+    private final Path dir;
+    private final WorkDirLocks locks;
+
+    public MetadataCache(OkHttpClient httpClient, Path dir, WorkDirLocks locks) {
+        this.httpClient = httpClient;
+        this.dir = dir;
+        this.locks = locks;
+    }
+
+    // For documents without a natural place on disk, cached under a name derived from the url
+    public String get(String url, Duration maxAge) throws IOException {
+        return this.get(url, this.getFile(url), maxAge);
+    }
+
+    public Path getFile(String url) throws IOException {
+        String key = HashUtils.toHex(HashUtils.newDigest("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8)));
+
+        return this.dir.resolve(key + ".json");
+    }
+
+    // Returns the local copy while it is younger than maxAge, revalidates it otherwise,
+    // and falls back to it when the server cannot be reached
+    public String get(String url, Path file, Duration maxAge) throws IOException {
+        // Documents are replaced atomically, so a fresh copy can be read without taking the lock
+        if (MetadataCache.isFresh(url, file, maxAge)) {
+            return FileUtils.readUtf8(file);
+        }
+
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocks.file(file))) {
+            // Another launcher process sharing the work dir may have revalidated it while this one waited
+            if (MetadataCache.isFresh(url, file, maxAge)) {
+                return FileUtils.readUtf8(file);
+            }
+
+            try {
+                return this.revalidate(url, file);
+            } catch (IOException e) {
+                if (!Files.exists(file)) {
+                    throw e;
+                }
+
+                Log.error("Could not revalidate " + url + ", using the cached copy", e);
+
+                return FileUtils.readUtf8(file);
+            }
+        }
+    }
+
+    private static boolean isFresh(String url, Path file, Duration maxAge) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        Validators validators = MetadataCache.readValidators(file);
+        boolean sameUrl = validators == null || url.equals(validators.url);
+        Instant lastModified = Files.getLastModifiedTime(file).toInstant();
+
+        return sameUrl && Instant.now().minus(maxAge).isBefore(lastModified);
+    }
+
+    // Always asks the server, but still only transfers the document if it has changed
+    public String fetch(String url, Path file) throws IOException {
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocks.file(file))) {
+            return this.revalidate(url, file);
+        }
+    }
+
+    private String revalidate(String url, Path file) throws IOException {
+        Validators validators = Files.exists(file) ? MetadataCache.readValidators(file) : null;
+
+        Request.Builder builder = new Request.Builder().url(url);
+
+        if (validators != null && url.equals(validators.url)) {
+            if (validators.etag != null) {
+                builder.header("If-None-Match", validators.etag);
+            }
+
+            if (validators.lastModified != null) {
+                builder.header("If-Modified-Since", validators.lastModified);
+            }
+        }
+
+        try (Response response = this.httpClient.newCall(builder.build()).execute()) {
+            if (response.code() == 304) {
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+
+                return FileUtils.readUtf8(file);
+            }
+
+            if (!response.isSuccessful()) {
+                throw new IOException("Unexpected response " + response.code() + " for " + url);
+            }
+
+            String body = Objects.requireNonNull(response.body()).string();
+
+            Validators fresh = new Validators();
+            fresh.url = url;
+            fresh.etag = response.header("ETag");
+            fresh.lastModified = response.header("Last-Modified");
+
+            MetadataCache.writeAtomically(file, body);
+            MetadataCache.writeAtomically(MetadataCache.getValidatorsFile(file), Json.write(fresh));
+
+            return body;
+        }
+    }
+
+    private static Validators readValidators(Path file) {
+        Path validatorsFile = MetadataCache.getValidatorsFile(file);
+
+        if (!Files.exists(validatorsFile)) {
+            return null;
+        }
+
+        try {
+            return Json.parse(FileUtils.readUtf8(validatorsFile), Validators.class);
+        } catch (IOException | JsonParseException e) {
+            Log.warn("Ignoring unreadable validators " + validatorsFile + ": " + e.getMessage());
+
+            return null;
+        }
+    }
+
+    public static Path getValidatorsFile(Path file) {
+        return file.resolveSibling(file.getFileName() + MetadataCache.VALIDATORS_SUFFIX);
+    }
+
+    // Readers on other threads must never see a half-written document
+    private static void writeAtomically(Path file, String content) throws IOException {
+        FileUtils.createDirectoryIfNotExists(file.getParent());
+
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+        try {
+            FileUtils.writeUtf8(temp, content);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static final class Validators {
+        private String url;
+        private String etag;
+        private String lastModified;
+    }
+}
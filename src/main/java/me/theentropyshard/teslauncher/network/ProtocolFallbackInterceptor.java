@@ -0,0 +1,114 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.http2.ErrorCode;
+import okhttp3.internal.http2.StreamResetException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public class ProtocolFallbackInterceptor implements Interceptor {
+    private final HttpTransport transport;
+    private final OkHttpClient http1Client;
+
+    // Calls made on the HTTP/1.1 client on behalf of an outer call, kept until the outer call is collected
+    private final Map<Call, Call> delegates;
+
+    public ProtocolFallbackInterceptor(HttpTransport transport, OkHttpClient http1Client) {
+        this.transport = transport;
+        this.http1Client = http1Client;
+        this.delegates = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    public EventListener newCancelListener() {
+        return new EventListener() {
+            @Override
+            public void canceled(@NotNull Call call) {
+                Call delegate = ProtocolFallbackInterceptor.this.delegates.get(call);
+
+                if (delegate != null) {
+                    delegate.cancel();
+                }
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        String host = request.url().host();
+
+        if (this.transport.isHttp1Only(host)) {
+            return this.executeHttp1(chain.call(), request);
+        }
+
+        try {
+            return chain.proceed(request);
+        } catch (IOException e) {
+            // Our own cancellations, like a losing hedge, say nothing about the host's HTTP/2 support
+            if (chain.call().isCanceled() || !ProtocolFallbackInterceptor.isHttp2Failure(e) ||
+                this.transport.getNegotiatedProtocol(host) == Protocol.HTTP_1_1) {
+                throw e;
+            }
+
+            this.transport.fallBackToHttp1(host, e);
+
+            // Only requests without a body can be replayed safely
+            if (!"GET".equals(request.method()) && !"HEAD".equals(request.method())) {
+                throw e;
+            }
+
+            return this.executeHttp1(chain.call(), request);
+        }
+    }
+
+    private Response executeHttp1(Call outer, Request request) throws IOException {
+        Call call = this.http1Client.newCall(request);
+        this.delegates.put(outer, call);
+
+        // The outer call may have been cancelled before the delegate was registered
+        if (outer.isCanceled()) {
+            call.cancel();
+        }
+
+        return call.execute();
+    }
+
+    private static boolean isHttp2Failure(IOException e) {
+        if (e instanceof StreamResetException && ((StreamResetException) e).errorCode == ErrorCode.CANCEL) {
+            return false;
+        }
+
+        // StreamResetException and ConnectionShutdownException live in OkHttp's internal http2 package
+        return e instanceof ProtocolException || e.getClass().getName().startsWith("okhttp3.internal.http2.");
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import me.theentropyshard.teslauncher.logging.Log;
+
+import java.io.InterruptedIOException;
+
+public class AdaptiveLimit {
+    public static final int INITIAL_LIMIT = 8;
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    private static final double BACKOFF_RATIO = 0.7D;
+
+    // Requests slower than this many times the baseline latency count as queueing, so the limit stops growing
+    private static final double LATENCY_TOLERANCE = 2.0D;
+
+    // A window whose throughput falls below this fraction of the previous one undoes the last increase
+    private static final double THROUGHPUT_DROP = 0.8D;
+
+    // Lets the latency baseline drift upwards, so one lucky request does not pin it forever
+    private static final double BASELINE_DRIFT = 0.01D;
+
+    private final String host;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double limit;
+    private int inFlight;
+    private double baselineLatency = -1.0D;
+    private long lastDecrease;
+    private long windowStart;
+    private long windowBytes;
+    private double windowLimit;
+    private double lastThroughput;
+
+    public AdaptiveLimit(String host, int minLimit, int maxLimit) {
+        this.host = host;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, AdaptiveLimit.INITIAL_LIMIT));
+        this.windowLimit = this.limit;
+        this.windowStart = System.nanoTime();
+        this.lastDecrease = this.windowStart - AdaptiveLimit.WINDOW_NANOS;
+    }
+
+    public synchronized void acquire() throws InterruptedIOException {
+        while (this.inFlight >= (int) this.limit) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new InterruptedIOException("Interrupted while waiting for a connection to " + this.host);
+            }
+        }
+
+        this.inFlight++;
+    }
+
+    public synchronized void onBytes(long bytes) {
+        this.windowBytes += bytes;
+        this.sampleWindow(System.nanoTime());
+    }
+
+    public synchronized void onSuccess(long latencyNanos) {
+        boolean saturated = this.inFlight >= (int) this.limit;
+        this.release();
+
+        if (this.baselineLatency < 0 || latencyNanos < this.baselineLatency) {
+            this.baselineLatency = latencyNanos;
+        } else {
+            this.baselineLatency += AdaptiveLimit.BASELINE_DRIFT * (latencyNanos - this.baselineLatency);
+        }
+
+        // Only grow while the current limit is actually used and the server is not queueing us
+        if (saturated && latencyNanos <= this.baselineLatency * AdaptiveLimit.LATENCY_TOLERANCE) {
+            this.limit = Math.min(this.maxLimit, this.limit + 1.0D / this.limit);
+        }
+    }
+
+    public synchronized void onFailure() {
+        this.release();
+
+        long now = System.nanoTime();
+
+        // One backoff per window, so a burst of failures from the same congestion event does not collapse the limit
+        if (now - this.lastDecrease < AdaptiveLimit.WINDOW_NANOS) {
+            return;
+        }
+
+        this.lastDecrease = now;
+        this.setLimit(this.limit * AdaptiveLimit.BACKOFF_RATIO, "error or timeout");
+    }
+
+    // Our own cancellations, like a losing hedge, say nothing about the server's capacity
+    public synchronized void onCancel() {
+        this.release();
+    }
+
+    private void release() {
+        this.inFlight--;
+        this.notifyAll();
+    }
+
+    private void sampleWindow(long now) {
+        long elapsed = now - this.windowStart;
+
+        if (elapsed < AdaptiveLimit.WINDOW_NANOS) {
+            return;
+        }
+
+        double throughput = this.windowBytes * 1_000_000_000.0D / elapsed;
+
+        if (this.limit > this.windowLimit && throughput < this.lastThroughput * AdaptiveLimit.THROUGHPUT_DROP) {
+            this.setLimit(this.windowLimit, "throughput dropped");
+        }
+
+        this.lastThroughput = throughput;
+        this.windowLimit = this.limit;
+        this.windowStart = now;
+        this.windowBytes = 0;
+    }
+
+    private void setLimit(double newLimit, String reason) {
+        int before = (int) this.limit;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+
+        if ((int) this.limit != before) {
+            Log.debug("Concurrency for " + this.host + ": " + before + " -> " + (int) this.limit + " (" + reason + ")");
+        }
+
+        this.notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    public String getHost() {
+        return this.host;
+    }
+}
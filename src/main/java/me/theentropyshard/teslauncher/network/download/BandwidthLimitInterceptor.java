@@ -0,0 +1,108 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+public class BandwidthLimitInterceptor implements Interceptor {
+    private final BandwidthLimiter limiter;
+
+    public BandwidthLimitInterceptor(BandwidthLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        DownloadPriority priority = chain.request().tag(DownloadPriority.class);
+        if (priority == null) {
+            priority = DownloadPriority.FOREGROUND;
+        }
+
+        @SuppressWarnings("resource")
+        Response response = chain.proceed(chain.request());
+
+        if (response.body() == null) {
+            return response;
+        }
+
+        // Wrapped even when unlimited, the limits can be changed while the body is being read
+        return response.newBuilder()
+            .body(new ThrottledResponseBody(response.body(), this.limiter, priority))
+            .build();
+    }
+
+    private static final class ThrottledResponseBody extends ResponseBody {
+        private final ResponseBody responseBody;
+        private final BandwidthLimiter limiter;
+        private final DownloadPriority priority;
+
+        private BufferedSource bufferedSource;
+
+        public ThrottledResponseBody(ResponseBody responseBody, BandwidthLimiter limiter, DownloadPriority priority) {
+            this.responseBody = responseBody;
+            this.limiter = limiter;
+            this.priority = priority;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return this.responseBody.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return this.responseBody.contentLength();
+        }
+
+        @NotNull
+        @Override
+        public BufferedSource source() {
+            if (this.bufferedSource == null) {
+                this.bufferedSource = Okio.buffer(new ForwardingSource(this.responseBody.source()) {
+                    @Override
+                    public long read(@NotNull Buffer sink, long byteCount) throws IOException {
+                        BandwidthLimiter limiter = ThrottledResponseBody.this.limiter;
+                        DownloadPriority priority = ThrottledResponseBody.this.priority;
+
+                        long bytesRead = super.read(sink, limiter.maxRead(priority, byteCount));
+
+                        if (bytesRead > 0) {
+                            limiter.consume(priority, bytesRead);
+                        }
+
+                        return bytesRead;
+                    }
+                });
+            }
+
+            return this.bufferedSource;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import me.theentropyshard.teslauncher.Settings;
+
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class BandwidthLimiter {
+    private static final long CHUNK_SIZE = 16L * 1024L;
+    private static final double BURST_SECONDS = 0.25D;
+    private static final long MAX_WAIT_MILLIS = 100L;
+
+    private final Settings settings;
+    private final Bucket global;
+    private final Map<DownloadPriority, Bucket> classes;
+    private final int[] contending;
+
+    public BandwidthLimiter(Settings settings) {
+        this.settings = settings;
+        this.global = new Bucket();
+        this.classes = new EnumMap<>(DownloadPriority.class);
+
+        for (DownloadPriority priority : DownloadPriority.values()) {
+            this.classes.put(priority, new Bucket());
+        }
+
+        this.contending = new int[DownloadPriority.values().length];
+    }
+
+    // Limited reads are cut into small chunks so that the buckets are drained smoothly
+    public long maxRead(DownloadPriority priority, long byteCount) {
+        if (!this.isLimited(priority)) {
+            return byteCount;
+        }
+
+        return Math.min(byteCount, BandwidthLimiter.CHUNK_SIZE);
+    }
+
+    // Unlimited reads, by far the common case, never touch the lock
+    public void consume(DownloadPriority priority, long bytes) throws InterruptedIOException {
+        if (this.isLimited(priority)) {
+            this.consumeLimited(priority, bytes);
+        }
+    }
+
+    private boolean isLimited(DownloadPriority priority) {
+        return this.settings.downloadSpeedLimitKb > 0 || this.getClassLimit(priority) > 0;
+    }
+
+    private synchronized void consumeLimited(DownloadPriority priority, long bytes) throws InterruptedIOException {
+        Bucket own = this.classes.get(priority);
+        boolean waitingForGlobal = false;
+
+        try {
+            while (true) {
+                this.refresh(System.nanoTime());
+
+                boolean ownReady = own.hasCredit();
+                boolean globalReady = this.global.hasCredit() && !this.isPreempted(priority);
+
+                if (ownReady && globalReady) {
+                    own.take(bytes);
+                    this.global.take(bytes);
+
+                    return;
+                }
+
+                // Only waiters held back by the shared bucket take precedence over lower classes
+                if (ownReady && !waitingForGlobal) {
+                    this.contending[priority.ordinal()]++;
+                    waitingForGlobal = true;
+                } else if (!ownReady && waitingForGlobal) {
+                    this.stopContending(priority);
+                    waitingForGlobal = false;
+                }
+
+                long waitNanos = ownReady ? this.global.nanosUntilCredit() : own.nanosUntilCredit();
+
+                // Short waits keep preempted classes responsive and pick up limits changed in the settings
+                this.wait(Math.max(1L, Math.min(BandwidthLimiter.MAX_WAIT_MILLIS, waitNanos / 1_000_000L)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+        } finally {
+            if (waitingForGlobal) {
+                this.stopContending(priority);
+            }
+        }
+    }
+
+    // Taking tokens never helps anyone else, only the last waiter of a class leaving lets lower classes go ahead
+    private void stopContending(DownloadPriority priority) {
+        if (--this.contending[priority.ordinal()] == 0) {
+            this.notifyAll();
+        }
+    }
+
+    private boolean isPreempted(DownloadPriority priority) {
+        for (int i = 0; i < priority.ordinal(); i++) {
+            if (this.contending[i] > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void refresh(long now) {
+        this.global.refill(this.settings.downloadSpeedLimitKb * 1024L, now);
+
+        for (Map.Entry<DownloadPriority, Bucket> entry : this.classes.entrySet()) {
+            entry.getValue().refill(this.getClassLimit(entry.getKey()) * 1024L, now);
+        }
+    }
+
+    private long getClassLimit(DownloadPriority priority) {
+        return switch (priority) {
+            case FOREGROUND -> 0;
+            case BACKGROUND -> this.settings.backgroundSpeedLimitKb;
+            case REPAIR -> this.settings.repairSpeedLimitKb;
+        };
+    }
+
+    public synchronized long getRate(DownloadPriority priority) {
+        // Unlimited reads skip the buckets, so a limit switched off may not have reached them yet
+        this.refresh(System.nanoTime());
+
+        long global = this.global.rate;
+        long own = this.classes.get(priority).rate;
+
+        if (global <= 0) {
+            return own;
+        }
+
+        return own <= 0 ? global : Math.min(global, own);
+    }
+
+    private static final class Bucket {
+        private long rate;
+        private double tokens;
+        private long lastRefill;
+
+        public void refill(long rate, long now) {
+            if (rate <= 0) {
+                this.rate = 0;
+                this.tokens = 0;
+            } else {
+                if (this.rate > 0) {
+                    this.tokens += (now - this.lastRefill) * rate / 1_000_000_000.0D;
+                }
+
+                this.rate = rate;
+                this.tokens = Math.min(this.tokens, Math.max(BandwidthLimiter.CHUNK_SIZE, rate * BandwidthLimiter.BURST_SECONDS));
+            }
+
+            this.lastRefill = now;
+        }
+
+        // The balance may go negative after a read, the debt is paid off before the next one
+        public boolean hasCredit() {
+            return this.rate <= 0 || this.tokens >= 0;
+        }
+
+        public void take(long bytes) {
+            if (this.rate > 0) {
+                this.tokens -= bytes;
+            }
+        }
+
+        public long nanosUntilCredit() {
+            if (this.hasCredit()) {
+                return 0;
+            }
+
+            return (long) (-this.tokens * 1_000_000_000.0D / this.rate) + 1;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import me.theentropyshard.teslauncher.logging.Log;
+
+public class CircuitBreaker {
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long BASE_OPEN_MILLIS = 5_000L;
+    private static final long MAX_OPEN_MILLIS = 120_000L;
+
+    // How long other requests wait while the half-open trial request is running
+    private static final long TRIAL_WAIT_MILLIS = 1_000L;
+
+    private final String host;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private long openMillis = CircuitBreaker.BASE_OPEN_MILLIS;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String host) {
+        this.host = host;
+    }
+
+    public synchronized void beforeRequest() throws CircuitOpenException {
+        long now = System.currentTimeMillis();
+
+        if (this.state == State.OPEN) {
+            if (now < this.openUntil) {
+                throw new CircuitOpenException(this.host, this.openUntil - now);
+            }
+
+            this.state = State.HALF_OPEN;
+            this.trialInFlight = false;
+        }
+
+        if (this.state == State.HALF_OPEN) {
+            if (this.trialInFlight) {
+                throw new CircuitOpenException(this.host, CircuitBreaker.TRIAL_WAIT_MILLIS);
+            }
+
+            this.trialInFlight = true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (this.state != State.CLOSED) {
+            Log.info("Circuit for " + this.host + " closed again");
+        }
+
+        this.state = State.CLOSED;
+        this.consecutiveFailures = 0;
+        this.openMillis = CircuitBreaker.BASE_OPEN_MILLIS;
+        this.trialInFlight = false;
+    }
+
+    // A cancelled request neither proves nor disproves the host is healthy, it only frees the trial slot
+    public synchronized void onCancel() {
+        this.trialInFlight = false;
+    }
+
+    // Returns true if this failure tripped the breaker
+    public synchronized boolean onFailure() {
+        this.consecutiveFailures++;
+
+        if (this.state == State.OPEN) {
+            return false;
+        }
+
+        if (this.state == State.HALF_OPEN || this.consecutiveFailures >= CircuitBreaker.FAILURE_THRESHOLD) {
+            this.state = State.OPEN;
+            this.openUntil = System.currentTimeMillis() + this.openMillis;
+            this.trialInFlight = false;
+
+            Log.warn("Circuit for " + this.host + " opened for " + this.openMillis + " ms after " +
+                this.consecutiveFailures + " consecutive failures");
+
+            this.openMillis = Math.min(CircuitBreaker.MAX_OPEN_MILLIS, this.openMillis * 2);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    public String getHost() {
+        return this.host;
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CircuitBreakerInterceptor implements Interceptor {
+    private final DownloadMetrics metrics;
+    private final Map<String, CircuitBreaker> breakers;
+
+    public CircuitBreakerInterceptor(DownloadMetrics metrics) {
+        this.metrics = metrics;
+        this.breakers = new ConcurrentHashMap<>();
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        CircuitBreaker breaker = this.breakers.computeIfAbsent(host, CircuitBreaker::new);
+
+        breaker.beforeRequest();
+
+        Response response = null;
+        boolean settled = false;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            settled = true;
+
+            if (chain.call().isCanceled()) {
+                breaker.onCancel();
+            } else {
+                this.onFailure(breaker);
+            }
+
+            throw e;
+        } finally {
+            // Anything else thrown further down, like a bug in another interceptor, says nothing about the host,
+            // but must not keep the trial slot taken and the circuit half open forever
+            if (response == null && !settled) {
+                breaker.onCancel();
+            }
+        }
+
+        if (response.code() == 429 || response.code() >= 500) {
+            this.onFailure(breaker);
+        } else {
+            breaker.onSuccess();
+        }
+
+        return response;
+    }
+
+    private void onFailure(CircuitBreaker breaker) {
+        if (breaker.onFailure()) {
+            this.metrics.circuitTripped(breaker.getHost());
+        }
+    }
+
+    public Collection<CircuitBreaker> getBreakers() {
+        return this.breakers.values();
+    }
+}
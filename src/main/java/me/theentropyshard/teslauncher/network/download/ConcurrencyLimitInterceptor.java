@@ -0,0 +1,177 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import me.theentropyshard.teslauncher.Settings;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ConcurrencyLimitInterceptor implements Interceptor {
+    private final Settings settings;
+    private final Map<String, AdaptiveLimit> limits;
+
+    public ConcurrencyLimitInterceptor(Settings settings) {
+        this.settings = settings;
+        this.limits = new ConcurrentHashMap<>();
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        AdaptiveLimit limit = this.getLimit(chain.request().url().host());
+        limit.acquire();
+
+        long start = System.nanoTime();
+
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            if (chain.call().isCanceled()) {
+                limit.onCancel();
+            } else {
+                limit.onFailure();
+            }
+
+            throw e;
+        }
+
+        long latency = System.nanoTime() - start;
+
+        if (response.code() == 429 || response.code() >= 500) {
+            limit.onFailure();
+
+            return response;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            limit.onSuccess(latency);
+
+            return response;
+        }
+
+        // The permit is held until the body is fully read or closed
+        return response.newBuilder()
+            .body(new LimitedResponseBody(body, chain.call(), limit, latency))
+            .build();
+    }
+
+    public AdaptiveLimit getLimit(String host) {
+        return this.limits.computeIfAbsent(host, h ->
+            new AdaptiveLimit(h, this.settings.minDownloadConnections, this.settings.maxDownloadConnections)
+        );
+    }
+
+    public Collection<AdaptiveLimit> getLimits() {
+        return this.limits.values();
+    }
+
+    private static final class LimitedResponseBody extends ResponseBody {
+        private final ResponseBody responseBody;
+        private final Call call;
+        private final AdaptiveLimit limit;
+        private final long latency;
+
+        private BufferedSource bufferedSource;
+        private boolean released;
+
+        public LimitedResponseBody(ResponseBody responseBody, Call call, AdaptiveLimit limit, long latency) {
+            this.responseBody = responseBody;
+            this.call = call;
+            this.limit = limit;
+            this.latency = latency;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return this.responseBody.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return this.responseBody.contentLength();
+        }
+
+        @NotNull
+        @Override
+        public BufferedSource source() {
+            if (this.bufferedSource == null) {
+                this.bufferedSource = Okio.buffer(new ForwardingSource(this.responseBody.source()) {
+                    @Override
+                    public long read(@NotNull Buffer sink, long byteCount) throws IOException {
+                        long bytesRead;
+
+                        try {
+                            bytesRead = super.read(sink, byteCount);
+                        } catch (IOException e) {
+                            LimitedResponseBody.this.release(false);
+
+                            throw e;
+                        }
+
+                        if (bytesRead > 0) {
+                            LimitedResponseBody.this.limit.onBytes(bytesRead);
+                        }
+
+                        return bytesRead;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        LimitedResponseBody.this.release(true);
+
+                        super.close();
+                    }
+                });
+            }
+
+            return this.bufferedSource;
+        }
+
+        private synchronized void release(boolean success) {
+            if (this.released) {
+                return;
+            }
+
+            this.released = true;
+
+            if (success) {
+                this.limit.onSuccess(this.latency);
+            } else if (this.call.isCanceled()) {
+                this.limit.onCancel();
+            } else {
+                this.limit.onFailure();
+            }
+        }
+    }
+}
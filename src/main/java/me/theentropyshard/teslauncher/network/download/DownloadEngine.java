@@ -0,0 +1,444 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.network.HttpTransport;
+import me.theentropyshard.teslauncher.network.peer.PeerClient;
+import me.theentropyshard.teslauncher.network.progress.ProgressAggregator;
+import me.theentropyshard.teslauncher.network.progress.ProgressListener;
+import me.theentropyshard.teslauncher.network.progress.ProgressNetworkInterceptor;
+import me.theentropyshard.teslauncher.network.progress.ProgressSnapshot;
+import me.theentropyshard.teslauncher.storage.DownloadJournal;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DownloadEngine {
+    private static final long PROGRESS_TICK_MILLIS = 1000L / 30L;
+    private static final long HEDGE_CHECK_MILLIS = 500L;
+    private static final long RETRY_BASE_DELAY_MILLIS = 500L;
+    private static final long RETRY_MAX_DELAY_MILLIS = 30_000L;
+
+    private final OkHttpClient httpClient;
+    private final ConcurrencyLimitInterceptor concurrencyLimiter;
+    private final CircuitBreakerInterceptor circuitBreaker;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final DownloadMetrics metrics;
+    private final HedgeMonitor hedgeMonitor;
+    private final SingleFlight singleFlight;
+    private final PeerClient peerClient;
+    private final Settings settings;
+    private final ObjectStore objectStore;
+    private final FileIndex fileIndex;
+    private final DownloadJournal journal;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService progressTicker;
+    private final Map<ProgressAggregator, DownloadListener> trackedProgress;
+    private final AtomicInteger activeDownloads;
+    private final Map<CompletableFuture<Void>, Runnable> deferredStarts;
+
+    private boolean backgroundPaused;
+    private int foregroundPending;
+
+    public DownloadEngine(HttpTransport transport, Settings settings, ObjectStore objectStore, FileIndex fileIndex,
+                          DownloadJournal journal) {
+        this.settings = settings;
+        this.objectStore = objectStore;
+        this.fileIndex = fileIndex;
+        this.journal = journal;
+        this.metrics = new DownloadMetrics();
+        this.hedgeMonitor = new HedgeMonitor(settings, this.metrics);
+        this.singleFlight = new SingleFlight();
+        this.circuitBreaker = new CircuitBreakerInterceptor(this.metrics);
+        this.concurrencyLimiter = new ConcurrencyLimitInterceptor(settings);
+        this.bandwidthLimiter = new BandwidthLimiter(settings);
+        this.httpClient = transport.newClient(builder -> builder
+            .addInterceptor(this.circuitBreaker)
+            .addInterceptor(this.concurrencyLimiter)
+            .addNetworkInterceptor(new ProgressNetworkInterceptor())
+            .addNetworkInterceptor(new BandwidthLimitInterceptor(this.bandwidthLimiter))
+        );
+        this.peerClient = new PeerClient(this.httpClient, settings.peers);
+
+        // The pool only bounds the worker count, the per-host adaptive limits decide how many requests are in flight
+        this.pool = new ForkJoinPool(Math.max(1, settings.maxDownloadConnections), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Download-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+
+            return thread;
+        }, null, true);
+
+        this.activeDownloads = new AtomicInteger();
+        this.deferredStarts = new LinkedHashMap<>();
+        this.trackedProgress = new ConcurrentHashMap<>();
+        this.progressTicker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Download-Progress");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        this.progressTicker.scheduleAtFixedRate(
+            this::publishProgress, DownloadEngine.PROGRESS_TICK_MILLIS, DownloadEngine.PROGRESS_TICK_MILLIS, TimeUnit.MILLISECONDS
+        );
+        this.progressTicker.scheduleWithFixedDelay(
+            this::checkHedges, DownloadEngine.HEDGE_CHECK_MILLIS, DownloadEngine.HEDGE_CHECK_MILLIS, TimeUnit.MILLISECONDS
+        );
+    }
+
+    public CompletableFuture<Void> submit(HttpDownload download, ProgressListener listener) {
+        download.setHttpClient(this.httpClient);
+        download.setProgressListener(listener);
+        download.setEngine(this);
+
+        // Measured now, once the transfer being joined has finished the file is complete on disk
+        long pendingBytes = Math.max(0L, download.transferSize() - Math.max(0L, download.presentSize()));
+
+        boolean foreground = download.getPriority() == DownloadPriority.FOREGROUND;
+        if (foreground) {
+            this.foregroundStarted();
+        }
+
+        CompletableFuture<Void> future = this.singleFlight.run(download.getSaveAs(), download.getSha1(), joined -> {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            this.attempt(download, 1, result);
+
+            if (!joined) {
+                return result;
+            }
+
+            // The joined transfer reported its bytes to its own listener, credit them to this one too
+            this.metrics.joined(download.getSaveAs());
+
+            return result.thenRun(() -> {
+                if (listener != null && pendingBytes > 0) {
+                    listener.update(pendingBytes, pendingBytes, pendingBytes, true);
+                }
+            });
+        });
+
+        if (foreground) {
+            future.whenComplete((result, t) -> this.foregroundFinished());
+        }
+
+        return future;
+    }
+
+    private void attempt(HttpDownload download, int attempt, CompletableFuture<Void> result) {
+        if (this.deferIfPaused(download, result, () -> this.attempt(download, attempt, result))) {
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            this.activeDownloads.incrementAndGet();
+
+            try {
+                download.execute();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                this.activeDownloads.decrementAndGet();
+            }
+        }, this.pool).whenComplete((r, t) -> {
+            if (t == null) {
+                result.complete(null);
+
+                return;
+            }
+
+            Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+
+            if (attempt > this.settings.downloadRetries || !DownloadEngine.isRetryable(cause) || this.pool.isShutdown()) {
+                this.metrics.failed(download.getSaveAs(), attempt, cause);
+                result.completeExceptionally(cause);
+
+                return;
+            }
+
+            long delay = DownloadEngine.backoff(attempt, cause);
+            this.metrics.retry(download.getSaveAs(), attempt, delay, cause);
+            Log.warn("Retrying '" + download.getSaveAs() + "' in " + delay + " ms: " + cause.getMessage());
+
+            try {
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, this.pool)
+                    .execute(() -> this.attempt(download, attempt + 1, result));
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    // Paused background downloads are held before they start, transfers already running finish at their own pace.
+    // A retry of one of them is held too and resumes from its part file once the pause is lifted
+    public void setBackgroundPaused(boolean paused) {
+        synchronized (this.deferredStarts) {
+            this.backgroundPaused = paused;
+        }
+
+        this.startDeferred();
+    }
+
+    public boolean isBackgroundPaused() {
+        synchronized (this.deferredStarts) {
+            return this.backgroundPaused;
+        }
+    }
+
+    // Foreground work may be waiting on a held transfer for the same file, so it lifts the pause while it runs
+    private void foregroundStarted() {
+        synchronized (this.deferredStarts) {
+            this.foregroundPending++;
+        }
+
+        this.startDeferred();
+    }
+
+    private void foregroundFinished() {
+        synchronized (this.deferredStarts) {
+            this.foregroundPending--;
+        }
+    }
+
+    private boolean deferIfPaused(HttpDownload download, CompletableFuture<Void> result, Runnable start) {
+        if (download.getPriority() != DownloadPriority.BACKGROUND) {
+            return false;
+        }
+
+        synchronized (this.deferredStarts) {
+            if (!this.backgroundPaused || this.foregroundPending > 0 || this.pool.isShutdown()) {
+                return false;
+            }
+
+            this.deferredStarts.put(result, start);
+
+            return true;
+        }
+    }
+
+    private void startDeferred() {
+        List<Runnable> starts;
+
+        synchronized (this.deferredStarts) {
+            if (this.backgroundPaused && this.foregroundPending == 0) {
+                return;
+            }
+
+            starts = new ArrayList<>(this.deferredStarts.values());
+            this.deferredStarts.clear();
+        }
+
+        starts.forEach(Runnable::run);
+    }
+
+    private static boolean isRetryable(Throwable t) {
+        if (t instanceof HttpStatusException statusException) {
+            return statusException.isRetryable();
+        }
+
+        // Local disk problems will not go away by asking the server again
+        if (t instanceof FileSystemException) {
+            return false;
+        }
+
+        return t instanceof IOException;
+    }
+
+    // Exponential backoff with equal jitter: a random delay in the upper half of the current window
+    private static long backoff(int attempt, Throwable cause) {
+        long window = Math.min(
+            DownloadEngine.RETRY_MAX_DELAY_MILLIS,
+            DownloadEngine.RETRY_BASE_DELAY_MILLIS << Math.min(attempt - 1, 16)
+        );
+        long delay = window / 2 + ThreadLocalRandom.current().nextLong(window / 2 + 1);
+
+        if (cause instanceof CircuitOpenException openException) {
+            delay = Math.max(delay, openException.getRetryAfterMillis());
+        }
+
+        return delay;
+    }
+
+    private void checkHedges() {
+        try {
+            this.hedgeMonitor.check();
+        } catch (Exception e) {
+            Log.error("Hedge check failed", e);
+        }
+    }
+
+    public void download(HttpDownload download, ProgressListener listener) throws IOException {
+        try {
+            this.submit(download, listener).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+
+            throw new IOException(e.getCause());
+        }
+    }
+
+    public void trackProgress(ProgressAggregator aggregator, DownloadListener listener) {
+        this.trackedProgress.put(aggregator, listener);
+    }
+
+    public void untrackProgress(ProgressAggregator aggregator) {
+        DownloadListener listener = this.trackedProgress.remove(aggregator);
+
+        StringJoiner limits = new StringJoiner(", ");
+        for (AdaptiveLimit limit : this.concurrencyLimiter.getLimits()) {
+            limits.add(limit.getHost() + "=" + limit.getLimit());
+        }
+        Log.debug("Connection limits: " + limits + ", " + this.metrics);
+
+        if (listener != null && !this.progressTicker.isShutdown()) {
+            this.progressTicker.execute(() -> listener.updateProgress(aggregator.sample()));
+        }
+    }
+
+    private void publishProgress() {
+        this.trackedProgress.forEach((aggregator, listener) -> {
+            ProgressSnapshot snapshot = aggregator.sample();
+
+            if (!aggregator.hasChanged(snapshot)) {
+                return;
+            }
+
+            try {
+                listener.updateProgress(snapshot);
+            } catch (Exception e) {
+                Log.error("Progress listener failed", e);
+            }
+        });
+    }
+
+    public int getActiveDownloads() {
+        return this.activeDownloads.get();
+    }
+
+    public int getConcurrencyLimit() {
+        int total = 0;
+
+        for (AdaptiveLimit limit : this.concurrencyLimiter.getLimits()) {
+            total += limit.getLimit();
+        }
+
+        return total;
+    }
+
+    public DownloadMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public HedgeMonitor getHedgeMonitor() {
+        return this.hedgeMonitor;
+    }
+
+    public CircuitBreakerInterceptor getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    public BandwidthLimiter getBandwidthLimiter() {
+        return this.bandwidthLimiter;
+    }
+
+    public PeerClient getPeerClient() {
+        return this.peerClient;
+    }
+
+    public ConcurrencyLimitInterceptor getConcurrencyLimiter() {
+        return this.concurrencyLimiter;
+    }
+
+    public void shutdown() {
+        this.progressTicker.shutdownNow();
+        this.pool.shutdown();
+
+        // Held downloads would never start, their callers get an error instead of waiting forever
+        List<CompletableFuture<Void>> held;
+        synchronized (this.deferredStarts) {
+            held = new ArrayList<>(this.deferredStarts.keySet());
+            this.deferredStarts.clear();
+        }
+
+        held.forEach(result -> result.completeExceptionally(new IOException("Download engine was shut down")));
+
+        try {
+            if (!this.pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                this.pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.pool.shutdownNow();
+        }
+    }
+
+    public boolean isLzmaEnabled() {
+        return this.settings.downloadLzmaRuntimes;
+    }
+
+    public int getSegmentCount() {
+        return this.settings.downloadSegments;
+    }
+
+    public long getSegmentThreshold() {
+        return this.settings.segmentedDownloadThresholdMb * 1024L * 1024L;
+    }
+
+    public Executor getExecutor() {
+        return this.pool;
+    }
+
+    public OkHttpClient getHttpClient() {
+        return this.httpClient;
+    }
+
+    public ObjectStore getObjectStore() {
+        return this.objectStore;
+    }
+
+    public FileIndex getFileIndex() {
+        return this.fileIndex;
+    }
+
+    public DownloadJournal getJournal() {
+        return this.journal;
+    }
+}
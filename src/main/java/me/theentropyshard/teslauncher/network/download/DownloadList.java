@@ -19,101 +19,212 @@
 package me.theentropyshard.teslauncher.network.download;
 
 import me.theentropyshard.teslauncher.TESLauncher;
-import me.theentropyshard.teslauncher.network.progress.ProgressNetworkInterceptor;
-import okhttp3.OkHttpClient;
 import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.network.progress.ProgressAggregator;
 
-import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DownloadList {
-    
-
-    public static final int MAX_CONNECTIONS = 8;
-
+    private final DownloadEngine engine;
     private final DownloadListener downloadListener;
-    private final List<HttpDownload> downloads;
-    private final AtomicLong downloadedBytes;
+    private final Map<Path, HttpDownload> downloads;
+    private final Map<String, HttpDownload> downloadsBySha1;
+    private final Map<Path, Path> mergedPaths;
+    private final Map<Path, HttpDownload> mergedDownloads;
+    private final Map<Path, CompletableFuture<Void>> futures;
+    private final AtomicInteger failedFiles = new AtomicInteger();
+    private DownloadPriority priority = DownloadPriority.FOREGROUND;
+    private long downloadedBytes;
     private long totalSize;
 
     private boolean finished;
 
     public DownloadList(DownloadListener downloadListener) {
+        this(TESLauncher.getInstance().getDownloadEngine(), downloadListener);
+    }
+
+    public DownloadList(DownloadEngine engine, DownloadListener downloadListener) {
+        this.engine = engine;
         this.downloadListener = downloadListener;
-        this.downloads = new ArrayList<>();
-        this.downloadedBytes = new AtomicLong(0);
+        this.downloads = new LinkedHashMap<>();
+        this.downloadsBySha1 = new HashMap<>();
+        this.mergedPaths = new HashMap<>();
+        this.mergedDownloads = new HashMap<>();
+        this.futures = new HashMap<>();
     }
 
     public synchronized void add(HttpDownload download) {
-        this.totalSize += download.expectedSize();
-        if (download.size() != -1L) {
-            this.downloadedBytes.addAndGet(download.size());
+        this.totalSize += this.addInternal(download);
+    }
+
+    public synchronized void addAll(Collection<HttpDownload> downloads) {
+        long addedSize = 0;
+
+        for (HttpDownload download : downloads) {
+            addedSize += this.addInternal(download);
         }
 
-        this.downloads.removeIf(d -> d.getSaveAs().equals(download.getSaveAs()));
-        this.downloads.add(download);
+        this.totalSize += addedSize;
     }
 
-    public synchronized void addAll(Collection<HttpDownload> downloads) {
-        downloads.forEach(this::add);
+    private long addInternal(HttpDownload download) {
+        long addedSize = 0;
+
+        // Re-adding a path that was folded into another download takes it back out of that one
+        HttpDownload mergedBefore = this.mergedDownloads.remove(download.getSaveAs());
+        if (mergedBefore != null) {
+            HttpDownload owner = this.downloads.get(this.mergedPaths.remove(download.getSaveAs()));
+
+            if (owner != null) {
+                owner.removeDestination(mergedBefore.getSaveAs());
+
+                if (mergedBefore.getCopyTo() != null) {
+                    owner.removeDestination(mergedBefore.getCopyTo());
+                }
+            }
+        }
+
+        List<HttpDownload> orphaned = new ArrayList<>();
+
+        HttpDownload previous = this.downloads.remove(download.getSaveAs());
+        if (previous != null) {
+            addedSize -= previous.transferSize();
+
+            long previousSize = previous.presentSize();
+            if (previousSize != -1L) {
+                this.downloadedBytes -= previousSize;
+            }
+
+            if (previous.getSha1() != null) {
+                this.downloadsBySha1.remove(previous.getSha1(), previous);
+            }
+
+            // Paths folded into the replaced download still need their own content
+            Iterator<Map.Entry<Path, Path>> iterator = this.mergedPaths.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Path, Path> entry = iterator.next();
+
+                if (entry.getValue().equals(previous.getSaveAs())) {
+                    orphaned.add(this.mergedDownloads.remove(entry.getKey()));
+                    iterator.remove();
+                }
+            }
+        }
+
+        addedSize += this.addNew(download);
+
+        for (HttpDownload orphan : orphaned) {
+            addedSize += this.addInternal(orphan);
+        }
+
+        return addedSize;
     }
 
-    public int size() {
+    private long addNew(HttpDownload download) {
+        String sha1 = download.getSha1();
+
+        if (sha1 != null && !download.isForceDownload()) {
+            HttpDownload sameContent = this.downloadsBySha1.get(sha1);
+
+            if (sameContent != null && sameContent.isExecutable() == download.isExecutable()) {
+                sameContent.addDestination(download.getSaveAs());
+                this.mergedPaths.put(download.getSaveAs(), sameContent.getSaveAs());
+                this.mergedDownloads.put(download.getSaveAs(), download);
+
+                if (download.getCopyTo() != null) {
+                    sameContent.addDestination(download.getCopyTo());
+                }
+
+                return 0L;
+            }
+
+            this.downloadsBySha1.put(sha1, download);
+        }
+
+        long size = download.presentSize();
+        if (size != -1L) {
+            this.downloadedBytes += size;
+        }
+
+        this.downloads.put(download.getSaveAs(), download);
+
+        return download.transferSize();
+    }
+
+    // Fails along with the download, while downloadAll() only counts failed files
+    public synchronized CompletableFuture<Void> whenDownloaded(Path saveAs) {
+        CompletableFuture<Void> future = this.futures.get(this.mergedPaths.getOrDefault(saveAs, saveAs));
+
+        return future == null ? CompletableFuture.completedFuture(null) : future;
+    }
+
+    public synchronized int size() {
         return this.downloads.size();
     }
 
+    public void setPriority(DownloadPriority priority) {
+        this.priority = priority;
+    }
+
+    public int getFailedFiles() {
+        return this.failedFiles.get();
+    }
+
     public long getTotalSize() {
         return this.totalSize;
     }
 
-    public synchronized void downloadAll() {
+    public synchronized CompletableFuture<Void> downloadAll() {
         if (this.finished) {
             throw new IllegalStateException("This download list has already finished downloading. Please consider creating a new one");
         }
 
+        this.finished = true;
+
         if (this.size() == 0) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(DownloadList.MAX_CONNECTIONS);
+        ProgressAggregator aggregator = new ProgressAggregator(
+            this.totalSize, this.downloadedBytes, this.downloads.size(), this.engine::getActiveDownloads,
+            this.engine::getConcurrencyLimit
+        );
+        this.engine.trackProgress(aggregator, this.downloadListener);
 
-        OkHttpClient parent = TESLauncher.getInstance().getHttpClient();
+        for (HttpDownload download : this.downloads.values()) {
+            download.setPriority(this.priority);
+        }
 
-        for (HttpDownload download : this.downloads) {
-            OkHttpClient httpClient = parent.newBuilder()
-                    .addNetworkInterceptor(new ProgressNetworkInterceptor((
-                            (contentLength, bytesRead, bytesThisTime, done) -> {
-                        this.downloadListener.updateProgress(this.totalSize, this.downloadedBytes.addAndGet(bytesThisTime));
-                    })))
-                    .build();
-            download.setHttpClient(httpClient);
+        List<CompletableFuture<Void>> handled = new ArrayList<>();
 
-            Runnable runnable = () -> {
-                try {
-                    download.execute();
-                } catch (IOException e) {
-                    Log.error("Download failed", e);
-                }
-            };
+        for (HttpDownload download : this.downloads.values()) {
+            CompletableFuture<Void> future = this.engine.submit(download, aggregator);
+            this.futures.put(download.getSaveAs(), future);
 
-            executorService.execute(runnable);
-        }
+            handled.add(future.handle((result, t) -> {
+                if (t == null) {
+                    aggregator.fileDone();
+                } else {
+                    Log.error("Download failed", t);
+                    aggregator.fileFailed();
+                    this.failedFiles.incrementAndGet();
+                }
 
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(15, TimeUnit.MINUTES)) {
-                executorService.shutdownNow();
-            }
-        } catch (InterruptedException ex) {
-            executorService.shutdownNow();
+                return null;
+            }));
         }
 
-        this.finished = true;
+        return CompletableFuture.allOf(handled.toArray(new CompletableFuture[0])).whenComplete((result, t) -> {
+            this.engine.untrackProgress(aggregator);
+        });
     }
 }
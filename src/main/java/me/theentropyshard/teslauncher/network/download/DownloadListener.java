@@ -18,6 +18,8 @@
 
 package me.theentropyshard.teslauncher.network.download;
 
+import me.theentropyshard.teslauncher.network.progress.ProgressSnapshot;
+
 public interface DownloadListener {
-    void updateProgress(long totalSize, long downloadedBytes);
+    void updateProgress(ProgressSnapshot snapshot);
 }
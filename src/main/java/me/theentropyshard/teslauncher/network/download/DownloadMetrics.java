@@ -0,0 +1,143 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class DownloadMetrics {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private final LongAdder retries;
+    private final LongAdder failures;
+    private final LongAdder hedges;
+    private final LongAdder hedgesWon;
+    private final LongAdder circuitTrips;
+    private final LongAdder peerHits;
+    private final LongAdder joins;
+    private final Map<Path, List<String>> history;
+
+    public DownloadMetrics() {
+        this.retries = new LongAdder();
+        this.failures = new LongAdder();
+        this.hedges = new LongAdder();
+        this.hedgesWon = new LongAdder();
+        this.circuitTrips = new LongAdder();
+        this.peerHits = new LongAdder();
+        this.joins = new LongAdder();
+        this.history = new ConcurrentHashMap<>();
+    }
+
+    public void retry(Path file, int attempt, long delayMillis, Throwable cause) {
+        this.retries.increment();
+        this.record(file, "attempt " + attempt + " failed (" + cause.getMessage() + "), retrying in " + delayMillis + " ms");
+    }
+
+    public void failed(Path file, int attempts, Throwable cause) {
+        this.failures.increment();
+        this.record(file, "gave up after " + attempts + " attempt(s): " + cause.getMessage());
+    }
+
+    public void hedged(Path file, double bytesPerSecond, double medianBytesPerSecond) {
+        this.hedges.increment();
+        this.record(file, String.format("hedged at %.0f B/s, peers' median %.0f B/s", bytesPerSecond, medianBytesPerSecond));
+    }
+
+    public void hedgeWon(Path file) {
+        this.hedgesWon.increment();
+        this.record(file, "hedged request won");
+    }
+
+    public void circuitTripped(String host) {
+        this.circuitTrips.increment();
+    }
+
+    public void peerHit(Path file) {
+        this.peerHits.increment();
+        this.record(file, "served by a LAN peer");
+    }
+
+    public void joined(Path file) {
+        this.joins.increment();
+        this.record(file, "joined a transfer already in flight");
+    }
+
+    private void record(Path file, String event) {
+        String line = LocalTime.now().format(DownloadMetrics.TIME_FORMAT) + " " + event;
+
+        this.history.computeIfAbsent(file, f -> Collections.synchronizedList(new ArrayList<>())).add(line);
+    }
+
+    public List<String> getHistory(Path file) {
+        List<String> events = this.history.get(file);
+
+        if (events == null) {
+            return Collections.emptyList();
+        }
+
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    public Map<Path, List<String>> getHistory() {
+        return Collections.unmodifiableMap(this.history);
+    }
+
+    public long getRetries() {
+        return this.retries.sum();
+    }
+
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    public long getHedges() {
+        return this.hedges.sum();
+    }
+
+    public long getHedgesWon() {
+        return this.hedgesWon.sum();
+    }
+
+    public long getCircuitTrips() {
+        return this.circuitTrips.sum();
+    }
+
+    public long getPeerHits() {
+        return this.peerHits.sum();
+    }
+
+    public long getJoins() {
+        return this.joins.sum();
+    }
+
+    @Override
+    public String toString() {
+        return this.getRetries() + " retries, " + this.getFailures() + " failures, " + this.getHedges() + " hedges (" +
+            this.getHedgesWon() + " won), " + this.getCircuitTrips() + " circuit trips, " + this.getPeerHits() + " peer hits, " + this.getJoins() + " joins";
+    }
+}
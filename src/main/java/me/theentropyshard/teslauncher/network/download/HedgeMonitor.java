@@ -0,0 +1,139 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import me.theentropyshard.teslauncher.Settings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class HedgeMonitor {
+    // Transfers younger than this are still in their TCP/TLS setup, their speed says nothing yet
+    private static final long MIN_AGE_NANOS = 1_500_000_000L;
+    private static final long MIN_PEER_AGE_NANOS = 200_000_000L;
+    private static final int MIN_PEERS = 4;
+
+    // A transfer has to be below the percentile and this far below the median to be hedged
+    private static final double MEDIAN_FRACTION = 0.5D;
+
+    private final Settings settings;
+    private final DownloadMetrics metrics;
+    private final Set<HttpDownload> streams;
+
+    public HedgeMonitor(Settings settings, DownloadMetrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+        this.streams = ConcurrentHashMap.newKeySet();
+    }
+
+    public void register(HttpDownload download) {
+        this.streams.add(download);
+    }
+
+    public void unregister(HttpDownload download) {
+        this.streams.remove(download);
+    }
+
+    public void check() {
+        if (!this.settings.hedgeSlowDownloads) {
+            return;
+        }
+
+        // Background and repair transfers are throttled on purpose, so each class is only compared with itself
+        Map<DownloadPriority, List<HttpDownload>> classes = new EnumMap<>(DownloadPriority.class);
+
+        for (HttpDownload download : this.streams) {
+            classes.computeIfAbsent(download.getPriority(), priority -> new ArrayList<>()).add(download);
+        }
+
+        long now = System.nanoTime();
+
+        for (List<HttpDownload> streams : classes.values()) {
+            this.check(streams, now);
+        }
+    }
+
+    private void check(List<HttpDownload> streams, long now) {
+        List<HttpDownload> candidates = new ArrayList<>();
+        List<Double> peerRates = new ArrayList<>();
+        int hedging = 0;
+
+        for (HttpDownload download : streams) {
+            long age = now - download.getStreamStart();
+
+            if (download.isHedged()) {
+                hedging++;
+            }
+
+            if (age < HedgeMonitor.MIN_PEER_AGE_NANOS) {
+                continue;
+            }
+
+            peerRates.add(download.getStreamRate(now));
+
+            if (age >= HedgeMonitor.MIN_AGE_NANOS && !download.isHedged()) {
+                candidates.add(download);
+            }
+        }
+
+        if (peerRates.size() < HedgeMonitor.MIN_PEERS || candidates.isEmpty()) {
+            return;
+        }
+
+        double[] rates = peerRates.stream().mapToDouble(Double::doubleValue).toArray();
+        Arrays.sort(rates);
+
+        double threshold = HedgeMonitor.percentile(rates, this.settings.hedgePercentile);
+        double median = HedgeMonitor.percentile(rates, 50);
+
+        // Never duplicate more than a tenth of the traffic
+        int budget = Math.max(1, rates.length / 10) - hedging;
+
+        candidates.sort(Comparator.comparingDouble(download -> download.getStreamRate(now)));
+
+        for (HttpDownload download : candidates) {
+            if (budget <= 0) {
+                break;
+            }
+
+            double rate = download.getStreamRate(now);
+
+            if (rate > threshold || rate >= median * HedgeMonitor.MEDIAN_FRACTION) {
+                break;
+            }
+
+            if (download.startHedge()) {
+                this.metrics.hedged(download.getSaveAs(), rate, median);
+                budget--;
+            }
+        }
+    }
+
+    private static double percentile(double[] sorted, int percentile) {
+        int index = (int) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100.0D * sorted.length) - 1;
+
+        return sorted[Math.max(0, index)];
+    }
+}
@@ -18,30 +18,56 @@
 
 package me.theentropyshard.teslauncher.network.download;
 
+import me.theentropyshard.teslauncher.network.progress.ProgressListener;
+import me.theentropyshard.teslauncher.storage.DownloadJournal;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
 import me.theentropyshard.teslauncher.utils.FileUtils;
 import me.theentropyshard.teslauncher.utils.HashUtils;
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import org.tukaani.xz.LZMAInputStream;
 import me.theentropyshard.teslauncher.logging.Log;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HttpDownload {
-    
-
     private static final long EXPECTED_SIZE_NOT_SET = -1L;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Every commit forces the part file and the journal to disk
+    private static final long COMMIT_INTERVAL = 4L * 1024L * 1024L;
+
+    private static final int RACE_OPEN = 0;
+    private static final int PRIMARY_WON = 1;
+    private static final int HEDGE_WON = 2;
 
     private OkHttpClient httpClient;
+    private ProgressListener progressListener;
+    private DownloadEngine engine;
+    private DownloadPriority priority = DownloadPriority.FOREGROUND;
+    private String downloadedSha1;
     private final String url;
     private final Path saveAs;
     private final Path copyTo;
@@ -49,8 +75,21 @@ public class HttpDownload {
     private final String sha1;
     private final boolean executable;
     private final long expectedSize;
+    private final String lzmaUrl;
+    private final long lzmaSize;
+    private final List<Path> extraDestinations;
+    private final AtomicLong streamedBytes = new AtomicLong();
+    private final Object hedgeLock = new Object();
+
+    private volatile long streamStart;
+    private Request streamRequest;
+    private Call streamCall;
+    private Call hedgeCall;
+    private CompletableFuture<String> hedge;
+    private int race;
 
-    private HttpDownload(OkHttpClient httpClient, String url, Path saveAs, Path copyTo, boolean forceDownload, String sha1, boolean executable, long expectedSize) {
+    private HttpDownload(OkHttpClient httpClient, String url, Path saveAs, Path copyTo, boolean forceDownload, String sha1,
+                         boolean executable, long expectedSize, String lzmaUrl, long lzmaSize) {
         this.httpClient = Objects.requireNonNull(httpClient, "httpClient == null");
         this.url = Objects.requireNonNull(url, "url == null");
         this.saveAs = Objects.requireNonNull(saveAs, "saveAs == null");
@@ -59,49 +98,122 @@ public class HttpDownload {
         this.sha1 = sha1;
         this.executable = executable;
         this.expectedSize = expectedSize;
+        this.lzmaUrl = lzmaUrl;
+        this.lzmaSize = lzmaSize;
+        this.extraDestinations = new ArrayList<>();
+    }
+
+    public String getUrl() {
+        return this.url;
     }
 
     public Path getSaveAs() {
         return this.saveAs;
     }
 
+    public Path getCopyTo() {
+        return this.copyTo;
+    }
+
+    public String getSha1() {
+        return this.sha1;
+    }
+
+    public boolean isForceDownload() {
+        return this.forceDownload;
+    }
+
+    public boolean isExecutable() {
+        return this.executable;
+    }
+
+    public void addDestination(Path destination) {
+        this.extraDestinations.add(destination);
+    }
+
+    public void removeDestination(Path destination) {
+        this.extraDestinations.remove(destination);
+    }
+
     public void execute() throws IOException {
+        if (this.engine == null) {
+            this.executeExclusively();
+
+            return;
+        }
+
+        // The part file of a target belongs to one launcher process at a time, others wait and then find it committed
+        try (WorkDirLocks.Handle lock = this.engine.getObjectStore().getLocks().exclusive(WorkDirLocks.download(this.saveAs))) {
+            this.executeExclusively();
+        }
+    }
+
+    private void executeExclusively() throws IOException {
+        DownloadJournal.Entry interrupted = this.getInterrupted();
+
+        if (interrupted != null) {
+            this.prepareResume(interrupted);
+
+            if (interrupted.getSegments() > 1 && Files.exists(this.partFile())) {
+                this.run(() -> this.downloadSegmented(interrupted));
+
+                return;
+            }
+        }
+
         boolean needsDownload = false;
 
         if (Files.exists(this.saveAs)) {
             long size = Files.size(this.saveAs);
-            boolean hashMatches = HashUtils.sha1(this.saveAs).equals(this.sha1);
 
             if (this.expectedSize == size) {
-                if (this.sha1 == null) {
-                    return;
-                } else {
-                    if (hashMatches) {
-                        return;
-                    } else {
-                        Log.debug("File '" + this.saveAs + "' exists, size matches, but SHA-1 does not match");
+                if (this.isVerified(this.saveAs)) {
+                    if (interrupted != null) {
+                        this.engine.getJournal().completed(this.saveAs, this.sha1);
                     }
 
-                    needsDownload = true;
-                }
-            } else if (this.expectedSize != HttpDownload.EXPECTED_SIZE_NOT_SET) {
-                if (hashMatches) {
-                    Log.debug("File '" + this.saveAs + "' exists, SHA-1 matches, but size does not match");
+                    this.copyFile();
+
+                    return;
                 } else {
-                    Log.debug("File '" + this.saveAs + "' exists, but size and SHA-1 do not match");
+                    Log.debug("File '" + this.saveAs + "' exists, size matches, but SHA-1 does not match");
                 }
 
+                needsDownload = true;
+            } else if (this.expectedSize != HttpDownload.EXPECTED_SIZE_NOT_SET) {
+                Log.debug("File '" + this.saveAs + "' exists, but size does not match");
+
                 needsDownload = true;
             }
         }
 
-        long size = this.size();
-        boolean partiallyDownloaded = this.expectedSize > size && Files.exists(this.saveAs);
+        Path partFile = this.partFile();
+
+        if (!this.forceDownload && this.commitCompletePart(partFile)) {
+            return;
+        }
+
+        long size = Files.exists(partFile) ? Files.size(partFile) : -1L;
+        boolean partiallyDownloaded = (this.expectedSize > size || interrupted != null) && Files.exists(partFile);
 
         if (partiallyDownloaded || this.forceDownload || !Files.exists(this.saveAs) || needsDownload) {
-            Request.Builder builder = new Request.Builder()
-                    .url(this.url)
-                    .get();
+            if (!this.forceDownload && this.sha1 != null && this.engine != null &&
+                this.engine.getObjectStore().materialize(this.sha1, this.expectedSize, this.saveAs, this.engine.getFileIndex())) {
+
+                this.engine.getFileIndex().record(this.saveAs, this.sha1);
+
+                // The store had the whole file, whatever an earlier attempt left behind is of no use any more
+                Files.deleteIfExists(partFile);
+                if (interrupted != null) {
+                    this.engine.getJournal().completed(this.saveAs, this.sha1);
+                }
+
+                this.finish();
+
+                return;
+            }
+
+            Request.Builder builder = this.newRequest(this.url);
 
             if (partiallyDownloaded && size >= 0) {
                 builder.header("Range", "bytes=" + size + "-");
@@ -109,61 +221,694 @@ public class HttpDownload {
 
             FileUtils.createDirectoryIfNotExists(this.saveAs.getParent());
 
-            this.downloadFile(builder.build(), partiallyDownloaded, size);
-            this.checkHash();
+            this.run(() -> {
+                if (!partiallyDownloaded && this.fetchFromPeer()) {
+                    return true;
+                }
+
+                if (!this.downloadLzma(partiallyDownloaded) &&
+                    (partiallyDownloaded || !this.isSegmentable() || !this.downloadSegmented(null))) {
+
+                    this.downloadFile(builder.build(), partiallyDownloaded, size);
+                }
+
+                return true;
+            });
+        }
+    }
 
-            if (this.executable) {
-                new File(this.saveAs.toString()).setExecutable(true);
+    private void run(Transfer transfer) throws IOException {
+        try {
+            if (!transfer.run()) {
+                return;
             }
+        } catch (IOException e) {
+            if (this.engine != null) {
+                this.engine.getJournal().suspended(this.saveAs);
+            }
+
+            throw e;
+        }
 
-            this.copyFile();
+        this.checkHash();
+
+        if (this.sha1 == null || this.engine == null) {
+            this.commit();
+        } else {
+            // Other launcher processes sharing the work dir verify this shard under the shared lock
+            try (WorkDirLocks.Handle lock = this.engine.getObjectStore().getLocks().exclusive(WorkDirLocks.objectShard(this.sha1))) {
+                this.commit();
+            }
         }
+
+        this.finish();
+    }
+
+    private void commit() throws IOException {
+        // Readers of the target only ever see the old file or the complete new one
+        Files.move(this.partFile(), this.saveAs, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (this.engine != null) {
+            if (this.sha1 != null) {
+                this.engine.getFileIndex().record(this.saveAs, this.sha1);
+            }
+
+            this.engine.getJournal().completed(this.saveAs, this.sha1);
+        }
+
+        if (this.sha1 != null && this.engine != null) {
+            ObjectStore objectStore = this.engine.getObjectStore();
+            objectStore.add(this.saveAs, this.sha1);
+
+            // Linked to the file that was just verified, so materializing it does not need to hash it again
+            Path object = objectStore.getPath(this.sha1);
+            if (Files.exists(object) && Files.isSameFile(object, this.saveAs)) {
+                this.engine.getFileIndex().record(object, this.sha1);
+            }
+        }
+    }
+
+    // A part file holding every byte, left by a crash just before the rename, only needs its hash checked.
+    // Resuming it would ask for a range past its end, and the 416 answer throws the whole file away
+    private boolean commitCompletePart(Path partFile) throws IOException {
+        if (this.sha1 == null || this.expectedSize <= 0 || !Files.exists(partFile) || Files.size(partFile) != this.expectedSize) {
+            return false;
+        }
+
+        if (!this.sha1.equals(HashUtils.sha1(partFile))) {
+            Log.debug("Part file of '" + this.saveAs + "' is complete, but SHA-1 does not match");
+            FileUtils.delete(partFile);
+
+            return false;
+        }
+
+        this.downloadedSha1 = this.sha1;
+        this.run(() -> true);
+
+        return true;
+    }
+
+    private Path partFile() {
+        return this.saveAs.resolveSibling(this.saveAs.getFileName() + ".part");
+    }
+
+    private boolean fetchFromPeer() {
+        if (this.sha1 == null || this.engine == null || !this.engine.getPeerClient().hasPeers()) {
+            return false;
+        }
+
+        if (!this.engine.getPeerClient().fetch(this.sha1, this.expectedSize, this.partFile(), this.progressListener)) {
+            return false;
+        }
+
+        this.engine.getMetrics().peerHit(this.saveAs);
+        this.downloadedSha1 = this.sha1;
+
+        return true;
+    }
+
+    private DownloadJournal.Entry getInterrupted() {
+        if (this.engine == null || this.forceDownload) {
+            return null;
+        }
+
+        DownloadJournal.Entry entry = this.engine.getJournal().getInterrupted(this.saveAs);
+
+        if (entry == null || !this.url.equals(entry.getUrl()) || !Objects.equals(this.sha1, entry.getSha1())) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    private void prepareResume(DownloadJournal.Entry entry) throws IOException {
+        Path partFile = this.partFile();
+
+        // Downloads interrupted before partial files existed wrote straight into the target
+        if (!Files.exists(partFile) && Files.exists(this.saveAs)) {
+            Files.move(this.saveAs, partFile);
+        }
+
+        if (!Files.exists(partFile)) {
+            return;
+        }
+
+        long size = Files.size(partFile);
+
+        if (entry.getSegments() == 0 || (entry.getSegments() > 1 && size != this.expectedSize)) {
+            // LZMA streams cannot be resumed and a segmented file of the wrong size has lost its layout
+            FileUtils.delete(partFile);
+        } else if (entry.getSegments() == 1) {
+            long committed = entry.getCommitted(0);
+
+            if (committed < size) {
+                try (FileChannel fileChannel = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+                    fileChannel.truncate(committed);
+                }
+            }
+        }
+
+        Log.info("Resuming interrupted download of '" + this.saveAs + "'");
+    }
+
+    private void finish() throws IOException {
+        if (this.executable) {
+            new File(this.saveAs.toString()).setExecutable(true);
+        }
+
+        this.copyFile();
     }
 
     public void downloadFile(Request request, boolean partiallyDownloaded, long size) throws IOException {
-        try (Response response = this.httpClient.newCall(request).execute();
+        MessageDigest digest = this.sha1 == null ? null : HashUtils.newDigest("SHA-1");
+
+        this.journalStarted(1);
+
+        // Only fresh single-stream downloads are hedged, resumed ones already have bytes on disk
+        boolean hedgeable = !partiallyDownloaded && this.engine != null;
+        Call call = this.httpClient.newCall(request);
+
+        if (hedgeable) {
+            this.beginStream(call, request);
+        }
+
+        IOException failure = null;
+
+        try (Response response = call.execute();
              ReadableByteChannel src = Channels.newChannel(Objects.requireNonNull(response.body()).byteStream())) {
-            if (partiallyDownloaded && size > 0) {
-                try (FileChannel fileChannel = FileChannel.open(this.saveAs, StandardOpenOption.APPEND)) {
-                    fileChannel.transferFrom(src, size, Long.MAX_VALUE);
+            if (response.code() == 416) {
+                // Whatever is on disk does not fit the remote file anymore, start over on the next attempt
+                FileUtils.delete(this.partFile());
+
+                if (this.engine != null) {
+                    this.engine.getJournal().failed(this.saveAs);
+                }
+
+                throw new IOException("Range not satisfiable for '" + this.saveAs + "'");
+            }
+
+            HttpDownload.checkStatus(response, this.url);
+
+            if (partiallyDownloaded && size > 0 && response.code() == 206) {
+                if (digest != null) {
+                    HashUtils.update(digest, this.partFile());
+                }
+
+                try (FileChannel fileChannel = FileChannel.open(this.partFile(), StandardOpenOption.WRITE)) {
+                    this.transfer(src, fileChannel, 0, size, Long.MAX_VALUE, digest);
                 }
             } else {
-                try (FileChannel fileChannel = FileChannel.open(this.saveAs,
+                try (FileChannel fileChannel = FileChannel.open(this.partFile(),
                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
-                    fileChannel.transferFrom(src, 0, Long.MAX_VALUE);
+                    this.transfer(src, fileChannel, 0, 0, Long.MAX_VALUE, digest);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            if (hedgeable) {
+                this.engine.getHedgeMonitor().unregister(this);
+            }
+        }
+
+        if (hedgeable && !this.settleStream(failure == null)) {
+            this.downloadedSha1 = this.awaitHedge(failure);
+
+            return;
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        if (digest != null) {
+            this.downloadedSha1 = HashUtils.toHex(digest.digest());
+        }
+    }
+
+    private static void checkStatus(Response response, String url) throws HttpStatusException {
+        if (!response.isSuccessful()) {
+            throw new HttpStatusException(url, response.code());
+        }
+    }
+
+    private void beginStream(Call call, Request request) {
+        synchronized (this.hedgeLock) {
+            this.streamCall = call;
+            this.streamRequest = request;
+            this.hedgeCall = null;
+            this.hedge = null;
+            this.race = HttpDownload.RACE_OPEN;
+        }
+
+        this.streamedBytes.set(0);
+        this.streamStart = System.nanoTime();
+        this.engine.getHedgeMonitor().register(this);
+    }
+
+    // Returns true if the primary request decides the outcome, false if the hedge does
+    private boolean settleStream(boolean primarySucceeded) {
+        synchronized (this.hedgeLock) {
+            this.streamRequest = null;
+
+            if (this.race == HttpDownload.HEDGE_WON) {
+                return false;
+            }
+
+            if (this.hedge == null || primarySucceeded) {
+                this.race = HttpDownload.PRIMARY_WON;
+
+                if (this.hedgeCall != null) {
+                    this.hedgeCall.cancel();
+                }
+
+                return true;
+            }
+
+            // The primary failed but the hedge is still running, let it finish
+            return false;
+        }
+    }
+
+    private String awaitHedge(IOException primaryFailure) throws IOException {
+        String hedgeSha1;
+
+        try {
+            hedgeSha1 = this.hedge.join();
+        } catch (CompletionException e) {
+            if (primaryFailure == null) {
+                primaryFailure = new IOException("Hedged request for '" + this.saveAs + "' failed", e.getCause());
+            } else {
+                primaryFailure.addSuppressed(e.getCause());
+            }
+
+            throw primaryFailure;
+        }
+
+        Files.move(this.hedgeFile(), this.partFile(), StandardCopyOption.REPLACE_EXISTING);
+
+        return hedgeSha1;
+    }
+
+    public boolean startHedge() {
+        synchronized (this.hedgeLock) {
+            if (this.hedge != null || this.race != HttpDownload.RACE_OPEN || this.streamRequest == null) {
+                return false;
+            }
+
+            // The hedge does not report progress, the primary already counted its bytes
+            Request request = this.streamRequest.newBuilder()
+                .tag(ProgressListener.class, null)
+                .build();
+
+            Call call = this.httpClient.newCall(request);
+            this.hedgeCall = call;
+            this.hedge = CompletableFuture.supplyAsync(() -> this.runHedge(call), this.engine.getExecutor());
+
+            Log.debug("Hedging slow download of '" + this.saveAs + "'");
+
+            return true;
+        }
+    }
+
+    private String runHedge(Call call) {
+        Path hedgeFile = this.hedgeFile();
+        MessageDigest digest = null;
+        long bytes = 0;
+
+        try (Response response = call.execute();
+             ReadableByteChannel src = Channels.newChannel(Objects.requireNonNull(response.body()).byteStream());
+             FileChannel fileChannel = FileChannel.open(hedgeFile,
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            HttpDownload.checkStatus(response, this.url);
+
+            if (this.sha1 != null) {
+                digest = HashUtils.newDigest("SHA-1");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(HttpDownload.BUFFER_SIZE);
+            int read;
+
+            while ((read = src.read(buffer)) != -1) {
+                if (digest != null) {
+                    digest.update(buffer.array(), 0, read);
+                }
+
+                buffer.flip();
+
+                while (buffer.hasRemaining()) {
+                    bytes += fileChannel.write(buffer);
                 }
+
+                buffer.clear();
             }
+        } catch (IOException e) {
+            HttpDownload.deleteQuietly(hedgeFile);
+
+            throw new CompletionException(e);
+        }
+
+        synchronized (this.hedgeLock) {
+            if (this.race != HttpDownload.RACE_OPEN && this.race != HttpDownload.HEDGE_WON) {
+                HttpDownload.deleteQuietly(hedgeFile);
+
+                throw new CompletionException(new IOException("Hedged request for '" + this.saveAs + "' lost the race"));
+            }
+
+            this.race = HttpDownload.HEDGE_WON;
+            this.streamCall.cancel();
+        }
+
+        this.engine.getMetrics().hedgeWon(this.saveAs);
+
+        if (this.progressListener != null) {
+            this.progressListener.update(bytes, bytes, Math.max(0L, bytes - this.streamedBytes.get()), true);
+        }
+
+        return digest == null ? null : HashUtils.toHex(digest.digest());
+    }
+
+    private Path hedgeFile() {
+        return this.saveAs.resolveSibling(this.saveAs.getFileName() + ".hedge");
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    public boolean isHedged() {
+        synchronized (this.hedgeLock) {
+            return this.hedge != null;
         }
     }
 
-    public void checkHash() throws IOException {
+    public long getStreamStart() {
+        return this.streamStart;
+    }
+
+    public double getStreamRate(long now) {
+        long elapsed = now - this.streamStart;
+
+        return elapsed <= 0 ? 0.0D : this.streamedBytes.get() * 1_000_000_000.0D / elapsed;
+    }
+
+    // Copies src into dst at position, journaling the bytes committed relative to the segment start
+    private long transfer(ReadableByteChannel src, FileChannel dst, long segmentStart, long position, long limit,
+                          MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HttpDownload.BUFFER_SIZE);
+        long end = limit == Long.MAX_VALUE ? Long.MAX_VALUE : position + limit;
+        long lastCommit = position;
+
+        try {
+            while (position < end) {
+                buffer.clear();
+
+                int read = src.read(buffer);
+                if (read == -1) {
+                    break;
+                }
+
+                if (digest != null) {
+                    digest.update(buffer.array(), 0, read);
+                }
+
+                buffer.flip();
+
+                while (buffer.hasRemaining()) {
+                    position += dst.write(buffer, position);
+                }
+
+                this.streamedBytes.addAndGet(read);
+
+                if (this.engine != null && position - lastCommit >= HttpDownload.COMMIT_INTERVAL) {
+                    dst.force(false);
+                    this.engine.getJournal().committed(this.saveAs, segmentStart, position - segmentStart);
+                    lastCommit = position;
+                }
+            }
+        } finally {
+            // Bytes written before a failure are still on disk, so they are committed too
+            if (this.engine != null && position != lastCommit) {
+                try {
+                    dst.force(false);
+                    this.engine.getJournal().committed(this.saveAs, segmentStart, position - segmentStart);
+                } catch (IOException e) {
+                    Log.debug("Could not commit the bytes written to '" + this.saveAs + "': " + e.getMessage());
+                }
+            }
+        }
+
+        return position;
+    }
+
+    private boolean isSegmentable() {
+        return this.engine != null &&
+            this.engine.getSegmentCount() > 1 &&
+            this.expectedSize > 0 &&
+            this.expectedSize >= this.engine.getSegmentThreshold();
+    }
+
+    private void journalStarted(int segments) {
+        if (this.engine != null) {
+            this.engine.getJournal().started(this.url, this.saveAs, this.sha1, this.expectedSize, segments);
+        }
+    }
+
+    private Request.Builder newRequest(String url) {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .get();
+
+        if (this.progressListener != null) {
+            builder.tag(ProgressListener.class, this.progressListener);
+        }
+
+        builder.tag(DownloadPriority.class, this.priority);
+
+        return builder;
+    }
+
+    private Request rangeRequest(long start, long end) {
+        return this.newRequest(this.url)
+                .header("Range", "bytes=" + start + "-" + end)
+                .build();
+    }
+
+    private boolean downloadLzma(boolean partiallyDownloaded) throws IOException {
+        if (this.lzmaUrl == null || partiallyDownloaded) {
+            return false;
+        }
+
+        this.journalStarted(0);
+
+        try (Response response = this.httpClient.newCall(this.newRequest(this.lzmaUrl).build()).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Server answered " + response.code());
+            }
+
+            MessageDigest digest = this.sha1 == null ? null : HashUtils.newDigest("SHA-1");
+
+            InputStream inputStream = new LZMAInputStream(
+                new BufferedInputStream(Objects.requireNonNull(response.body()).byteStream()));
+
+            if (digest != null) {
+                inputStream = new DigestInputStream(inputStream, digest);
+            }
+
+            try (InputStream in = inputStream) {
+                Files.copy(in, this.partFile(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            if (digest != null) {
+                this.downloadedSha1 = HashUtils.toHex(digest.digest());
+            }
+
+            return true;
+        } catch (IOException e) {
+            Log.warn("Could not download LZMA variant of '" + this.saveAs + "', falling back to raw: " + e.getMessage());
+            FileUtils.delete(this.partFile());
+
+            return false;
+        }
+    }
+
+    private boolean downloadSegmented(DownloadJournal.Entry interrupted) throws IOException {
+        int segments = interrupted == null ? this.engine.getSegmentCount() : interrupted.getSegments();
+        long segmentSize = (this.expectedSize + segments - 1) / segments;
+
+        SegmentCalls calls = new SegmentCalls();
+        Response first = interrupted == null ?
+            calls.newCall(this.httpClient, this.rangeRequest(0, segmentSize - 1)).execute() : null;
+
+        if (first != null && first.code() != 206) {
+            Log.debug("Server did not answer 206 for a range request to " + this.url + ", using a single stream");
+            first.close();
+
+            return false;
+        }
+
+        this.journalStarted(segments);
+
+        OpenOption[] options = interrupted == null ?
+            new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE} :
+            new OpenOption[]{StandardOpenOption.WRITE};
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        try (first; FileChannel fileChannel = FileChannel.open(this.partFile(), options)) {
+            try {
+                if (interrupted == null) {
+                    fileChannel.write(ByteBuffer.allocate(1), this.expectedSize - 1);
+                }
+
+                for (long start = first == null ? 0 : segmentSize; start < this.expectedSize; start += segmentSize) {
+                    long segmentStart = start;
+                    long segmentEnd = Math.min(start + segmentSize, this.expectedSize) - 1;
+                    long committed = interrupted == null ? 0 : interrupted.getCommitted(segmentStart);
+
+                    if (committed > 0) {
+                        this.engine.getJournal().committed(this.saveAs, segmentStart, committed);
+                    }
+
+                    long resumeFrom = segmentStart + committed;
+                    if (resumeFrom > segmentEnd) {
+                        continue;
+                    }
+
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        Call call = calls.newCall(this.httpClient, this.rangeRequest(resumeFrom, segmentEnd));
+
+                        try (Response response = call.execute()) {
+                            if (response.code() != 206) {
+                                calls.rangesRefused();
+
+                                throw new IOException("Expected 206 for segment " + resumeFrom + "-" + segmentEnd +
+                                    " of " + this.url + ", got " + response.code());
+                            }
+
+                            this.writeSegment(response, fileChannel, segmentStart, resumeFrom, segmentEnd - resumeFrom + 1);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, this.engine.getExecutor()).whenComplete((result, t) -> {
+                        if (t != null) {
+                            calls.fail(t);
+                        }
+                    }));
+                }
+
+                if (first != null) {
+                    this.writeSegment(first, fileChannel, 0, 0, segmentSize);
+                }
+            } catch (IOException | RuntimeException e) {
+                calls.fail(e);
+            } finally {
+                // Cancelled segments are waited for too, none of them may write once the channel is closed
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).handle((result, t) -> null).join();
+            }
+        } finally {
+            // Only after every segment has stopped, a late commit would bring the dropped entry back
+            if (calls.isRangesRefused()) {
+                // The server stopped honouring ranges, so the segments on disk can never be completed
+                this.engine.getJournal().failed(this.saveAs);
+            }
+        }
+
+        // Otherwise the file is kept, the journal knows which ranges are already on disk
+        calls.throwFailure();
+
+        return true;
+    }
+
+    private void writeSegment(Response response, FileChannel fileChannel, long segmentStart, long position,
+                              long length) throws IOException {
+        long end;
+
+        try (ReadableByteChannel src = Channels.newChannel(Objects.requireNonNull(response.body()).byteStream())) {
+            end = this.transfer(src, fileChannel, segmentStart, position, length, null);
+        }
+
+        if (end != position + length) {
+            throw new IOException("Segment ended at " + end + ", expected " + (position + length));
+        }
+    }
+
+    private void checkHash() throws IOException {
         if (this.sha1 != null) {
-            String sha1 = HashUtils.sha1(this.saveAs);
+            String sha1 = this.downloadedSha1 == null ? HashUtils.sha1(this.partFile()) : this.downloadedSha1;
+            this.downloadedSha1 = null;
+
             if (!this.sha1.equals(sha1)) {
-                FileUtils.delete(this.saveAs);
+                FileUtils.delete(this.partFile());
+
+                if (this.engine != null) {
+                    this.engine.getJournal().failed(this.saveAs);
+                }
+
                 throw new IOException("SHA-1 does not match for file '" + this.saveAs + "'. Bad file was deleted");
             }
         }
     }
 
+    private boolean isVerified(Path file) throws IOException {
+        if (this.sha1 == null) {
+            return true;
+        }
+
+        if (this.engine != null) {
+            try (WorkDirLocks.Handle lock = this.engine.getObjectStore().getLocks().shared(WorkDirLocks.objectShard(this.sha1))) {
+                return this.engine.getFileIndex().matches(file, this.expectedSize, this.sha1);
+            }
+        }
+
+        return HashUtils.sha1(file).equals(this.sha1);
+    }
+
     public void copyFile() throws IOException {
-        if (this.copyTo == null) {
-            return;
+        // copyTo points into an instance, which the game may write to, so it gets its own copy instead of a link
+        if (this.copyTo != null) {
+            this.copyFile(this.copyTo, false);
         }
 
-        if (Files.exists(this.copyTo) && Files.size(this.copyTo) == this.expectedSize && HashUtils.sha1(this.copyTo).equals(this.sha1)) {
-            return;
+        for (Path destination : this.extraDestinations) {
+            this.copyFile(destination, true);
         }
+    }
+
+    private void copyFile(Path target, boolean link) throws IOException {
+        if (Files.exists(target)) {
+            if (link && Files.isSameFile(this.saveAs, target)) {
+                return;
+            }
 
-        Files.copy(this.saveAs, this.copyTo, StandardCopyOption.REPLACE_EXISTING);
+            if (!Files.isSameFile(this.saveAs, target) && Files.size(target) == this.expectedSize && this.isVerified(target)) {
+                return;
+            }
+        } else {
+            FileUtils.createDirectoryIfNotExists(target.getParent());
+        }
+
+        if (link) {
+            ObjectStore.linkOrCopy(this.saveAs, target);
+        } else {
+            ObjectStore.copy(this.saveAs, target);
+        }
     }
 
+    // Bytes already on disk, an unfinished partial file takes precedence over an outdated target
     public long size() {
-        if (Files.exists(this.saveAs)) {
+        Path file = Files.exists(this.partFile()) ? this.partFile() : this.saveAs;
+
+        if (Files.exists(file)) {
             try {
-                return Files.size(this.saveAs);
+                return Files.size(file);
             } catch (IOException e) {
-                Log.error("Could not get file size of " + this.saveAs, e);
+                Log.error("Could not get file size of " + file, e);
             }
         }
 
@@ -174,10 +919,99 @@ public class HttpDownload {
         this.httpClient = httpClient;
     }
 
+    public void setEngine(DownloadEngine engine) {
+        this.engine = engine;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public DownloadPriority getPriority() {
+        return this.priority;
+    }
+
+    public void setPriority(DownloadPriority priority) {
+        this.priority = priority;
+    }
+
     public long expectedSize() {
         return this.expectedSize;
     }
 
+    // Bytes that go over the wire for the whole file
+    public long transferSize() {
+        return this.usesLzma() ? this.lzmaSize : this.expectedSize;
+    }
+
+    // Bytes of transferSize() that are already on disk, so that progress compares like with like
+    public long presentSize() {
+        long size = this.size();
+
+        if (size < 0 || !this.usesLzma()) {
+            return size;
+        }
+
+        // A complete target stands for the whole compressed transfer, anything less is decoded over again
+        return size == this.expectedSize ? this.lzmaSize : 0L;
+    }
+
+    // The LZMA variant is only fetched from scratch, a partial file is resumed raw
+    private boolean usesLzma() {
+        return this.lzmaUrl != null && !Files.exists(this.partFile());
+    }
+
+    private interface Transfer {
+        boolean run() throws IOException;
+    }
+
+    // A failing segment cancels the others, the rest of the file is of no use without it
+    private static final class SegmentCalls {
+        private final List<Call> calls = new ArrayList<>();
+        private Throwable failure;
+        private boolean rangesRefused;
+
+        public synchronized Call newCall(OkHttpClient httpClient, Request request) {
+            Call call = httpClient.newCall(request);
+
+            if (this.failure == null) {
+                this.calls.add(call);
+            } else {
+                call.cancel();
+            }
+
+            return call;
+        }
+
+        // The first failure is the one reported, the cancellations it causes only follow from it
+        public synchronized void fail(Throwable t) {
+            if (this.failure != null) {
+                return;
+            }
+
+            this.failure = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            this.calls.forEach(Call::cancel);
+        }
+
+        public synchronized void rangesRefused() {
+            this.rangesRefused = true;
+        }
+
+        public synchronized boolean isRangesRefused() {
+            return this.rangesRefused;
+        }
+
+        public synchronized void throwFailure() throws IOException {
+            if (this.failure instanceof IOException ioException) {
+                throw ioException;
+            }
+
+            if (this.failure != null) {
+                throw new IOException(this.failure);
+            }
+        }
+    }
+
     public static final class Builder {
         private OkHttpClient httpClient;
         private String url;
@@ -187,6 +1021,8 @@ public class HttpDownload {
         private boolean forceDownload;
         private boolean executable;
         private long expectedSize = HttpDownload.EXPECTED_SIZE_NOT_SET;
+        private String lzmaUrl;
+        private long lzmaSize;
 
         public Builder() {
 
@@ -232,11 +1068,18 @@ public class HttpDownload {
             return this;
         }
 
+        public Builder lzma(String lzmaUrl, long lzmaSize) {
+            this.lzmaUrl = lzmaUrl;
+            this.lzmaSize = lzmaSize;
+            return this;
+        }
+
         public HttpDownload build() {
             return new HttpDownload(
                     this.httpClient, this.url, this.saveAs,
                     this.copyTo, this.forceDownload, this.sha1,
-                    this.executable, this.expectedSize
+                    this.executable, this.expectedSize,
+                    this.lzmaUrl, this.lzmaSize
             );
         }
     }
@@ -0,0 +1,39 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import java.io.IOException;
+
+public class HttpStatusException extends IOException {
+    private final int code;
+
+    public HttpStatusException(String url, int code) {
+        super("Server answered " + code + " for " + url);
+
+        this.code = code;
+    }
+
+    public boolean isRetryable() {
+        return this.code == 408 || this.code == 429 || this.code >= 500;
+    }
+
+    public int getCode() {
+        return this.code;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.download;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public class SingleFlight {
+    private final Map<Path, Flight> flights;
+
+    public SingleFlight() {
+        this.flights = new HashMap<>();
+    }
+
+    // Transfers to the same path run one after another. The task learns whether the transfer right before it
+    // already produced the same content, in which case it only has to verify and link the file
+    public CompletableFuture<Void> run(Path target, String sha1, Function<Boolean, CompletableFuture<Void>> task) {
+        Path key = target.toAbsolutePath().normalize();
+        Flight flight = new Flight(sha1);
+        Flight previous;
+
+        synchronized (this.flights) {
+            previous = this.flights.put(key, flight);
+        }
+
+        CompletableFuture<Boolean> start = previous == null ?
+            CompletableFuture.completedFuture(false) :
+            previous.done.thenApply(succeeded -> succeeded && sha1 != null && sha1.equals(previous.sha1));
+
+        CompletableFuture<Void> result = start.thenCompose(task);
+
+        result.whenComplete((r, t) -> {
+            synchronized (this.flights) {
+                this.flights.remove(key, flight);
+            }
+
+            flight.done.complete(t == null);
+        });
+
+        return result;
+    }
+
+    private static final class Flight {
+        private final String sha1;
+        private final CompletableFuture<Boolean> done;
+
+        public Flight(String sha1) {
+            this.sha1 = sha1;
+            this.done = new CompletableFuture<>();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.mirror;
+
+public class Mirror {
+    private static final double EWMA_WEIGHT = 0.2D;
+
+    // Size of a typical object, used to weigh throughput against latency in the score
+    private static final double REFERENCE_BYTES = 256.0D * 1024.0D;
+
+    // Bodies smaller than this finish before TCP ramps up, their throughput is meaningless
+    private static final long MIN_MEASURED_BYTES = 64L * 1024L;
+
+    private static final long BASE_COOLDOWN_MILLIS = 30_000L;
+    private static final long MAX_COOLDOWN_MILLIS = 10L * 60_000L;
+
+    private final String baseUrl;
+    private final boolean origin;
+
+    private double latencyMillis = -1.0D;
+    private double bytesPerSecond = -1.0D;
+    private int consecutiveFailures;
+    private long unhealthyUntil;
+
+    public Mirror(String baseUrl, boolean origin) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.origin = origin;
+    }
+
+    public String resolve(String path) {
+        return this.baseUrl + path;
+    }
+
+    public synchronized void onResponse(long latencyNanos) {
+        this.latencyMillis = Mirror.ewma(this.latencyMillis, latencyNanos / 1_000_000.0D);
+        this.consecutiveFailures = 0;
+        this.unhealthyUntil = 0;
+    }
+
+    public synchronized void onTransfer(long bytes, long nanos) {
+        if (bytes < Mirror.MIN_MEASURED_BYTES || nanos <= 0) {
+            return;
+        }
+
+        this.bytesPerSecond = Mirror.ewma(this.bytesPerSecond, bytes * 1_000_000_000.0D / nanos);
+    }
+
+    public synchronized void onFailure() {
+        this.consecutiveFailures++;
+
+        long cooldown = Math.min(
+            Mirror.MAX_COOLDOWN_MILLIS,
+            Mirror.BASE_COOLDOWN_MILLIS << Math.min(this.consecutiveFailures - 1, 10)
+        );
+        this.unhealthyUntil = System.currentTimeMillis() + cooldown;
+    }
+
+    public synchronized boolean isHealthy() {
+        return System.currentTimeMillis() >= this.unhealthyUntil;
+    }
+
+    // Lower is better. Mirrors that were never measured score 0, so each one gets tried
+    public synchronized double getScore() {
+        if (this.latencyMillis < 0) {
+            return 0.0D;
+        }
+
+        double score = this.latencyMillis;
+
+        if (this.bytesPerSecond > 0) {
+            score += Mirror.REFERENCE_BYTES * 1000.0D / this.bytesPerSecond;
+        }
+
+        return score;
+    }
+
+    private static double ewma(double average, double sample) {
+        return average < 0 ? sample : average + Mirror.EWMA_WEIGHT * (sample - average);
+    }
+
+    public String getBaseUrl() {
+        return this.baseUrl;
+    }
+
+    public boolean isOrigin() {
+        return this.origin;
+    }
+
+    public synchronized double getLatencyMillis() {
+        return this.latencyMillis;
+    }
+
+    public synchronized double getBytesPerSecond() {
+        return this.bytesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return this.baseUrl;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.mirror;
+
+import me.theentropyshard.teslauncher.minecraft.ApiUrls;
+import me.theentropyshard.teslauncher.minecraft.mods.fabric.FabricMetaAPI;
+
+public enum MirrorEndpoint {
+    // More specific origins come first, the first matching endpoint wins
+    MANIFEST("manifest", "https://piston-meta.mojang.com/mc/game/"),
+    PISTON_META("piston-meta", "https://piston-meta.mojang.com/", "https://launchermeta.mojang.com/"),
+    PISTON_DATA("piston-data", "https://piston-data.mojang.com/"),
+    RESOURCES("resources", ApiUrls.RESOURCES),
+    LIBRARIES("libraries", ApiUrls.LIBRARIES),
+    FABRIC_META("fabric-meta", FabricMetaAPI.OFFICIAL_FABRIC_URL);
+
+    private final String key;
+    private final String[] origins;
+
+    MirrorEndpoint(String key, String... origins) {
+        this.key = key;
+        this.origins = origins;
+    }
+
+    public static MirrorEndpoint getByKey(String key) {
+        for (MirrorEndpoint endpoint : MirrorEndpoint.values()) {
+            if (endpoint.key.equals(key)) {
+                return endpoint;
+            }
+        }
+
+        return null;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public String[] getOrigins() {
+        return this.origins;
+    }
+
+    public String getPrimaryOrigin() {
+        return this.origins[0];
+    }
+}
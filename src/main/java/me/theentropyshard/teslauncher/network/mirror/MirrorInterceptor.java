@@ -0,0 +1,164 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.mirror;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+
+public class MirrorInterceptor implements Interceptor {
+    private final MirrorRegistry registry;
+
+    public MirrorInterceptor(MirrorRegistry registry) {
+        this.registry = registry;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+
+        MirrorRegistry.Match match = this.registry.match(request.url().toString());
+
+        if (match == null || !this.registry.hasMirrors(match.getEndpoint())) {
+            return chain.proceed(request);
+        }
+
+        List<Mirror> candidates = this.registry.rank(match.getEndpoint());
+        IOException failure = null;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            Mirror mirror = candidates.get(i);
+            boolean lastResort = i == candidates.size() - 1;
+
+            Request rewritten = request.newBuilder()
+                .url(mirror.resolve(match.getPath()))
+                .build();
+
+            long start = System.nanoTime();
+
+            Response response;
+            try {
+                response = chain.proceed(rewritten);
+            } catch (IOException e) {
+                // A cancelled call fails on every mirror, none of them is to blame
+                if (chain.call().isCanceled()) {
+                    throw e;
+                }
+
+                mirror.onFailure();
+                Log.warn("Mirror " + mirror + " failed for " + match.getPath() + ": " + e.getMessage());
+                failure = e;
+
+                continue;
+            }
+
+            int code = response.code();
+
+            // A mirror that does not have the file yet is not unhealthy, it just cannot serve this request
+            if (!lastResort && (code == 404 || code == 429 || code >= 500)) {
+                if (code != 404) {
+                    mirror.onFailure();
+                }
+
+                response.close();
+
+                continue;
+            }
+
+            mirror.onResponse(System.nanoTime() - start);
+
+            ResponseBody body = response.body();
+            if (body == null) {
+                return response;
+            }
+
+            return response.newBuilder()
+                .body(new MeasuredResponseBody(body, mirror))
+                .build();
+        }
+
+        throw failure != null ? failure : new IOException("No mirror could serve " + match.getPath());
+    }
+
+    private static final class MeasuredResponseBody extends ResponseBody {
+        private final ResponseBody responseBody;
+        private final Mirror mirror;
+        private final long start;
+
+        private BufferedSource bufferedSource;
+        private long bytes;
+
+        public MeasuredResponseBody(ResponseBody responseBody, Mirror mirror) {
+            this.responseBody = responseBody;
+            this.mirror = mirror;
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public MediaType contentType() {
+            return this.responseBody.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return this.responseBody.contentLength();
+        }
+
+        @NotNull
+        @Override
+        public BufferedSource source() {
+            if (this.bufferedSource == null) {
+                this.bufferedSource = Okio.buffer(new ForwardingSource(this.responseBody.source()) {
+                    @Override
+                    public long read(@NotNull Buffer sink, long byteCount) throws IOException {
+                        long bytesRead = super.read(sink, byteCount);
+
+                        if (bytesRead == -1) {
+                            MeasuredResponseBody.this.mirror.onTransfer(
+                                MeasuredResponseBody.this.bytes, System.nanoTime() - MeasuredResponseBody.this.start
+                            );
+                        } else {
+                            MeasuredResponseBody.this.bytes += bytesRead;
+                        }
+
+                        return bytesRead;
+                    }
+                });
+            }
+
+            return this.bufferedSource;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.mirror;
+
+import me.theentropyshard.teslauncher.logging.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class MirrorRegistry {
+    private final Map<MirrorEndpoint, List<Mirror>> mirrors;
+    private final Map<MirrorEndpoint, Mirror> best;
+
+    public MirrorRegistry(Map<String, List<String>> configured) {
+        this.mirrors = new EnumMap<>(MirrorEndpoint.class);
+        this.best = new EnumMap<>(MirrorEndpoint.class);
+
+        if (configured == null) {
+            return;
+        }
+
+        for (Map.Entry<String, List<String>> entry : configured.entrySet()) {
+            MirrorEndpoint endpoint = MirrorEndpoint.getByKey(entry.getKey());
+
+            if (endpoint == null) {
+                Log.warn("Unknown mirror endpoint '" + entry.getKey() + "'");
+
+                continue;
+            }
+
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+
+            List<Mirror> list = new ArrayList<>();
+            for (String baseUrl : entry.getValue()) {
+                list.add(new Mirror(baseUrl, false));
+            }
+
+            // The official origin is always the last resort
+            list.add(new Mirror(endpoint.getPrimaryOrigin(), true));
+
+            this.mirrors.put(endpoint, Collections.unmodifiableList(list));
+        }
+    }
+
+    public Match match(String url) {
+        for (MirrorEndpoint endpoint : MirrorEndpoint.values()) {
+            for (String origin : endpoint.getOrigins()) {
+                if (url.startsWith(origin)) {
+                    return new Match(endpoint, url.substring(origin.length()));
+                }
+            }
+        }
+
+        return null;
+    }
+
+    public boolean hasMirrors(MirrorEndpoint endpoint) {
+        return this.mirrors.containsKey(endpoint);
+    }
+
+    // Healthy mirrors by score, configuration order breaking ties, then the unhealthy ones as a last resort
+    public List<Mirror> rank(MirrorEndpoint endpoint) {
+        List<Mirror> configured = this.mirrors.getOrDefault(endpoint, Collections.emptyList());
+
+        List<Mirror> healthy = new ArrayList<>();
+        List<Mirror> unhealthy = new ArrayList<>();
+
+        for (Mirror mirror : configured) {
+            (mirror.isHealthy() ? healthy : unhealthy).add(mirror);
+        }
+
+        healthy.sort(Comparator.comparingDouble(Mirror::getScore));
+        healthy.addAll(unhealthy);
+
+        if (!healthy.isEmpty()) {
+            this.updateBest(endpoint, healthy.get(0));
+        }
+
+        return healthy;
+    }
+
+    private synchronized void updateBest(MirrorEndpoint endpoint, Mirror mirror) {
+        if (this.best.put(endpoint, mirror) != mirror) {
+            Log.info("Using " + mirror + " for " + endpoint.getKey());
+        }
+    }
+
+    public List<Mirror> getMirrors(MirrorEndpoint endpoint) {
+        return this.mirrors.getOrDefault(endpoint, Collections.emptyList());
+    }
+
+    public static final class Match {
+        private final MirrorEndpoint endpoint;
+        private final String path;
+
+        public Match(MirrorEndpoint endpoint, String path) {
+            this.endpoint = endpoint;
+            this.path = path;
+        }
+
+        public MirrorEndpoint getEndpoint() {
+            return this.endpoint;
+        }
+
+        public String getPath() {
+            return this.path;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.peer;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.network.download.BandwidthLimitInterceptor;
+import me.theentropyshard.teslauncher.network.progress.ProgressListener;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+public class PeerClient {
+    private static final long COOLDOWN_MILLIS = 60_000L;
+
+    private final OkHttpClient httpClient;
+    private final List<Peer> peers;
+
+    public PeerClient(OkHttpClient parent, List<String> addresses) {
+        // A peer that is switched off must not stall every download for the full connect timeout
+        OkHttpClient.Builder builder = parent.newBuilder()
+            .connectTimeout(2, TimeUnit.SECONDS)
+            .readTimeout(15, TimeUnit.SECONDS);
+
+        // LAN transfers do not compete for the internet link the bandwidth limits protect
+        builder.networkInterceptors().removeIf(interceptor -> interceptor instanceof BandwidthLimitInterceptor);
+
+        this.httpClient = builder.build();
+
+        this.peers = new ArrayList<>();
+
+        if (addresses != null) {
+            for (String address : addresses) {
+                this.peers.add(new Peer("http://" + address + PeerServer.OBJECTS_PATH));
+            }
+        }
+    }
+
+    public boolean hasPeers() {
+        return !this.peers.isEmpty();
+    }
+
+    // Returns true only if a peer delivered a file with the expected size and SHA-1
+    public boolean fetch(String sha1, long expectedSize, Path target, ProgressListener listener) {
+        for (Peer peer : this.peers) {
+            if (!peer.isHealthy()) {
+                continue;
+            }
+
+            Request request = new Request.Builder()
+                .url(peer.baseUrl + sha1)
+                .get()
+                .build();
+
+            try (Response response = this.httpClient.newCall(request).execute()) {
+                if (response.code() == 404) {
+                    continue;
+                }
+
+                if (!response.isSuccessful()) {
+                    throw new IOException("Peer answered " + response.code());
+                }
+
+                MessageDigest digest = HashUtils.newDigest("SHA-1");
+
+                try (InputStream inputStream = new DigestInputStream(Objects.requireNonNull(response.body()).byteStream(), digest)) {
+                    Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                long size = Files.size(target);
+
+                if ((expectedSize < 0 || size == expectedSize) && sha1.equals(HashUtils.toHex(digest.digest()))) {
+                    // Reported only now, bytes of a bad copy would be counted again when the origin sends the file
+                    if (listener != null) {
+                        listener.update(size, size, size, true);
+                    }
+
+                    return true;
+                }
+
+                Log.warn("Peer " + peer.baseUrl + " served a bad copy of " + sha1);
+                FileUtils.delete(target);
+                peer.markUnhealthy();
+            } catch (IOException e) {
+                Log.debug("Peer " + peer.baseUrl + " failed: " + e.getMessage());
+                peer.markUnhealthy();
+            }
+        }
+
+        return false;
+    }
+
+    private static final class Peer {
+        private final String baseUrl;
+
+        private volatile long unhealthyUntil;
+
+        public Peer(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public boolean isHealthy() {
+            return System.currentTimeMillis() >= this.unhealthyUntil;
+        }
+
+        public void markUnhealthy() {
+            this.unhealthyUntil = System.currentTimeMillis() + PeerClient.COOLDOWN_MILLIS;
+        }
+    }
+}
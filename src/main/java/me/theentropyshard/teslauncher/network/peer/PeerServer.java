@@ -0,0 +1,259 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.peer;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class PeerServer {
+    public static final String OBJECTS_PATH = "/objects/";
+
+    private static final Pattern REQUEST_LINE = Pattern.compile("^(GET|HEAD) " + PeerServer.OBJECTS_PATH + "([0-9a-f]{40}) HTTP/1\\.[01]$");
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+    private static final int IDLE_TIMEOUT_MILLIS = 15_000;
+    private static final int REJECT_TIMEOUT_MILLIS = 1_000;
+
+    private final ObjectStore objectStore;
+    private final List<Path> hashNamedDirs;
+    private final int port;
+    private final Semaphore connections;
+    private final ExecutorService workers;
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptThread;
+
+    // hashNamedDirs are directories laid out like the object store (xx/sha1), such as assets/objects
+    public PeerServer(ObjectStore objectStore, List<Path> hashNamedDirs, int port, int maxConnections) {
+        this.objectStore = objectStore;
+        this.hashNamedDirs = hashNamedDirs;
+        this.port = port;
+        this.connections = new Semaphore(Math.max(1, maxConnections));
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "Peer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    public void start() throws IOException {
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(this.port));
+
+        this.acceptThread = new Thread(this::acceptLoop, "Peer-Server");
+        this.acceptThread.setDaemon(true);
+        this.acceptThread.start();
+
+        Log.info("Serving the object store to LAN peers on port " + this.getPort());
+    }
+
+    private void acceptLoop() {
+        while (this.serverChannel.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = this.serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                Log.error("Could not accept peer connection", e);
+
+                continue;
+            }
+
+            if (!this.connections.tryAcquire()) {
+                this.workers.execute(() -> this.reject(channel));
+
+                continue;
+            }
+
+            this.workers.execute(() -> {
+                try (channel) {
+                    this.serve(channel);
+                } catch (IOException e) {
+                    Log.debug("Peer connection closed: " + e.getMessage());
+                } finally {
+                    this.connections.release();
+                }
+            });
+        }
+    }
+
+    private void reject(SocketChannel channel) {
+        try (channel) {
+            // Closing with the request still unread would reset the connection before the peer sees the 503
+            channel.socket().setSoTimeout(PeerServer.REJECT_TIMEOUT_MILLIS);
+            PeerServer.readHead(channel.socket().getInputStream());
+            PeerServer.writeHead(channel, "503 Service Unavailable", 0, false);
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    private void serve(SocketChannel channel) throws IOException {
+        channel.socket().setSoTimeout(PeerServer.IDLE_TIMEOUT_MILLIS);
+        channel.socket().setTcpNoDelay(true);
+
+        InputStream inputStream = channel.socket().getInputStream();
+
+        while (true) {
+            String[] lines;
+            try {
+                lines = PeerServer.readHead(inputStream);
+            } catch (SocketTimeoutException e) {
+                return;
+            }
+
+            if (lines == null) {
+                return;
+            }
+
+            boolean keepAlive = true;
+            for (int i = 1; i < lines.length; i++) {
+                if (lines[i].equalsIgnoreCase("Connection: close")) {
+                    keepAlive = false;
+                }
+            }
+
+            Matcher matcher = PeerServer.REQUEST_LINE.matcher(lines[0]);
+
+            if (!matcher.matches()) {
+                PeerServer.writeHead(channel, "400 Bad Request", 0, false);
+
+                return;
+            }
+
+            Path file = this.find(matcher.group(2));
+
+            if (file == null) {
+                PeerServer.writeHead(channel, "404 Not Found", 0, keepAlive);
+            } else {
+                try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = fileChannel.size();
+
+                    PeerServer.writeHead(channel, "200 OK", size, keepAlive);
+
+                    if (matcher.group(1).equals("GET")) {
+                        long position = 0;
+
+                        // transferTo lets the kernel copy straight from the page cache to the socket
+                        while (position < size) {
+                            position += fileChannel.transferTo(position, size - position, channel);
+                        }
+                    }
+                }
+            }
+
+            if (!keepAlive) {
+                return;
+            }
+        }
+    }
+
+    private Path find(String sha1) {
+        if (this.objectStore.contains(sha1)) {
+            return this.objectStore.getPath(sha1);
+        }
+
+        for (Path dir : this.hashNamedDirs) {
+            Path file = dir.resolve(sha1.substring(0, 2)).resolve(sha1);
+
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+
+        return null;
+    }
+
+    // Returns the request line followed by the header lines, or null when the peer closed the connection
+    private static String[] readHead(InputStream inputStream) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int read;
+
+        while ((read = inputStream.read()) != -1) {
+            builder.append((char) read);
+
+            if (builder.length() > PeerServer.MAX_HEADER_BYTES) {
+                throw new IOException("Request head too large");
+            }
+
+            int length = builder.length();
+            if (length >= 4 && builder.charAt(length - 1) == '\n' && builder.charAt(length - 2) == '\r' &&
+                builder.charAt(length - 3) == '\n' && builder.charAt(length - 4) == '\r') {
+
+                return builder.substring(0, length - 4).split("\r\n");
+            }
+        }
+
+        return null;
+    }
+
+    private static void writeHead(SocketChannel channel, String status, long contentLength, boolean keepAlive) throws IOException {
+        String head = "HTTP/1.1 " + status + "\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Length: " + contentLength + "\r\n" +
+            "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n" +
+            "\r\n";
+
+        ByteBuffer buffer = ByteBuffer.wrap(head.getBytes(StandardCharsets.US_ASCII));
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public int getPort() {
+        return this.serverChannel == null ? this.port : this.serverChannel.socket().getLocalPort();
+    }
+
+    public void stop() {
+        try {
+            if (this.serverChannel != null) {
+                this.serverChannel.close();
+            }
+        } catch (IOException e) {
+            Log.error("Could not close peer server", e);
+        }
+
+        this.workers.shutdownNow();
+    }
+}
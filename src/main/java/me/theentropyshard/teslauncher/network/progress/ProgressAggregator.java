@@ -0,0 +1,108 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.progress;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+public class ProgressAggregator implements ProgressListener {
+    // time constant of the speed average, in nanoseconds
+    private static final double SPEED_TAU = 2_000_000_000.0D;
+
+    private final LongAdder downloadedBytes;
+    private final LongAdder filesDone;
+    private final LongAdder filesFailed;
+    private final IntSupplier activeConnections;
+    private final IntSupplier concurrencyLimit;
+    private final long totalBytes;
+    private final int filesTotal;
+
+    private long lastSampleTime;
+    private long lastSampleBytes;
+    private double bytesPerSecond;
+    private long lastPublishedBytes = -1L;
+    private long lastPublishedFiles = -1L;
+
+    public ProgressAggregator(long totalBytes, long initialBytes, int filesTotal, IntSupplier activeConnections,
+                              IntSupplier concurrencyLimit) {
+        this.downloadedBytes = new LongAdder();
+        this.downloadedBytes.add(initialBytes);
+        this.filesDone = new LongAdder();
+        this.filesFailed = new LongAdder();
+        this.activeConnections = activeConnections;
+        this.concurrencyLimit = concurrencyLimit;
+        this.totalBytes = totalBytes;
+        this.filesTotal = filesTotal;
+
+        this.lastSampleTime = System.nanoTime();
+        this.lastSampleBytes = initialBytes;
+    }
+
+    @Override
+    public void update(long contentLength, long totalBytesRead, long bytesReadThisTime, boolean done) {
+        if (bytesReadThisTime > 0) {
+            this.downloadedBytes.add(bytesReadThisTime);
+        }
+    }
+
+    public void fileDone() {
+        this.filesDone.increment();
+    }
+
+    public void fileFailed() {
+        this.filesFailed.increment();
+    }
+
+    // Called only from the ticker thread, so the averaging state needs no synchronization
+    public ProgressSnapshot sample() {
+        long now = System.nanoTime();
+        long downloaded = this.downloadedBytes.sum();
+        long elapsed = now - this.lastSampleTime;
+
+        if (elapsed > 0) {
+            double instant = (downloaded - this.lastSampleBytes) * 1_000_000_000.0D / elapsed;
+            double alpha = 1.0D - Math.exp(-elapsed / ProgressAggregator.SPEED_TAU);
+            this.bytesPerSecond += alpha * (instant - this.bytesPerSecond);
+        }
+
+        this.lastSampleTime = now;
+        this.lastSampleBytes = downloaded;
+
+        long remaining = Math.max(0L, this.totalBytes - downloaded);
+        long eta = this.bytesPerSecond >= 1.0D ? (long) (remaining / this.bytesPerSecond) : -1L;
+
+        return new ProgressSnapshot(
+            this.totalBytes, downloaded, this.bytesPerSecond, eta, this.activeConnections.getAsInt(),
+            this.concurrencyLimit.getAsInt(), this.filesTotal, (int) this.filesDone.sum(), (int) this.filesFailed.sum()
+        );
+    }
+
+    public boolean hasChanged(ProgressSnapshot snapshot) {
+        long files = snapshot.getFilesDone() + snapshot.getFilesFailed();
+
+        if (snapshot.getDownloadedBytes() == this.lastPublishedBytes && files == this.lastPublishedFiles) {
+            return false;
+        }
+
+        this.lastPublishedBytes = snapshot.getDownloadedBytes();
+        this.lastPublishedFiles = files;
+
+        return true;
+    }
+}
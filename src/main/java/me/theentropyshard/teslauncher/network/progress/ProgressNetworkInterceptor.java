@@ -27,6 +27,10 @@ import java.io.IOException;
 public class ProgressNetworkInterceptor implements Interceptor {
     private final ProgressListener progressListener;
 
+    public ProgressNetworkInterceptor() {
+        this(null);
+    }
+
     public ProgressNetworkInterceptor(ProgressListener progressListener) {
         this.progressListener = progressListener;
     }
@@ -34,10 +38,20 @@ public class ProgressNetworkInterceptor implements Interceptor {
     @NotNull
     @Override
     public Response intercept(@NotNull Chain chain) throws IOException {
+        ProgressListener listener = chain.request().tag(ProgressListener.class);
+        if (listener == null) {
+            listener = this.progressListener;
+        }
+
         @SuppressWarnings("resource")
         Response originalResponse = chain.proceed(chain.request());
+
+        if (listener == null) {
+            return originalResponse;
+        }
+
         return originalResponse.newBuilder()
-                .body(new ProgressResponseBody(originalResponse.body(), this.progressListener))
+                .body(new ProgressResponseBody(originalResponse.body(), listener))
                 .build();
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.network.progress;
+
+public class ProgressSnapshot {
+    private final long totalBytes;
+    private final long downloadedBytes;
+    private final double bytesPerSecond;
+    private final long etaSeconds;
+    private final int activeConnections;
+    private final int concurrencyLimit;
+    private final int filesTotal;
+    private final int filesDone;
+    private final int filesFailed;
+
+    public ProgressSnapshot(long totalBytes, long downloadedBytes, double bytesPerSecond, long etaSeconds,
+                            int activeConnections, int concurrencyLimit, int filesTotal, int filesDone, int filesFailed) {
+        this.totalBytes = totalBytes;
+        this.downloadedBytes = downloadedBytes;
+        this.bytesPerSecond = bytesPerSecond;
+        this.etaSeconds = etaSeconds;
+        this.activeConnections = activeConnections;
+        this.concurrencyLimit = concurrencyLimit;
+        this.filesTotal = filesTotal;
+        this.filesDone = filesDone;
+        this.filesFailed = filesFailed;
+    }
+
+    public long getTotalBytes() {
+        return this.totalBytes;
+    }
+
+    public long getDownloadedBytes() {
+        return this.downloadedBytes;
+    }
+
+    public double getBytesPerSecond() {
+        return this.bytesPerSecond;
+    }
+
+    public long getEtaSeconds() {
+        return this.etaSeconds;
+    }
+
+    public int getActiveConnections() {
+        return this.activeConnections;
+    }
+
+    public int getConcurrencyLimit() {
+        return this.concurrencyLimit;
+    }
+
+    public int getFilesTotal() {
+        return this.filesTotal;
+    }
+
+    public int getFilesDone() {
+        return this.filesDone;
+    }
+
+    public int getFilesFailed() {
+        return this.filesFailed;
+    }
+}
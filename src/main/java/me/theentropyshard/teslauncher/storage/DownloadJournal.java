@@ -0,0 +1,361 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.storage;
+
+import com.google.gson.JsonParseException;
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.utils.json.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class DownloadJournal {
+    private static final String START = "start";
+    private static final String COMMIT = "commit";
+    private static final String DONE = "done";
+    private static final String FAIL = "fail";
+
+    private final Path baseFile;
+    private final WorkDirLocks locks;
+    private final Map<String, Entry> entries;
+    private final Set<String> active;
+
+    private Path journalFile;
+    private WorkDirLocks.Handle lock;
+    private FileChannel channel;
+
+    public DownloadJournal(Path journalFile) {
+        this(journalFile, new WorkDirLocks(journalFile.resolveSibling(".locks")));
+    }
+
+    public DownloadJournal(Path journalFile, WorkDirLocks locks) {
+        this.baseFile = journalFile;
+        this.locks = locks;
+        this.entries = new HashMap<>();
+        this.active = new HashSet<>();
+    }
+
+    public synchronized void open(FileIndex fileIndex) throws IOException {
+        // Every launcher process sharing the work dir keeps its own journal, so compacting
+        // or truncating it never loses another process's records
+        for (int slot = 0; this.lock == null; slot++) {
+            Path file = slot == 0 ? this.baseFile : DownloadJournal.slotFile(this.baseFile, slot);
+
+            this.lock = this.locks.tryExclusive(WorkDirLocks.file(file));
+
+            if (this.lock != null) {
+                this.journalFile = file;
+            }
+        }
+
+        if (Files.exists(this.journalFile)) {
+            this.replay(fileIndex);
+            this.compact();
+        }
+
+        this.channel = FileChannel.open(this.journalFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static Path slotFile(Path baseFile, int slot) {
+        String name = baseFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+
+        return baseFile.resolveSibling(dot == -1 ? name + "-" + slot : name.substring(0, dot) + "-" + slot + name.substring(dot));
+    }
+
+    private void replay(FileIndex fileIndex) throws IOException {
+        int completed = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(this.journalFile, StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                Record record;
+                try {
+                    record = Json.parse(line, Record.class);
+                } catch (JsonParseException e) {
+                    // A torn last line is expected after a crash, nothing after it can be trusted
+                    Log.debug("Stopping journal replay at a damaged record: " + e.getMessage());
+
+                    break;
+                }
+
+                if (record == null || record.type == null || record.path == null) {
+                    continue;
+                }
+
+                switch (record.type) {
+                    case DownloadJournal.START -> this.entries.put(record.path, new Entry(record));
+                    case DownloadJournal.COMMIT -> {
+                        Entry entry = this.entries.get(record.path);
+
+                        if (entry != null) {
+                            entry.committed.put(record.offset, record.bytes);
+                        }
+                    }
+                    case DownloadJournal.DONE -> {
+                        this.entries.remove(record.path);
+
+                        if (record.sha1 != null && DownloadJournal.isUnchanged(Paths.get(record.path), record)) {
+                            fileIndex.record(Paths.get(record.path), record.sha1);
+                            completed++;
+                        }
+                    }
+                    case DownloadJournal.FAIL -> this.entries.remove(record.path);
+                }
+            }
+        }
+
+        Log.info("Replayed download journal: " + completed + " completed, " + this.entries.size() + " interrupted");
+    }
+
+    private static boolean isUnchanged(Path file, Record record) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+            return attributes.size() == record.size && attributes.lastModifiedTime().toMillis() == record.lastModified;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private void compact() throws IOException {
+        StringBuilder builder = new StringBuilder();
+
+        for (Entry entry : this.entries.values()) {
+            builder.append(Json.write(entry.toRecord())).append('\n');
+
+            for (Map.Entry<Long, Long> commit : entry.committed.entrySet()) {
+                builder.append(Json.write(Record.commit(entry.path, commit.getKey(), commit.getValue()))).append('\n');
+            }
+        }
+
+        Path temp = this.journalFile.resolveSibling(this.journalFile.getFileName() + ".tmp");
+        Files.writeString(temp, builder, StandardCharsets.UTF_8);
+        Files.move(temp, this.journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized void started(String url, Path file, String sha1, long size, int segments) {
+        String key = DownloadJournal.key(file);
+
+        Record record = new Record(DownloadJournal.START, key);
+        record.url = url;
+        record.sha1 = sha1;
+        record.size = size;
+        record.segments = segments;
+
+        this.entries.put(key, new Entry(record));
+        this.active.add(key);
+        this.append(record);
+    }
+
+    public synchronized void committed(Path file, long offset, long bytes) {
+        String key = DownloadJournal.key(file);
+        Entry entry = this.entries.get(key);
+
+        if (entry != null) {
+            entry.committed.put(offset, bytes);
+        }
+
+        // The caller has forced the committed bytes to disk, the record claiming them has to follow
+        this.append(Record.commit(key, offset, bytes), true);
+    }
+
+    public synchronized void completed(Path file, String sha1) {
+        String key = DownloadJournal.key(file);
+
+        Record record = new Record(DownloadJournal.DONE, key);
+        record.sha1 = sha1;
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            record.size = attributes.size();
+            record.lastModified = attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            record.sha1 = null;
+        }
+
+        this.entries.remove(key);
+        this.active.remove(key);
+        this.append(record);
+    }
+
+    // Keeps the entry so the next attempt, in this run or after a restart, resumes from the committed bytes
+    public synchronized void suspended(Path file) {
+        this.active.remove(DownloadJournal.key(file));
+    }
+
+    public synchronized void failed(Path file) {
+        String key = DownloadJournal.key(file);
+
+        this.entries.remove(key);
+        this.active.remove(key);
+        this.append(new Record(DownloadJournal.FAIL, key));
+    }
+
+    public synchronized Entry getInterrupted(Path file) {
+        String key = DownloadJournal.key(file);
+
+        if (this.active.contains(key)) {
+            return null;
+        }
+
+        return this.entries.get(key);
+    }
+
+    private void append(Record record) {
+        this.append(record, false);
+    }
+
+    private synchronized void append(Record record, boolean force) {
+        if (this.channel == null) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap((Json.write(record) + "\n").getBytes(StandardCharsets.UTF_8));
+
+        try {
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer);
+            }
+
+            if (force) {
+                this.channel.force(false);
+            }
+        } catch (IOException e) {
+            Log.error("Could not write to download journal", e);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        try {
+            if (this.channel != null) {
+                // Nothing left to resume, so the journal can start from scratch next time
+                if (this.entries.isEmpty()) {
+                    this.channel.truncate(0);
+                }
+
+                this.channel.close();
+            }
+        } finally {
+            this.channel = null;
+
+            if (this.lock != null) {
+                this.lock.close();
+                this.lock = null;
+            }
+        }
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    public static final class Entry {
+        private final String path;
+        private final String url;
+        private final String sha1;
+        private final long size;
+        private final int segments;
+        private final Map<Long, Long> committed;
+
+        private Entry(Record record) {
+            this.path = record.path;
+            this.url = record.url;
+            this.sha1 = record.sha1;
+            this.size = record.size;
+            this.segments = record.segments;
+            this.committed = new HashMap<>();
+        }
+
+        private Record toRecord() {
+            Record record = new Record(DownloadJournal.START, this.path);
+            record.url = this.url;
+            record.sha1 = this.sha1;
+            record.size = this.size;
+            record.segments = this.segments;
+
+            return record;
+        }
+
+        public String getUrl() {
+            return this.url;
+        }
+
+        public String getSha1() {
+            return this.sha1;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public int getSegments() {
+            return this.segments;
+        }
+
+        public long getCommitted(long offset) {
+            return this.committed.getOrDefault(offset, 0L);
+        }
+    }
+
+    private static final class Record {
+        private String type;
+        private String path;
+        private String url;
+        private String sha1;
+        private long size;
+        private int segments;
+        private long offset;
+        private long bytes;
+        private long lastModified;
+
+        public Record() {
+
+        }
+
+        public Record(String type, String path) {
+            this.type = type;
+            this.path = path;
+        }
+
+        public static Record commit(String path, long offset, long bytes) {
+            Record record = new Record(DownloadJournal.COMMIT, path);
+            record.offset = offset;
+            record.bytes = bytes;
+
+            return record;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.storage;
+
+import com.google.gson.reflect.TypeToken;
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import me.theentropyshard.teslauncher.utils.json.Json;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FileIndex {
+    private static final Type ENTRIES_TYPE = new TypeToken<Map<String, Entry>>() {}.getType();
+
+    private final Path indexFile;
+    private final Settings settings;
+    private final Map<String, Entry> entries;
+
+    private volatile boolean dirty;
+
+    public FileIndex(Path indexFile, Settings settings) {
+        this.indexFile = indexFile;
+        this.settings = settings;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    public void load() throws IOException {
+        if (!Files.exists(this.indexFile)) {
+            return;
+        }
+
+        Map<String, Entry> entries = Json.parse(FileUtils.readUtf8(this.indexFile), FileIndex.ENTRIES_TYPE);
+
+        if (entries != null) {
+            this.entries.putAll(entries);
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (!this.dirty) {
+            return;
+        }
+
+        // Cleared first so that a put racing with the write marks the index dirty again
+        this.dirty = false;
+
+        try {
+            FileUtils.writeUtf8(this.indexFile, Json.write(this.entries));
+        } catch (IOException e) {
+            this.dirty = true;
+
+            throw e;
+        }
+    }
+
+    public boolean matches(Path file, long expectedSize, String expectedSha1) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // Deleted behind the index's back, for example by hand
+            this.invalidate(file);
+
+            return false;
+        }
+
+        return this.matches(file, attributes, expectedSize, expectedSha1);
+    }
+
+    // Walks every entry, so it is left to the cache collector instead of running on each save
+    public void pruneMissing() {
+        if (this.entries.keySet().removeIf(key -> !Files.exists(Path.of(key)))) {
+            this.dirty = true;
+        }
+    }
+
+    // For callers that already hold the attributes, for example from a directory listing
+    public boolean matches(Path file, BasicFileAttributes attributes, long expectedSize, String expectedSha1) throws IOException {
+        if (expectedSize >= 0 && attributes.size() != expectedSize) {
+            return false;
+        }
+
+        if (expectedSha1 == null || this.settings.disableFileIntegrityCheck) {
+            return true;
+        }
+
+        return expectedSha1.equals(this.sha1(file, attributes));
+    }
+
+    public String sha1(Path file) throws IOException {
+        return this.sha1(file, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    private String sha1(Path file, BasicFileAttributes attributes) throws IOException {
+        String key = FileIndex.key(file);
+
+        if (!this.settings.deepVerifyFiles) {
+            Entry entry = this.entries.get(key);
+
+            if (entry != null && entry.matches(attributes)) {
+                return entry.sha1;
+            }
+        }
+
+        String sha1 = HashUtils.sha1(file);
+        this.put(key, attributes, sha1);
+
+        return sha1;
+    }
+
+    public void record(Path file, String sha1) {
+        try {
+            this.put(FileIndex.key(file), Files.readAttributes(file, BasicFileAttributes.class), sha1);
+        } catch (IOException e) {
+            Log.warn("Could not record verified hash of " + file + ": " + e.getMessage());
+        }
+    }
+
+    public void invalidate(Path file) {
+        if (this.entries.remove(FileIndex.key(file)) != null) {
+            this.dirty = true;
+        }
+    }
+
+    private void put(String key, BasicFileAttributes attributes, String sha1) {
+        this.entries.put(key, new Entry(attributes, sha1));
+        this.dirty = true;
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private static String fileKey(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+
+        return fileKey == null ? null : fileKey.toString();
+    }
+
+    private static final class Entry {
+        private long size;
+        private long lastModified;
+        private String fileKey;
+        private String sha1;
+
+        public Entry() {
+
+        }
+
+        public Entry(BasicFileAttributes attributes, String sha1) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.fileKey = FileIndex.fileKey(attributes);
+            this.sha1 = sha1;
+        }
+
+        public boolean matches(BasicFileAttributes attributes) {
+            return this.size == attributes.size() &&
+                this.lastModified == attributes.lastModifiedTime().toMillis() &&
+                Objects.equals(this.fileKey, FileIndex.fileKey(attributes));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.storage;
+
+import me.theentropyshard.teslauncher.logging.Log;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ObjectStore {
+    private static final String MATERIALIZED_LOG = "materialized.log";
+
+    private final Path dir;
+    private final WorkDirLocks locks;
+
+    // A store outside a launcher work dir keeps its lock files next to the objects
+    public ObjectStore(Path dir) {
+        this(dir, new WorkDirLocks(dir.resolve(".locks")));
+    }
+
+    public ObjectStore(Path dir, WorkDirLocks locks) {
+        this.dir = dir;
+        this.locks = locks;
+    }
+
+    public Path getPath(String sha1) {
+        return this.dir.resolve(sha1.substring(0, 2)).resolve(sha1);
+    }
+
+    public boolean contains(String sha1) {
+        return Files.isRegularFile(this.getPath(sha1));
+    }
+
+    public void add(Path file, String sha1) throws IOException {
+        Path object = this.getPath(sha1);
+
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocks.objectShard(sha1))) {
+            if (Files.exists(object)) {
+                return;
+            }
+
+            FileUtils.createDirectoryIfNotExists(object.getParent());
+            ObjectStore.linkOrCopy(file, object);
+        }
+    }
+
+    // The object is only linked once its hash checks out. A file edited in place through one of its links damages
+    // the object too, and the next install must not be handed that copy
+    public boolean materialize(String sha1, long expectedSize, Path target, FileIndex fileIndex) throws IOException {
+        Path object = this.getPath(sha1);
+
+        try (WorkDirLocks.Handle lock = this.locks.shared(WorkDirLocks.objectShard(sha1))) {
+            if (!Files.isRegularFile(object)) {
+                return false;
+            }
+
+            if (fileIndex.matches(object, expectedSize, sha1)) {
+                // Recorded before linking, a collector that sees the target also sees the record
+                this.recordMaterialized(target);
+
+                FileUtils.createDirectoryIfNotExists(target.getParent());
+                ObjectStore.linkOrCopy(object, target);
+
+                return true;
+            }
+        }
+
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocks.objectShard(sha1))) {
+            if (Files.isRegularFile(object) && !fileIndex.matches(object, expectedSize, sha1)) {
+                Log.warn("Object " + sha1 + " in the store is damaged, removing it");
+                FileUtils.delete(object);
+                fileIndex.invalidate(object);
+            }
+        }
+
+        return false;
+    }
+
+    // A hard link shares the object's old mtime, so the log is what tells a collector the target was just installed
+    private void recordMaterialized(Path target) throws IOException {
+        Path log = this.dir.resolve(ObjectStore.MATERIALIZED_LOG);
+        String line = System.currentTimeMillis() + "\t" + target.toAbsolutePath().normalize() + "\n";
+
+        try (WorkDirLocks.Handle lock = this.locks.shared(WorkDirLocks.file(log))) {
+            FileUtils.createDirectoryIfNotExists(this.dir);
+            Files.write(log, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    public Set<Path> getMaterializedSince(long sinceMillis) throws IOException {
+        Set<Path> targets = new HashSet<>();
+
+        for (String line : this.readMaterialized()) {
+            int tab = line.indexOf('\t');
+
+            if (ObjectStore.parseTime(line, tab) >= sinceMillis) {
+                targets.add(Paths.get(line.substring(tab + 1)));
+            }
+        }
+
+        return targets;
+    }
+
+    public void pruneMaterialized(long sinceMillis) throws IOException {
+        Path log = this.dir.resolve(ObjectStore.MATERIALIZED_LOG);
+
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocks.file(log))) {
+            if (!Files.exists(log)) {
+                return;
+            }
+
+            List<String> kept = new ArrayList<>();
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                if (ObjectStore.parseTime(line, line.indexOf('\t')) >= sinceMillis) {
+                    kept.add(line);
+                }
+            }
+
+            Files.write(log, kept, StandardCharsets.UTF_8);
+        }
+    }
+
+    private List<String> readMaterialized() throws IOException {
+        Path log = this.dir.resolve(ObjectStore.MATERIALIZED_LOG);
+
+        try (WorkDirLocks.Handle lock = this.locks.shared(WorkDirLocks.file(log))) {
+            if (!Files.exists(log)) {
+                return List.of();
+            }
+
+            return Files.readAllLines(log, StandardCharsets.UTF_8);
+        }
+    }
+
+    // A torn or garbled line counts as old
+    private static long parseTime(String line, int tab) {
+        if (tab <= 0) {
+            return Long.MIN_VALUE;
+        }
+
+        try {
+            return Long.parseLong(line.substring(0, tab));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // Staged next to the target and moved over it, so a reader never finds the target missing or half copied
+    public static void linkOrCopy(Path source, Path target) throws IOException {
+        if (Files.exists(target) && Files.isSameFile(source, target)) {
+            return;
+        }
+
+        ObjectStore.stage(source, target, true);
+    }
+
+    // For dirs the game writes to, where a link would let an edit reach the store and every other copy
+    public static void copy(Path source, Path target) throws IOException {
+        ObjectStore.stage(source, target, false);
+    }
+
+    private static void stage(Path source, Path target, boolean link) throws IOException {
+        Path temp = target.resolveSibling(
+            target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp"
+        );
+
+        try {
+            if (!link || !ObjectStore.tryLink(temp, source)) {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean tryLink(Path link, Path existing) {
+        try {
+            Files.createLink(link, existing);
+
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            return false;
+        }
+    }
+
+    public WorkDirLocks getLocks() {
+        return this.locks;
+    }
+
+    public Path getDir() {
+        return this.dir;
+    }
+}
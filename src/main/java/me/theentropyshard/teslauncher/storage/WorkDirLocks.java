@@ -0,0 +1,271 @@
+/*
+ * TESLauncher - https://github.com/TESLauncher/TESLauncher
+ * Copyright (C) 2023-2026 TESLauncher
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package me.theentropyshard.teslauncher.storage;
+
+import me.theentropyshard.teslauncher.utils.FileUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Coordinates launcher processes sharing one work dir. Every key maps to a lock file that is held with
+// FileChannel.lock, shared for readers and exclusive for writers. File locks belong to the whole JVM,
+// so threads are coordinated by a read/write lock per key and readers share one OS lock
+public class WorkDirLocks {
+    private static final long OVERLAP_RETRY_MILLIS = 20L;
+
+    private final Path dir;
+    private final Map<String, Entry> entries;
+
+    public WorkDirLocks(Path dir) {
+        this.dir = dir;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    public static String objectShard(String sha1) {
+        return "objects/" + sha1.substring(0, 2);
+    }
+
+    public static String version(String versionId) {
+        return "versions/" + FileUtils.sanitizeFileName(versionId);
+    }
+
+    public static String instance(Path instanceDir) {
+        return "instances/" + FileUtils.sanitizeFileName(instanceDir.getFileName().toString());
+    }
+
+    public static String file(Path file) {
+        return "files/" + FileUtils.sanitizeFileName(file.getFileName().toString());
+    }
+
+    // Download targets are spread over a fixed set of lock files, so the locks dir does not grow with every file
+    public static String download(Path target) {
+        return "downloads/" + String.format("%03x", target.toAbsolutePath().normalize().hashCode() & 0xfff);
+    }
+
+    public Handle shared(String key) throws IOException {
+        return this.acquire(key, true);
+    }
+
+    // A thread holding the shared lock of a key must not ask for the exclusive one, read locks cannot be upgraded
+    public Handle exclusive(String key) throws IOException {
+        return this.acquire(key, false);
+    }
+
+    // Returns null instead of waiting when another thread or process holds the key
+    public Handle tryExclusive(String key) throws IOException {
+        Entry entry = this.entries.computeIfAbsent(key, k -> new Entry(this.dir.resolve(k + ".lock")));
+        Lock threadLock = entry.threadLock.writeLock();
+
+        if (!threadLock.tryLock()) {
+            return null;
+        }
+
+        try {
+            if (!entry.tryAcquire()) {
+                threadLock.unlock();
+
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            threadLock.unlock();
+
+            throw e;
+        }
+
+        return new Handle(entry, threadLock);
+    }
+
+    private Handle acquire(String key, boolean shared) throws IOException {
+        Entry entry = this.entries.computeIfAbsent(key, k -> new Entry(this.dir.resolve(k + ".lock")));
+        Lock threadLock = shared ? entry.threadLock.readLock() : entry.threadLock.writeLock();
+
+        threadLock.lock();
+
+        try {
+            entry.acquire(shared);
+        } catch (IOException | RuntimeException e) {
+            threadLock.unlock();
+
+            throw e;
+        }
+
+        return new Handle(entry, threadLock);
+    }
+
+    public static final class Handle implements Closeable {
+        private final Entry entry;
+        private final Lock threadLock;
+
+        private boolean closed;
+
+        private Handle(Entry entry, Lock threadLock) {
+            this.entry = entry;
+            this.threadLock = threadLock;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+
+            this.closed = true;
+
+            try {
+                this.entry.release();
+            } finally {
+                this.threadLock.unlock();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Path lockFile;
+        private final ReentrantReadWriteLock threadLock;
+        private final Lock opening;
+
+        private FileChannel channel;
+        private FileLock fileLock;
+        private int holders;
+
+        public Entry(Path lockFile) {
+            this.lockFile = lockFile;
+            this.threadLock = new ReentrantReadWriteLock();
+            this.opening = new ReentrantLock();
+        }
+
+        // Holders can only overlap when they are all readers, or the same thread re-entering, so they reuse the OS lock.
+        // The wait for the OS lock happens outside the monitor, so release() and tryAcquire() are never stuck behind it
+        public void acquire(boolean shared) throws IOException {
+            // Writers already hold the key alone, this only keeps readers from opening the lock file twice
+            this.opening.lock();
+
+            try {
+                synchronized (this) {
+                    if (this.holders > 0) {
+                        this.holders++;
+
+                        return;
+                    }
+                }
+
+                FileUtils.createDirectoryIfNotExists(this.lockFile.getParent());
+
+                FileChannel channel = FileChannel.open(this.lockFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+                FileLock fileLock;
+                try {
+                    fileLock = Entry.lock(channel, shared);
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+
+                    throw e;
+                }
+
+                synchronized (this) {
+                    this.channel = channel;
+                    this.fileLock = fileLock;
+                    this.holders = 1;
+                }
+            } finally {
+                this.opening.unlock();
+            }
+        }
+
+        private static FileLock lock(FileChannel channel, boolean shared) throws IOException {
+            while (true) {
+                try {
+                    return channel.lock(0L, Long.MAX_VALUE, shared);
+                } catch (OverlappingFileLockException e) {
+                    // Another WorkDirLocks over the same dir in this JVM holds it, the OS has nothing to wait on for us
+                    try {
+                        Thread.sleep(WorkDirLocks.OVERLAP_RETRY_MILLIS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+
+                        throw new InterruptedIOException("Interrupted while waiting for " + channel);
+                    }
+                }
+            }
+        }
+
+        public synchronized boolean tryAcquire() throws IOException {
+            if (this.holders > 0) {
+                this.holders++;
+
+                return true;
+            }
+
+            FileUtils.createDirectoryIfNotExists(this.lockFile.getParent());
+
+            FileChannel channel = FileChannel.open(this.lockFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            FileLock fileLock;
+            try {
+                fileLock = channel.tryLock(0L, Long.MAX_VALUE, false);
+            } catch (OverlappingFileLockException e) {
+                // Another WorkDirLocks over the same dir in this JVM holds it
+                fileLock = null;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+
+                throw e;
+            }
+
+            if (fileLock == null) {
+                channel.close();
+
+                return false;
+            }
+
+            this.channel = channel;
+            this.fileLock = fileLock;
+            this.holders = 1;
+
+            return true;
+        }
+
+        public synchronized void release() throws IOException {
+            if (--this.holders > 0) {
+                return;
+            }
+
+            try {
+                this.fileLock.release();
+            } finally {
+                this.channel.close();
+                this.channel = null;
+                this.fileLock = null;
+            }
+        }
+    }
+}
@@ -26,26 +26,37 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 public final class HashUtils {
-    public static byte[] hash(Path file, String algorithm) throws IOException {
-        try (InputStream inputStream = Files.newInputStream(file)) {
-            MessageDigest md = MessageDigest.getInstance(algorithm);
+    public static MessageDigest newDigest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(algorithm + " algorithm is not available in your JRE", ex);
+        }
+    }
 
+    public static void update(MessageDigest md, Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
             byte[] buffer = new byte[4096];
 
             int numRead;
             while ((numRead = inputStream.read(buffer)) != -1) {
                 md.update(buffer, 0, numRead);
             }
-
-            return md.digest();
-        } catch (NoSuchAlgorithmException ex) {
-            throw new IOException(algorithm + " algorithm is not available in your JRE", ex);
         }
     }
 
+    public static byte[] hash(Path file, String algorithm) throws IOException {
+        MessageDigest md = HashUtils.newDigest(algorithm);
+        HashUtils.update(md, file);
+
+        return md.digest();
+    }
+
     public static String sha1(Path file) throws IOException {
-        byte[] mdBytes = HashUtils.hash(file, "SHA-1");
+        return HashUtils.toHex(HashUtils.hash(file, "SHA-1"));
+    }
 
+    public static String toHex(byte[] mdBytes) {
         StringBuilder sb = new StringBuilder();
         for (byte b : mdBytes) {
             sb.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
@@ -0,0 +1,102 @@
+import me.theentropyshard.teslauncher.network.download.AdaptiveLimit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveLimitTest {
+    private static final long LATENCY = 10_000_000L;
+
+    @Test
+    public void growsWhileSaturatedAndFast() throws InterruptedIOException {
+        AdaptiveLimit limit = new AdaptiveLimit("example.com", 1, 64);
+
+        for (int i = 0; i < 100; i++) {
+            AdaptiveLimitTest.fill(limit);
+
+            for (int request = 0; request < limit.getLimit(); request++) {
+                limit.onSuccess(AdaptiveLimitTest.LATENCY);
+            }
+        }
+
+        Assertions.assertTrue(limit.getLimit() > AdaptiveLimit.INITIAL_LIMIT, "limit " + limit.getLimit());
+        Assertions.assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void doesNotGrowWhenTheServerQueues() throws InterruptedIOException {
+        AdaptiveLimit limit = new AdaptiveLimit("example.com", 1, 64);
+
+        limit.acquire();
+        limit.onSuccess(AdaptiveLimitTest.LATENCY);
+
+        // Few enough slow answers that the drifting baseline still remembers the fast one
+        for (int i = 0; i < 2; i++) {
+            AdaptiveLimitTest.fill(limit);
+
+            for (int request = 0; request < limit.getLimit(); request++) {
+                limit.onSuccess(AdaptiveLimitTest.LATENCY * 5);
+            }
+        }
+
+        Assertions.assertEquals(AdaptiveLimit.INITIAL_LIMIT, limit.getLimit());
+    }
+
+    @Test
+    public void backsOffOncePerBurstOfFailures() throws InterruptedIOException {
+        AdaptiveLimit limit = new AdaptiveLimit("example.com", 1, 64);
+
+        AdaptiveLimitTest.fill(limit);
+        for (int request = 0; request < AdaptiveLimit.INITIAL_LIMIT; request++) {
+            limit.onFailure();
+        }
+
+        Assertions.assertEquals((int) (AdaptiveLimit.INITIAL_LIMIT * 0.7D), limit.getLimit());
+        Assertions.assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void cancellationsLeaveTheLimitAlone() throws InterruptedIOException {
+        AdaptiveLimit limit = new AdaptiveLimit("example.com", 1, 64);
+
+        AdaptiveLimitTest.fill(limit);
+        for (int request = 0; request < AdaptiveLimit.INITIAL_LIMIT; request++) {
+            limit.onCancel();
+        }
+
+        Assertions.assertEquals(AdaptiveLimit.INITIAL_LIMIT, limit.getLimit());
+        Assertions.assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void acquireWaitsForAFreeSlot() throws Exception {
+        AdaptiveLimit limit = new AdaptiveLimit("example.com", 1, 1);
+        limit.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                limit.acquire();
+                acquired.countDown();
+            } catch (InterruptedIOException ignored) {
+
+            }
+        });
+        waiter.start();
+
+        Assertions.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+
+        limit.onSuccess(AdaptiveLimitTest.LATENCY);
+
+        Assertions.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    private static void fill(AdaptiveLimit limit) throws InterruptedIOException {
+        for (int request = limit.getInFlight(); request < limit.getLimit(); request++) {
+            limit.acquire();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import com.google.gson.Gson;
+import me.theentropyshard.teslauncher.minecraft.data.AssetIndex;
+import me.theentropyshard.teslauncher.minecraft.data.AssetObject;
+import me.theentropyshard.teslauncher.minecraft.download.AssetDeltaPlanner;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public class AssetDeltaPlannerTest {
+    @TempDir
+    Path dir;
+    private Path indexesDir;
+    private Path objectsDir;
+    private AssetDeltaPlanner planner;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.indexesDir = this.dir.resolve("indexes");
+        this.objectsDir = this.dir.resolve("objects");
+        Files.createDirectories(this.indexesDir);
+        this.planner = new AssetDeltaPlanner(this.indexesDir, this.objectsDir, new WorkDirLocks(this.dir.resolve("locks")));
+    }
+
+    @Test
+    public void selectsOnlyObjectsMissingFromVerifiedIndex() throws IOException {
+        String a = this.object("a");
+        String b = this.object("b");
+        String c = this.object("c");
+
+        String baseSha1 = this.index("16", a, b);
+        this.planner.markVerified("16", AssetDeltaPlanner.key("16", baseSha1), baseSha1);
+
+        String nextJson = AssetDeltaPlannerTest.json(a, b, c);
+        String nextKey = AssetDeltaPlanner.key("17", "next");
+        AssetIndex next = new Gson().fromJson(nextJson, AssetIndex.class);
+
+        Assertions.assertEquals(Set.of(c), AssetDeltaPlannerTest.hashes(this.planner.select("17", nextKey, next)));
+
+        // The delta is cached per index pair, so the base index is not read again
+        Files.delete(this.indexesDir.resolve("16.json"));
+        Assertions.assertEquals(Set.of(c), AssetDeltaPlannerTest.hashes(this.planner.select("17", nextKey, next)));
+
+        // Once an object of the base index disappears, nothing is trusted any more
+        Files.delete(this.objectsDir.resolve(a.substring(0, 2)).resolve(a));
+        Assertions.assertEquals(Set.of(a, b, c), AssetDeltaPlannerTest.hashes(this.planner.select("17", nextKey, next)));
+    }
+
+    @Test
+    public void prunesDeltasOfIndexesNoLongerVerified() throws IOException {
+        String a = this.object("a");
+        String c = this.object("c");
+
+        String baseSha1 = this.index("16", a);
+        String baseKey = AssetDeltaPlanner.key("16", baseSha1);
+        this.planner.markVerified("16", baseKey, baseSha1);
+
+        String nextSha1 = this.index("17", a, c);
+        String nextKey = AssetDeltaPlanner.key("17", nextSha1);
+        this.planner.select("17", nextKey, new Gson().fromJson(AssetDeltaPlannerTest.json(a, c), AssetIndex.class));
+
+        Path deltaFile = this.indexesDir.resolve("deltas").resolve(baseKey + "_" + nextKey + ".json");
+        Assertions.assertTrue(Files.exists(deltaFile));
+
+        this.planner.markVerified("17", nextKey, nextSha1);
+        Assertions.assertTrue(Files.exists(deltaFile));
+
+        // Enough newer indexes push 16 out of verified.json, and its delta with it
+        for (int i = 0; i < 8; i++) {
+            this.planner.markVerified("snapshot" + i, AssetDeltaPlanner.key("snapshot" + i, "sha" + i), "sha" + i);
+        }
+
+        Assertions.assertFalse(Files.exists(deltaFile));
+    }
+
+    private String object(String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String hash = HashUtils.toHex(HashUtils.newDigest("SHA-1").digest(bytes));
+
+        Path file = this.objectsDir.resolve(hash.substring(0, 2)).resolve(hash);
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+
+        return hash;
+    }
+
+    private String index(String id, String... hashes) throws IOException {
+        Path file = this.indexesDir.resolve(id + ".json");
+        Files.writeString(file, AssetDeltaPlannerTest.json(hashes));
+
+        return HashUtils.sha1(file);
+    }
+
+    private static String json(String... hashes) {
+        StringBuilder builder = new StringBuilder("{\"objects\":{");
+
+        for (int i = 0; i < hashes.length; i++) {
+            builder.append(i == 0 ? "" : ",").append("\"file").append(i).append("\":{\"hash\":\"").append(hashes[i]).append("\",\"size\":1}");
+        }
+
+        return builder.append("}}").toString();
+    }
+
+    private static Set<String> hashes(Collection<AssetObject> objects) {
+        Set<String> hashes = new HashSet<>();
+
+        for (AssetObject object : objects) {
+            hashes.add(object.getHash());
+        }
+
+        return hashes;
+    }
+}
@@ -0,0 +1,94 @@
+import com.google.gson.Gson;
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.minecraft.data.AssetObject;
+import me.theentropyshard.teslauncher.minecraft.download.AssetPlanner;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AssetPlannerTest {
+    private static final int OBJECTS = 10_000;
+
+    @TempDir
+    Path dir;
+    private Path objectsDir;
+    private ExecutorService executor;
+    private FileIndex fileIndex;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.objectsDir = this.dir.resolve("objects");
+        this.executor = Executors.newFixedThreadPool(8);
+        this.fileIndex = new FileIndex(this.dir.resolve("file_index.json"), new Settings());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void findsMissingAndDamagedObjectsInSyntheticTree() throws IOException {
+        Gson gson = new Gson();
+        List<AssetObject> objects = new ArrayList<>();
+        Set<String> expectedMissing = new HashSet<>();
+
+        for (int i = 0; i < AssetPlannerTest.OBJECTS; i++) {
+            byte[] content = ("object " + i).getBytes(StandardCharsets.UTF_8);
+            String hash = HashUtils.toHex(HashUtils.newDigest("SHA-1").digest(content));
+            objects.add(gson.fromJson("{\"hash\":\"" + hash + "\",\"size\":" + content.length + "}", AssetObject.class));
+
+            Path file = this.objectsDir.resolve(hash.substring(0, 2)).resolve(hash);
+
+            if (i % 100 == 0) {
+                expectedMissing.add(hash);
+
+                continue;
+            }
+
+            Files.createDirectories(file.getParent());
+
+            if (i % 100 == 1) {
+                expectedMissing.add(hash);
+                content = ("damaged " + i).getBytes(StandardCharsets.UTF_8);
+            }
+
+            Files.write(file, content);
+        }
+
+        // The first plan hashes everything and fills the file index, the second answers from it
+        AssetPlanner first = new AssetPlanner(this.objectsDir);
+        Assertions.assertEquals(expectedMissing, AssetPlannerTest.hashes(first.plan(objects, this.fileIndex, this.executor)));
+
+        AssetPlanner planner = new AssetPlanner(this.objectsDir);
+        List<AssetObject> missing = planner.plan(objects, this.fileIndex, this.executor);
+
+        Assertions.assertEquals(expectedMissing, AssetPlannerTest.hashes(missing));
+        Assertions.assertEquals(AssetPlannerTest.OBJECTS - expectedMissing.size(), planner.getPresent());
+    }
+
+    private static Set<String> hashes(List<AssetObject> objects) {
+        Set<String> hashes = new HashSet<>();
+
+        for (AssetObject object : objects) {
+            hashes.add(object.getHash());
+        }
+
+        return hashes;
+    }
+}
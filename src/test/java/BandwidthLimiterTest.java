@@ -0,0 +1,125 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.network.download.BandwidthLimiter;
+import me.theentropyshard.teslauncher.network.download.DownloadPriority;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BandwidthLimiterTest {
+    private static final int CHUNK = 16 * 1024;
+
+    @Test
+    public void capsThroughput() throws Exception {
+        Settings settings = new Settings();
+        settings.downloadSpeedLimitKb = 256;
+
+        BandwidthLimiter limiter = new BandwidthLimiter(settings);
+
+        long start = System.nanoTime();
+        BandwidthLimiterTest.consume(limiter, DownloadPriority.FOREGROUND, 512 * 1024);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 512 KiB at 256 KiB/s, minus the first chunk which is let through on credit
+        Assertions.assertTrue(elapsedMillis >= 1500, "finished in " + elapsedMillis + " ms");
+        Assertions.assertTrue(elapsedMillis < 4000, "finished in " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void foregroundPreemptsBackground() throws Exception {
+        Settings settings = new Settings();
+        settings.downloadSpeedLimitKb = 128;
+
+        BandwidthLimiter limiter = new BandwidthLimiter(settings);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong backgroundBytes = new AtomicLong();
+        CountDownLatch backgroundStarted = new CountDownLatch(1);
+
+        Thread background = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    limiter.consume(DownloadPriority.BACKGROUND, BandwidthLimiterTest.CHUNK);
+                    backgroundBytes.addAndGet(BandwidthLimiterTest.CHUNK);
+                    backgroundStarted.countDown();
+                }
+            } catch (Exception ignored) {
+
+            }
+        });
+        background.setDaemon(true);
+        background.start();
+
+        Assertions.assertTrue(backgroundStarted.await(5, TimeUnit.SECONDS));
+
+        long before = backgroundBytes.get();
+        BandwidthLimiterTest.consume(limiter, DownloadPriority.FOREGROUND, 256 * 1024);
+        long during = backgroundBytes.get() - before;
+
+        running.set(false);
+        background.join(5000);
+
+        // At most the chunk that was already paid for when the foreground reads started
+        Assertions.assertTrue(during <= 2 * BandwidthLimiterTest.CHUNK, "background read " + during + " bytes");
+    }
+
+    @Test
+    public void picksUpLimitChanges() throws Exception {
+        Settings settings = new Settings();
+        settings.backgroundSpeedLimitKb = 16;
+
+        BandwidthLimiter limiter = new BandwidthLimiter(settings);
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try {
+                BandwidthLimiterTest.consume(limiter, DownloadPriority.BACKGROUND, 1024 * 1024);
+                done.countDown();
+            } catch (Exception ignored) {
+
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        Assertions.assertFalse(done.await(300, TimeUnit.MILLISECONDS));
+
+        settings.backgroundSpeedLimitKb = 0;
+
+        Assertions.assertTrue(done.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void unlimitedReadsSkipTheLock() throws Exception {
+        Settings settings = new Settings();
+        settings.backgroundSpeedLimitKb = 16;
+
+        BandwidthLimiter limiter = new BandwidthLimiter(settings);
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try {
+                BandwidthLimiterTest.consume(limiter, DownloadPriority.FOREGROUND, 1024 * 1024);
+                done.countDown();
+            } catch (Exception ignored) {
+
+            }
+        });
+        thread.setDaemon(true);
+
+        // Only background reads are limited, foreground ones go through while the limiter is held
+        synchronized (limiter) {
+            thread.start();
+
+            Assertions.assertTrue(done.await(2, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void consume(BandwidthLimiter limiter, DownloadPriority priority, long bytes) throws Exception {
+        for (long consumed = 0; consumed < bytes; consumed += BandwidthLimiterTest.CHUNK) {
+            limiter.consume(priority, BandwidthLimiterTest.CHUNK);
+        }
+    }
+}
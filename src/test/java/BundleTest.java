@@ -0,0 +1,116 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.minecraft.bundle.BundleExporter;
+import me.theentropyshard.teslauncher.minecraft.bundle.BundleImporter;
+import me.theentropyshard.teslauncher.minecraft.bundle.BundleManifest;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BundleTest {
+    @TempDir
+    Path dir;
+    private Path sourceDir;
+    private ExecutorService executor;
+    private Settings settings;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.sourceDir = this.dir.resolve("source");
+        this.executor = Executors.newFixedThreadPool(4);
+        this.settings = new Settings();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void importRestoresExportedFiles() throws IOException {
+        byte[] jar = new byte[256 * 1024];
+        new Random(1).nextBytes(jar);
+        Path jarFile = this.write("minecraft/versions/1.0/1.0.jar", jar);
+        Path jsonFile = this.write("minecraft/versions/1.0/1.0.json", "{\"id\":\"1.0\"}".getBytes(StandardCharsets.UTF_8));
+
+        byte[] asset = "sound".getBytes(StandardCharsets.UTF_8);
+        String assetHash = HashUtils.toHex(HashUtils.newDigest("SHA-1").digest(asset));
+        Path assetFile = this.write("minecraft/assets/objects/" + assetHash.substring(0, 2) + "/" + assetHash, asset);
+
+        Path bundle = this.dir.resolve("1.0.zip");
+        BundleExporter exporter = new BundleExporter(
+            this.sourceDir, new FileIndex(this.dir.resolve("source_index.json"), this.settings), this.executor
+        );
+        exporter.export(new BundleManifest("1.0", null, null, false), List.of(jarFile, jsonFile, assetFile), bundle);
+
+        Path targetDir = this.dir.resolve("target");
+        FileIndex targetIndex = new FileIndex(this.dir.resolve("target_index.json"), this.settings);
+        BundleImporter importer = new BundleImporter(
+            targetDir, targetIndex, new ObjectStore(this.dir.resolve("store")), this.executor
+        );
+
+        BundleManifest manifest = importer.importBundle(bundle);
+
+        Assertions.assertEquals("1.0", manifest.getMinecraftVersion());
+        Assertions.assertEquals(3, manifest.getEntries().size());
+        Assertions.assertArrayEquals(jar, Files.readAllBytes(targetDir.resolve("minecraft/versions/1.0/1.0.jar")));
+        Assertions.assertArrayEquals(asset, Files.readAllBytes(targetDir.resolve(this.sourceDir.relativize(assetFile))));
+        Assertions.assertTrue(targetIndex.matches(targetDir.resolve("minecraft/versions/1.0/1.0.jar"), jar.length, HashUtils.sha1(jarFile)));
+
+        // A second import finds everything in place and writes nothing
+        importer.importBundle(bundle);
+        Assertions.assertArrayEquals(jar, Files.readAllBytes(targetDir.resolve("minecraft/versions/1.0/1.0.jar")));
+    }
+
+    @Test
+    public void exportRejectsFilesOutsideWorkDir() throws IOException {
+        Path outside = Files.writeString(this.dir.resolve("outside.txt"), "outside");
+        BundleExporter exporter = new BundleExporter(
+            this.sourceDir, new FileIndex(this.dir.resolve("source_index.json"), this.settings), this.executor
+        );
+
+        Assertions.assertThrows(IOException.class, () -> exporter.export(
+            new BundleManifest("1.0", null, null, false), List.of(outside), this.dir.resolve("bad.zip")
+        ));
+    }
+
+    @Test
+    public void importRejectsFilesOutsideGameDirs() throws IOException {
+        Path accountsFile = this.write("minecraft/accounts.json", "[]".getBytes(StandardCharsets.UTF_8));
+
+        Path bundle = this.dir.resolve("accounts.zip");
+        BundleExporter exporter = new BundleExporter(
+            this.sourceDir, new FileIndex(this.dir.resolve("source_index.json"), this.settings), this.executor
+        );
+        exporter.export(new BundleManifest("1.0", null, null, false), List.of(accountsFile), bundle);
+
+        Path targetDir = this.dir.resolve("target");
+        BundleImporter importer = new BundleImporter(
+            targetDir, new FileIndex(this.dir.resolve("target_index.json"), this.settings),
+            new ObjectStore(this.dir.resolve("store")), this.executor
+        );
+
+        Assertions.assertThrows(IOException.class, () -> importer.importBundle(bundle));
+        Assertions.assertFalse(Files.exists(targetDir.resolve("minecraft/accounts.json")));
+    }
+
+    private Path write(String path, byte[] bytes) throws IOException {
+        Path file = this.sourceDir.resolve(path);
+        Files.createDirectories(file.getParent());
+
+        return Files.write(file, bytes);
+    }
+}
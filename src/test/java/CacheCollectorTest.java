@@ -0,0 +1,126 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.minecraft.download.CacheCollector;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+public class CacheCollectorTest {
+    @TempDir
+    Path dir;
+    private Path versionsDir;
+    private Path assetsDir;
+    private Path librariesDir;
+    private Path runtimesDir;
+    private ObjectStore objectStore;
+    private FileIndex fileIndex;
+    private CacheCollector collector;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.versionsDir = this.dir.resolve("versions");
+        this.assetsDir = this.dir.resolve("assets");
+        this.librariesDir = this.dir.resolve("libraries");
+        this.runtimesDir = this.dir.resolve("runtimes");
+
+        this.objectStore = new ObjectStore(this.dir.resolve("store"));
+        this.fileIndex = new FileIndex(this.dir.resolve("file_index.json"), new Settings());
+        this.collector = new CacheCollector(
+            this.versionsDir, this.assetsDir, this.librariesDir, this.runtimesDir, this.objectStore,
+            this.fileIndex, 0
+        );
+    }
+
+    @Test
+    public void reportsThenDeletesOnlyUnreachableFiles() throws IOException {
+        Path usedLibrary = this.old(this.librariesDir.resolve("org/used/1.0/used-1.0.jar"), 100);
+        Path unusedLibrary = this.old(this.librariesDir.resolve("org/unused/1.0/unused-1.0.jar"), 200);
+        Path partLibrary = this.old(this.librariesDir.resolve("org/next/1.0/next-1.0.jar.part"), 50);
+        Path freshLibrary = CacheCollectorTest.write(this.librariesDir.resolve("org/fresh/1.0/fresh-1.0.jar"), 50);
+        Path usedObject = this.old(this.assetsDir.resolve("objects/aa/aa00"), 10);
+        Path unusedObject = this.old(this.assetsDir.resolve("objects/bb/bb00"), 20);
+        Path usedVersion = this.old(this.versionsDir.resolve("1.21/1.21.jar"), 300);
+        Path unusedNatives = this.old(this.versionsDir.resolve("1.8.9/natives/lwjgl.so"), 400);
+        this.age(this.versionsDir.resolve("1.8.9/natives"));
+        this.age(this.versionsDir.resolve("1.8.9"));
+        Path unusedRuntime = this.old(this.runtimesDir.resolve("jre-legacy/bin/java"), 500);
+        this.age(this.runtimesDir.resolve("jre-legacy/bin"));
+        this.age(this.runtimesDir.resolve("jre-legacy"));
+
+        this.collector.markFile(usedLibrary);
+        this.collector.markFile(usedObject);
+        this.collector.markVersion("1.21");
+
+        CacheCollector.Report dryRun = this.collector.sweep(true, () -> false);
+
+        Assertions.assertEquals(4, dryRun.getFiles());
+        Assertions.assertEquals(200 + 20 + 400 + 500, dryRun.getBytes());
+        Assertions.assertTrue(Files.exists(unusedLibrary));
+
+        CacheCollector.Report report = this.collector.sweep(false, () -> false);
+
+        Assertions.assertEquals(dryRun.getBytes(), report.getBytes());
+        Assertions.assertFalse(Files.exists(unusedLibrary));
+        Assertions.assertFalse(Files.exists(unusedLibrary.getParent()));
+        Assertions.assertFalse(Files.exists(unusedObject));
+        Assertions.assertFalse(Files.exists(unusedNatives));
+        Assertions.assertFalse(Files.exists(unusedRuntime));
+        Assertions.assertTrue(Files.exists(usedLibrary));
+        Assertions.assertTrue(Files.exists(partLibrary));
+        Assertions.assertTrue(Files.exists(freshLibrary));
+        Assertions.assertTrue(Files.exists(usedObject));
+        Assertions.assertTrue(Files.exists(usedVersion));
+    }
+
+    @Test
+    public void keepsFilesJustMaterializedFromOldObjects() throws IOException {
+        String sha1 = HashUtils.toHex(HashUtils.newDigest("SHA-1").digest(new byte[100]));
+        this.old(this.objectStore.getPath(sha1), 100);
+        Path library = this.librariesDir.resolve("org/linked/1.0/linked-1.0.jar");
+
+        Assertions.assertTrue(this.objectStore.materialize(sha1, 100, library, this.fileIndex));
+
+        // A hard link carries the old mtime of the object over to the installed file
+        CacheCollector.Report report = this.collector.sweep(false, () -> false);
+
+        Assertions.assertEquals(0, report.getFiles());
+        Assertions.assertTrue(Files.exists(library));
+        Assertions.assertTrue(this.objectStore.getMaterializedSince(0).contains(library.toAbsolutePath().normalize()));
+    }
+
+    @Test
+    public void stopsWhenAskedTo() throws IOException {
+        this.old(this.librariesDir.resolve("org/unused/1.0/unused-1.0.jar"), 200);
+
+        CacheCollector.Report report = this.collector.sweep(false, () -> true);
+
+        Assertions.assertTrue(report.isStopped());
+        Assertions.assertEquals(0, report.getFiles());
+    }
+
+    private Path old(Path file, int size) throws IOException {
+        CacheCollectorTest.write(file, size);
+
+        return this.age(file);
+    }
+
+    private Path age(Path path) throws IOException {
+        return Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+    }
+
+    private static Path write(Path file, int size) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        return Files.write(file, new byte[size]);
+    }
+}
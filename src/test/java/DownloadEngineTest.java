@@ -0,0 +1,616 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.network.download.AdaptiveLimit;
+import me.theentropyshard.teslauncher.network.download.CircuitBreaker;
+import me.theentropyshard.teslauncher.network.download.CircuitBreakerInterceptor;
+import me.theentropyshard.teslauncher.network.download.CircuitOpenException;
+import me.theentropyshard.teslauncher.network.download.DownloadEngine;
+import me.theentropyshard.teslauncher.network.download.DownloadList;
+import me.theentropyshard.teslauncher.network.download.DownloadMetrics;
+import me.theentropyshard.teslauncher.network.download.DownloadPriority;
+import me.theentropyshard.teslauncher.network.download.HttpDownload;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.LZMAOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DownloadEngineTest {
+    private static final int SIZE = 256 * 1024;
+
+    private final byte[] data = new byte[DownloadEngineTest.SIZE];
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private HttpServer server;
+    @TempDir
+    Path dir;
+    private Settings settings;
+    private DownloadEngine engine;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        new Random(42).nextBytes(this.data);
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "FaultServer");
+            thread.setDaemon(true);
+
+            return thread;
+        }));
+        this.server.start();
+
+        this.settings = new Settings();
+        this.settings.downloadRetries = 3;
+        this.settings.segmentedDownloadThresholdMb = 1024;
+
+        this.engine = TestEngines.create(this.dir, this.settings);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        this.release.countDown();
+        this.server.stop(0);
+        this.engine.shutdown();
+        this.engine.getJournal().close();
+    }
+
+    @Test
+    public void retriesServerErrors() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+
+        this.server.createContext("/flaky", exchange -> {
+            if (hits.incrementAndGet() <= 2) {
+                DownloadEngineTest.respond(exchange, 503, new byte[0], 0);
+            } else {
+                DownloadEngineTest.respond(exchange, 200, this.data, 0);
+            }
+        });
+
+        Path file = this.download("/flaky", "flaky.bin");
+
+        Assertions.assertEquals(3, hits.get());
+        Assertions.assertEquals(2, this.engine.getMetrics().getRetries());
+        Assertions.assertEquals(2, this.engine.getMetrics().getHistory(file).size());
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void listsShareOneEngine() throws Exception {
+        this.settings.downloadRetries = 0;
+
+        this.server.createContext("/shared-engine", exchange -> DownloadEngineTest.respond(exchange, 200, this.data, 0));
+        this.server.createContext("/missing", exchange -> DownloadEngineTest.respond(exchange, 404, new byte[0], 0));
+
+        List<DownloadList> lists = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DownloadList list = new DownloadList(this.engine, snapshot -> {});
+
+            for (int j = 0; j < 3; j++) {
+                list.add(this.newDownload("/shared-engine?" + i + "-" + j, "shared-" + i + "-" + j + ".bin"));
+            }
+
+            lists.add(list);
+        }
+        lists.get(0).add(this.newDownload("/missing", "missing.bin"));
+
+        CompletableFuture.allOf(lists.stream().map(DownloadList::downloadAll).toArray(CompletableFuture[]::new))
+            .get(30, TimeUnit.SECONDS);
+
+        // A failure in one list stays in that list
+        Assertions.assertEquals(1, lists.get(0).getFailedFiles());
+        Assertions.assertEquals(0, lists.get(1).getFailedFiles());
+        Assertions.assertEquals(0, lists.get(2).getFailedFiles());
+        Assertions.assertEquals(0, this.engine.getActiveDownloads());
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                Assertions.assertArrayEquals(this.data, Files.readAllBytes(this.dir.resolve("shared-" + i + "-" + j + ".bin")));
+            }
+        }
+    }
+
+    @Test
+    public void whenDownloadedFailsWithTheDownload() throws Exception {
+        this.settings.downloadRetries = 0;
+
+        this.server.createContext("/present", exchange -> DownloadEngineTest.respond(exchange, 200, this.data, 0));
+        this.server.createContext("/absent", exchange -> DownloadEngineTest.respond(exchange, 404, new byte[0], 0));
+
+        DownloadList list = new DownloadList(this.engine, snapshot -> {});
+        list.add(this.newDownload("/present", "present.bin"));
+        list.add(new HttpDownload.Builder()
+            .httpClient(this.engine.getHttpClient())
+            .url("http://127.0.0.1:" + this.server.getAddress().getPort() + "/absent")
+            .expectedSize(1)
+            .sha1("0000000000000000000000000000000000000000")
+            .saveAs(this.dir.resolve("absent.bin"))
+            .build());
+
+        CompletableFuture<Void> all = list.downloadAll();
+
+        // Waiting on one file sees its failure, the list as a whole only counts it
+        Assertions.assertThrows(ExecutionException.class,
+            () -> list.whenDownloaded(this.dir.resolve("absent.bin")).get(30, TimeUnit.SECONDS));
+        list.whenDownloaded(this.dir.resolve("present.bin")).get(30, TimeUnit.SECONDS);
+        all.get(30, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(1, list.getFailedFiles());
+    }
+
+    @Test
+    public void resumesTruncatedBody() throws Exception {
+        AtomicBoolean truncated = new AtomicBoolean();
+        AtomicBoolean resumed = new AtomicBoolean();
+
+        this.server.createContext("/truncated", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+
+            if (range != null) {
+                resumed.set(true);
+                int start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+                exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + start + "-" + (this.data.length - 1) + "/" + this.data.length);
+                DownloadEngineTest.respond(exchange, 206, this.data, start);
+            } else if (truncated.compareAndSet(false, true)) {
+                // Promise the whole file, then drop the connection halfway
+                exchange.sendResponseHeaders(200, this.data.length);
+
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(this.data, 0, this.data.length / 2);
+                    out.flush();
+                } catch (IOException ignored) {
+
+                }
+            } else {
+                DownloadEngineTest.respond(exchange, 200, this.data, 0);
+            }
+        });
+
+        Path file = this.download("/truncated", "truncated.bin");
+
+        Assertions.assertTrue(resumed.get());
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void ignoredRangeRewritesFromTheStart() throws Exception {
+        AtomicInteger ranged = new AtomicInteger();
+
+        this.server.createContext("/no-ranges", exchange -> {
+            if (exchange.getRequestHeaders().getFirst("Range") != null) {
+                ranged.incrementAndGet();
+            }
+
+            DownloadEngineTest.respond(exchange, 200, this.data, 0);
+        });
+
+        // Had the whole body been appended, the hash computed while streaming would not match
+        Files.write(this.dir.resolve("no-ranges.bin.part"), Arrays.copyOf(this.data, this.data.length / 2));
+
+        Path file = this.download("/no-ranges", "no-ranges.bin");
+
+        Assertions.assertEquals(1, ranged.get());
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void corruptBodyIsRejected() throws Exception {
+        this.settings.downloadRetries = 0;
+
+        byte[] corrupt = this.data.clone();
+        corrupt[corrupt.length / 2] ^= 1;
+
+        this.server.createContext("/corrupt", exchange -> DownloadEngineTest.respond(exchange, 200, corrupt, 0));
+
+        DownloadList list = new DownloadList(this.engine, snapshot -> {});
+        list.add(this.newDownload("/corrupt", "corrupt.bin"));
+        list.downloadAll().get(30, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(1, list.getFailedFiles());
+        Assertions.assertFalse(Files.exists(this.dir.resolve("corrupt.bin")));
+        Assertions.assertFalse(Files.exists(this.dir.resolve("corrupt.bin.part")));
+    }
+
+    @Test
+    public void storedObjectReplacesStalePartFile() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+
+        this.server.createContext("/stored", exchange -> {
+            hits.incrementAndGet();
+            DownloadEngineTest.respond(exchange, 200, this.data, 0);
+        });
+
+        Path source = Files.write(this.dir.resolve("source.bin"), this.data);
+        this.engine.getObjectStore().add(source, HashUtils.sha1(source));
+        Path partFile = Files.write(this.dir.resolve("stored.bin.part"), new byte[DownloadEngineTest.SIZE / 2]);
+
+        Path file = this.download("/stored", "stored.bin");
+
+        Assertions.assertEquals(0, hits.get());
+        Assertions.assertFalse(Files.exists(partFile));
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void completePartFileIsCommittedWithoutARequest() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+
+        this.server.createContext("/complete", exchange -> {
+            hits.incrementAndGet();
+            DownloadEngineTest.respond(exchange, 416, new byte[0], 0);
+        });
+
+        // The launcher went down after the last commit, right before the part file was renamed
+        HttpDownload download = this.newDownload("/complete", "complete.bin");
+        Path file = this.dir.resolve("complete.bin");
+        Path partFile = Files.write(this.dir.resolve("complete.bin.part"), this.data);
+        this.engine.getJournal().started(download.getUrl(), file, HashUtils.sha1(partFile), this.data.length, 1);
+        this.engine.getJournal().committed(file, 0, this.data.length);
+        this.engine.getJournal().suspended(file);
+
+        DownloadList list = new DownloadList(this.engine, snapshot -> {});
+        list.add(download);
+        list.downloadAll().get(30, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(0, hits.get());
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(file));
+        Assertions.assertNull(this.engine.getJournal().getInterrupted(file));
+    }
+
+    @Test
+    public void pausedBackgroundDownloadStartsOnceResumed() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+
+        this.server.createContext("/background", exchange -> {
+            hits.incrementAndGet();
+            DownloadEngineTest.respond(exchange, 200, this.data, 0);
+        });
+
+        this.engine.setBackgroundPaused(true);
+
+        HttpDownload download = this.newDownload("/background", "background.bin");
+        download.setPriority(DownloadPriority.BACKGROUND);
+        CompletableFuture<Void> future = this.engine.submit(download, null);
+
+        // Held before it opens a connection, nothing is left hanging inside a response
+        Assertions.assertThrows(TimeoutException.class, () -> future.get(300, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(0, hits.get());
+
+        this.engine.setBackgroundPaused(false);
+        future.get(30, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(1, hits.get());
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(this.dir.resolve("background.bin")));
+    }
+
+    @Test
+    public void hedgesStalledDownload() throws Exception {
+        this.settings.hedgeSlowDownloads = true;
+        this.settings.hedgePercentile = 50;
+
+        AtomicInteger stallHits = new AtomicInteger();
+
+        this.server.createContext("/slow", exchange -> {
+            exchange.sendResponseHeaders(200, this.data.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                // Roughly 3 seconds per file, so the peers outlive the hedge check
+                for (int offset = 0; offset < this.data.length; offset += 8192) {
+                    out.write(this.data, offset, 8192);
+                    out.flush();
+                    Thread.sleep(90);
+                }
+            } catch (InterruptedException | IOException ignored) {
+
+            }
+        });
+
+        this.server.createContext("/stall", exchange -> {
+            if (stallHits.incrementAndGet() == 1) {
+                exchange.sendResponseHeaders(200, this.data.length);
+
+                try {
+                    this.release.await(60, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+
+                }
+
+                exchange.close();
+            } else {
+                DownloadEngineTest.respond(exchange, 200, this.data, 0);
+            }
+        });
+
+        DownloadList list = new DownloadList(this.engine, snapshot -> {});
+        for (int i = 0; i < 6; i++) {
+            list.add(this.newDownload("/slow?" + i, "slow-" + i + ".bin"));
+        }
+        list.add(this.newDownload("/stall", "stall.bin"));
+
+        list.downloadAll().get(30, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(2, stallHits.get());
+        Assertions.assertEquals(1, this.engine.getMetrics().getHedgesWon());
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(this.dir.resolve("stall.bin")));
+
+        // Cancelling the losing stream must not be mistaken for congestion
+        AdaptiveLimit limit = this.engine.getConcurrencyLimiter().getLimit("127.0.0.1");
+        Assertions.assertEquals(AdaptiveLimit.INITIAL_LIMIT, limit.getLimit());
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, this.engine.getCircuitBreaker().getBreakers().iterator().next().getState());
+    }
+
+    @Test
+    public void circuitOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("example.com");
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertDoesNotThrow(breaker::beforeRequest);
+            breaker.onFailure();
+        }
+
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertThrows(CircuitOpenException.class, breaker::beforeRequest);
+    }
+
+    @Test
+    public void unexpectedExceptionFreesTheTrialSlot() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        AtomicBoolean explode = new AtomicBoolean();
+
+        this.server.createContext("/breaker", exchange -> {
+            int code = hits.incrementAndGet() <= 5 ? 503 : 200;
+            DownloadEngineTest.respond(exchange, code, new byte[0], 0);
+        });
+
+        CircuitBreakerInterceptor breakers = new CircuitBreakerInterceptor(new DownloadMetrics());
+        OkHttpClient client = new OkHttpClient.Builder()
+            .addInterceptor(breakers)
+            .addInterceptor(chain -> {
+                if (explode.getAndSet(false)) {
+                    throw new IllegalStateException("Broken interceptor");
+                }
+
+                return chain.proceed(chain.request());
+            })
+            .build();
+        Request request = new Request.Builder()
+            .url("http://127.0.0.1:" + this.server.getAddress().getPort() + "/breaker")
+            .build();
+
+        for (int i = 0; i < 5; i++) {
+            client.newCall(request).execute().close();
+        }
+
+        Assertions.assertThrows(CircuitOpenException.class, () -> client.newCall(request).execute());
+
+        // The first request after the open period is the trial, and it dies with a runtime exception
+        Thread.sleep(5_100);
+        explode.set(true);
+        Assertions.assertThrows(IllegalStateException.class, () -> client.newCall(request).execute());
+
+        try (Response response = client.newCall(request).execute()) {
+            Assertions.assertEquals(200, response.code());
+        }
+
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breakers.getBreakers().iterator().next().getState());
+    }
+
+    @Test
+    public void concurrentListsShareOneTransfer() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+
+        this.server.createContext("/shared", exchange -> {
+            hits.incrementAndGet();
+
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ignored) {
+
+            }
+
+            DownloadEngineTest.respond(exchange, 200, this.data, 0);
+        });
+
+        DownloadList first = new DownloadList(this.engine, snapshot -> {});
+        first.add(this.newDownload("/shared", "shared.bin"));
+        DownloadList second = new DownloadList(this.engine, snapshot -> {});
+        second.add(this.newDownload("/shared", "shared.bin"));
+
+        CompletableFuture<Void> firstDone = first.downloadAll();
+        CompletableFuture<Void> secondDone = second.downloadAll();
+        CompletableFuture.allOf(firstDone, secondDone).get(30, TimeUnit.SECONDS);
+
+        Path file = this.dir.resolve("shared.bin");
+
+        Assertions.assertEquals(1, hits.get());
+        Assertions.assertEquals(1, this.engine.getMetrics().getJoins());
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(file));
+        Assertions.assertFalse(Files.exists(this.dir.resolve("shared.bin.part")));
+    }
+
+    @Test
+    public void lzmaVariantSendsFewerBytes() throws Exception {
+        byte[] raw = "public static void main(String[] args) {}\n".repeat(8192).getBytes(StandardCharsets.US_ASCII);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (LZMAOutputStream out = new LZMAOutputStream(compressed, new LZMA2Options(), raw.length)) {
+            out.write(raw);
+        }
+        byte[] lzma = compressed.toByteArray();
+
+        AtomicLong sent = new AtomicLong();
+        this.server.createContext("/runtime/raw", exchange -> {
+            sent.addAndGet(raw.length);
+            DownloadEngineTest.respond(exchange, 200, raw, 0);
+        });
+        this.server.createContext("/runtime/lzma", exchange -> {
+            sent.addAndGet(lzma.length);
+            DownloadEngineTest.respond(exchange, 200, lzma, 0);
+        });
+
+        String base = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/runtime/";
+        String sha1 = HashUtils.toHex(MessageDigest.getInstance("SHA-1").digest(raw));
+
+        // Forced, so that the second file is not simply linked out of the object store
+        DownloadList rawList = new DownloadList(this.engine, snapshot -> {});
+        rawList.add(new HttpDownload.Builder()
+            .httpClient(this.engine.getHttpClient())
+            .url(base + "raw")
+            .expectedSize(raw.length)
+            .sha1(sha1)
+            .forceDownload()
+            .saveAs(this.dir.resolve("raw.bin"))
+            .build());
+        rawList.downloadAll().get(30, TimeUnit.SECONDS);
+        long rawBytes = sent.getAndSet(0);
+
+        DownloadList lzmaList = new DownloadList(this.engine, snapshot -> {});
+        lzmaList.add(new HttpDownload.Builder()
+            .httpClient(this.engine.getHttpClient())
+            .url(base + "raw")
+            .lzma(base + "lzma", lzma.length)
+            .expectedSize(raw.length)
+            .sha1(sha1)
+            .forceDownload()
+            .saveAs(this.dir.resolve("lzma.bin"))
+            .build());
+        lzmaList.downloadAll().get(30, TimeUnit.SECONDS);
+        long lzmaBytes = sent.get();
+
+        Assertions.assertArrayEquals(raw, Files.readAllBytes(this.dir.resolve("raw.bin")));
+        Assertions.assertArrayEquals(raw, Files.readAllBytes(this.dir.resolve("lzma.bin")));
+
+        // Progress totals count what goes over the wire in both modes
+        Assertions.assertEquals(raw.length, rawList.getTotalSize());
+        Assertions.assertEquals(lzma.length, lzmaList.getTotalSize());
+        Assertions.assertEquals(raw.length, rawBytes);
+        Assertions.assertEquals(lzma.length, lzmaBytes);
+        Assertions.assertTrue(lzmaBytes * 10 < rawBytes, lzmaBytes + " bytes compressed, " + rawBytes + " raw");
+    }
+
+    @Test
+    public void segmentedDownloadAssemblesRanges() throws Exception {
+        this.settings.segmentedDownloadThresholdMb = 0;
+
+        AtomicInteger ranges = new AtomicInteger();
+
+        this.server.createContext("/segmented", exchange -> {
+            ranges.incrementAndGet();
+            this.respondRange(exchange);
+        });
+
+        Path file = this.download("/segmented", "segmented.bin");
+
+        Assertions.assertEquals(this.settings.downloadSegments, ranges.get());
+        Assertions.assertArrayEquals(this.data, Files.readAllBytes(file));
+        Assertions.assertNull(this.engine.getJournal().getInterrupted(file));
+    }
+
+    @Test
+    public void refusedSegmentCancelsItsSiblings() throws Exception {
+        this.settings.segmentedDownloadThresholdMb = 0;
+        this.settings.downloadRetries = 0;
+
+        int segmentSize = this.data.length / this.settings.downloadSegments;
+
+        this.server.createContext("/refused", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+
+            if (range.startsWith("bytes=0-")) {
+                this.respondRange(exchange);
+            } else if (range.startsWith("bytes=" + segmentSize + "-")) {
+                DownloadEngineTest.respond(exchange, 200, this.data, 0);
+            } else {
+                // Never finishes on its own, only a cancelled call gets the download past this segment
+                exchange.sendResponseHeaders(206, segmentSize);
+
+                try {
+                    this.release.await(60, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+
+                }
+
+                exchange.close();
+            }
+        });
+
+        DownloadList list = new DownloadList(this.engine, snapshot -> {});
+        list.add(this.newDownload("/refused", "refused.bin"));
+
+        // Done well before the stalled segments would time out, they were cancelled rather than waited for
+        list.downloadAll().get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(1, list.getFailedFiles());
+        Assertions.assertNull(this.engine.getJournal().getInterrupted(this.dir.resolve("refused.bin")));
+    }
+
+    private Path download(String path, String name) throws Exception {
+        DownloadList list = new DownloadList(this.engine, snapshot -> {});
+        list.add(this.newDownload(path, name));
+        list.downloadAll().get(30, TimeUnit.SECONDS);
+
+        return this.dir.resolve(name);
+    }
+
+    private HttpDownload newDownload(String path, String name) throws Exception {
+        return new HttpDownload.Builder()
+            .httpClient(this.engine.getHttpClient())
+            .url("http://127.0.0.1:" + this.server.getAddress().getPort() + path)
+            .expectedSize(this.data.length)
+            .sha1(HashUtils.toHex(MessageDigest.getInstance("SHA-1").digest(this.data)))
+            .saveAs(this.dir.resolve(name))
+            .build();
+    }
+
+    private void respondRange(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+        int end = Integer.parseInt(range.substring(range.indexOf('-') + 1));
+
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + this.data.length);
+        exchange.sendResponseHeaders(206, end - start + 1);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(this.data, start, end - start + 1);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, byte[] data, int offset) throws IOException {
+        int length = data.length - offset;
+        exchange.sendResponseHeaders(code, length == 0 ? -1 : length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data, offset, length);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.storage.DownloadJournal;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class DownloadJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void interruptedDownloadSurvivesRestart() throws IOException {
+        FileIndex fileIndex = new FileIndex(this.dir.resolve("file_index.json"), new Settings());
+        Path journalFile = this.dir.resolve("download_journal.jsonl");
+        Path partial = this.dir.resolve("partial.bin");
+        Path failed = this.dir.resolve("failed.bin");
+
+        DownloadJournal journal = new DownloadJournal(journalFile);
+        journal.open(fileIndex);
+        journal.started("http://127.0.0.1/partial.bin", partial, "aa", 400, 2);
+        journal.committed(partial, 0, 100);
+        journal.committed(partial, 200, 50);
+        journal.started("http://127.0.0.1/failed.bin", failed, "bb", 100, 1);
+        journal.failed(failed);
+
+        // Still being written by this process
+        Assertions.assertNull(journal.getInterrupted(partial));
+        journal.close();
+
+        DownloadJournal reopened = new DownloadJournal(journalFile);
+        reopened.open(fileIndex);
+
+        try {
+            DownloadJournal.Entry entry = reopened.getInterrupted(partial);
+
+            Assertions.assertNotNull(entry);
+            Assertions.assertEquals("http://127.0.0.1/partial.bin", entry.getUrl());
+            Assertions.assertEquals(2, entry.getSegments());
+            Assertions.assertEquals(100, entry.getCommitted(0));
+            Assertions.assertEquals(50, entry.getCommitted(200));
+            Assertions.assertNull(reopened.getInterrupted(failed));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void completedDownloadIsIndexedOnReplay() throws IOException {
+        FileIndex fileIndex = new FileIndex(this.dir.resolve("file_index.json"), new Settings());
+        Path journalFile = this.dir.resolve("download_journal.jsonl");
+        Path target = Files.write(this.dir.resolve("file.bin"), "file".getBytes(StandardCharsets.UTF_8));
+        String sha1 = HashUtils.sha1(target);
+
+        DownloadJournal journal = new DownloadJournal(journalFile);
+        journal.open(fileIndex);
+        journal.started("http://127.0.0.1/file.bin", target, sha1, Files.size(target), 1);
+        journal.completed(target, sha1);
+        journal.started("http://127.0.0.1/other.bin", this.dir.resolve("other.bin"), "cc", 100, 1);
+        journal.close();
+
+        // A crash in the middle of a write leaves a torn last record
+        Files.write(journalFile, "{\"type\":\"comm".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FileIndex replayed = new FileIndex(this.dir.resolve("file_index.json"), new Settings());
+        DownloadJournal reopened = new DownloadJournal(journalFile);
+        reopened.open(replayed);
+
+        try {
+            Assertions.assertNull(reopened.getInterrupted(target));
+            Assertions.assertNotNull(reopened.getInterrupted(this.dir.resolve("other.bin")));
+        } finally {
+            reopened.close();
+        }
+
+        // The verified hash came from the journal, the file itself was never read
+        replayed.save();
+        Assertions.assertTrue(Files.readString(this.dir.resolve("file_index.json")).contains(sha1));
+    }
+
+    @Test
+    public void secondProcessKeepsItsOwnJournal() throws IOException {
+        FileIndex fileIndex = new FileIndex(this.dir.resolve("file_index.json"), new Settings());
+        Path journalFile = this.dir.resolve("download_journal.jsonl");
+        Path target = this.dir.resolve("file.bin");
+
+        DownloadJournal first = new DownloadJournal(journalFile);
+        first.open(fileIndex);
+        first.started("http://127.0.0.1/file.bin", target, "aa", 100, 1);
+        first.committed(target, 0, 50);
+
+        // Compacting on open and truncating on close only ever touch the second journal's own file
+        DownloadJournal second = new DownloadJournal(journalFile);
+        second.open(fileIndex);
+        second.close();
+
+        Assertions.assertTrue(Files.exists(this.dir.resolve("download_journal-1.jsonl")));
+        Assertions.assertEquals(2, Files.readAllLines(journalFile).size());
+
+        first.close();
+
+        DownloadJournal reopened = new DownloadJournal(journalFile);
+        reopened.open(fileIndex);
+
+        try {
+            DownloadJournal.Entry entry = reopened.getInterrupted(target);
+
+            Assertions.assertNotNull(entry);
+            Assertions.assertEquals(50, entry.getCommitted(0));
+        } finally {
+            reopened.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import me.theentropyshard.teslauncher.network.download.DownloadList;
+import me.theentropyshard.teslauncher.network.download.HttpDownload;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+public class DownloadListTest {
+    private final OkHttpClient httpClient = new OkHttpClient();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void replacingAnEntryKeepsPathsMergedIntoIt() {
+        DownloadList list = new DownloadList(null, snapshot -> {});
+
+        list.add(this.newDownload("a.bin", "aa", 100));
+        list.add(this.newDownload("b.bin", "aa", 100));
+
+        Assertions.assertEquals(1, list.size());
+        Assertions.assertEquals(100, list.getTotalSize());
+
+        // b.bin was folded into a.bin, it becomes a download of its own once a.bin wants other content
+        list.add(this.newDownload("a.bin", "cc", 300));
+
+        Assertions.assertEquals(2, list.size());
+        Assertions.assertEquals(400, list.getTotalSize());
+    }
+
+    @Test
+    public void readdingAMergedPathTakesItOutOfItsOwner() {
+        DownloadList list = new DownloadList(null, snapshot -> {});
+
+        list.add(this.newDownload("a.bin", "aa", 100));
+        list.add(this.newDownload("b.bin", "aa", 100));
+        list.add(this.newDownload("b.bin", "bb", 200));
+
+        Assertions.assertEquals(2, list.size());
+        Assertions.assertEquals(300, list.getTotalSize());
+    }
+
+    private HttpDownload newDownload(String name, String sha1, long size) {
+        return new HttpDownload.Builder()
+            .httpClient(this.httpClient)
+            .url("http://127.0.0.1:1/" + name)
+            .sha1(sha1)
+            .expectedSize(size)
+            .saveAs(this.dir.resolve(name))
+            .build();
+    }
+}
@@ -0,0 +1,99 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+public class FileIndexTest {
+    @TempDir
+    Path dir;
+    private Path indexFile;
+    private Path file;
+    private String sha1;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.indexFile = this.dir.resolve("file_index.json");
+        this.file = Files.write(this.dir.resolve("library.jar"), "library".getBytes(StandardCharsets.UTF_8));
+        this.sha1 = HashUtils.sha1(this.file);
+    }
+
+    @Test
+    public void recordedHashSurvivesReload() throws IOException {
+        FileIndex index = new FileIndex(this.indexFile, new Settings());
+        index.record(this.file, this.sha1);
+        index.save();
+
+        FileIndex reloaded = new FileIndex(this.indexFile, new Settings());
+        reloaded.load();
+
+        // A recorded hash is trusted without reading the file, even one that no longer describes it
+        Assertions.assertTrue(reloaded.matches(this.file, Files.size(this.file), this.sha1));
+        reloaded.record(this.file, "0000000000000000000000000000000000000000");
+        Assertions.assertFalse(reloaded.matches(this.file, Files.size(this.file), this.sha1));
+    }
+
+    @Test
+    public void changedFileIsHashedAgain() throws IOException {
+        FileIndex index = new FileIndex(this.indexFile, new Settings());
+        index.record(this.file, this.sha1);
+
+        // Same size, so only the modification time gives the change away
+        Files.write(this.file, "LIBRARY".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(this.file, FileTime.from(Instant.now().plusSeconds(10)));
+
+        Assertions.assertFalse(index.matches(this.file, Files.size(this.file), this.sha1));
+        Assertions.assertEquals(HashUtils.sha1(this.file), index.sha1(this.file));
+    }
+
+    @Test
+    public void missingFilesAreDroppedWhenLookedUpOrPruned() throws IOException {
+        Path other = Files.write(this.dir.resolve("other.jar"), "other".getBytes(StandardCharsets.UTF_8));
+
+        FileIndex index = new FileIndex(this.indexFile, new Settings());
+        index.record(this.file, this.sha1);
+        index.record(other, HashUtils.sha1(other));
+        index.save();
+
+        Files.delete(this.file);
+        Files.delete(other);
+
+        Assertions.assertFalse(index.matches(this.file, -1, this.sha1));
+        index.save();
+        Assertions.assertFalse(FileIndexTest.readIndex(this.indexFile).contains("library.jar"));
+        Assertions.assertTrue(FileIndexTest.readIndex(this.indexFile).contains("other.jar"));
+
+        index.pruneMissing();
+        index.save();
+        Assertions.assertFalse(FileIndexTest.readIndex(this.indexFile).contains("other.jar"));
+    }
+
+    @Test
+    public void failedSaveIsRetried() throws IOException {
+        FileIndex index = new FileIndex(this.indexFile, new Settings());
+        index.record(this.file, this.sha1);
+
+        // A directory where the index file should be makes the write fail
+        Files.createDirectories(this.indexFile.resolve("blocker"));
+        Assertions.assertThrows(IOException.class, index::save);
+
+        Files.delete(this.indexFile.resolve("blocker"));
+        Files.delete(this.indexFile);
+        index.save();
+
+        Assertions.assertTrue(FileIndexTest.readIndex(this.indexFile).contains("library.jar"));
+    }
+
+    private static String readIndex(Path indexFile) throws IOException {
+        return Files.readString(indexFile, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,188 @@
+import com.sun.net.httpserver.HttpServer;
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.minecraft.data.JavaRuntimeManifest;
+import me.theentropyshard.teslauncher.minecraft.data.JreFile;
+import me.theentropyshard.teslauncher.minecraft.download.IntegrityScrubber;
+import me.theentropyshard.teslauncher.network.download.DownloadEngine;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.utils.FileUtils;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import me.theentropyshard.teslauncher.utils.json.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class IntegrityScrubberTest {
+    private static final List<String> FILES = List.of("a.bin", "b.bin", "c.bin");
+
+    @TempDir
+    Path dir;
+    private Path runtimeDir;
+    private HttpServer server;
+    private AtomicInteger hits;
+    private Settings settings;
+    private DownloadEngine engine;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.hits = new AtomicInteger();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "RuntimeServer");
+            thread.setDaemon(true);
+
+            return thread;
+        }));
+        this.server.createContext("/runtime/", exchange -> {
+            this.hits.incrementAndGet();
+            String name = exchange.getRequestURI().getPath().substring("/runtime/".length());
+            byte[] data = IntegrityScrubberTest.content(name);
+
+            exchange.sendResponseHeaders(200, data.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data);
+            }
+        });
+        this.server.start();
+
+        this.settings = new Settings();
+        this.settings.integrityScrubFilesPerSecond = 0;
+        this.settings.integrityScrubKbPerSecond = 0;
+        this.engine = TestEngines.create(this.dir, this.settings);
+
+        // One runtime component whose manifest lists every file in FILES
+        this.runtimeDir = this.dir.resolve("runtimes").resolve("java-runtime-test");
+        JavaRuntimeManifest manifest = new JavaRuntimeManifest();
+        manifest.files = new LinkedHashMap<>();
+
+        for (String name : IntegrityScrubberTest.FILES) {
+            byte[] data = IntegrityScrubberTest.content(name);
+            Path file = this.runtimeDir.resolve("bin").resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.write(file, data);
+
+            JreFile.Download raw = new JreFile.Download();
+            raw.sha1 = HashUtils.sha1(file);
+            raw.size = data.length;
+            raw.url = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/runtime/" + name;
+
+            JreFile jreFile = new JreFile();
+            jreFile.type = "file";
+            jreFile.downloads = Map.of("raw", raw);
+            manifest.files.put("bin/" + name, jreFile);
+        }
+
+        FileUtils.writeUtf8(this.runtimeDir.resolve("component.json"), Json.write(manifest));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        this.server.stop(0);
+        this.engine.shutdown();
+        this.engine.getJournal().close();
+    }
+
+    @Test
+    public void resumesFromCursorAcrossRuns() throws IOException {
+        IntegrityScrubber scrubber = this.newScrubber();
+
+        Assertions.assertFalse(scrubber.run(true, IntegrityScrubberTest.stopAfter(2)));
+        Assertions.assertTrue(scrubber.getState().isInProgress());
+        Assertions.assertEquals(2, scrubber.getState().getFilesChecked());
+
+        // A new scrubber reads the cursor back from the state file and only checks what is left
+        IntegrityScrubber resumed = this.newScrubber();
+        resumed.load();
+
+        Assertions.assertTrue(resumed.run(false, () -> false));
+        Assertions.assertFalse(resumed.getState().isInProgress());
+        Assertions.assertEquals(IntegrityScrubberTest.FILES.size(), resumed.getState().getFilesChecked());
+        Assertions.assertEquals(0, resumed.getState().getCorruptFiles());
+        Assertions.assertEquals(0, this.hits.get());
+    }
+
+    @Test
+    public void repairsCorruptFileAndItsStoreObject() throws IOException {
+        Path file = this.runtimeDir.resolve("bin").resolve("a.bin");
+        String sha1 = HashUtils.sha1(file);
+        ObjectStore objectStore = this.engine.getObjectStore();
+        objectStore.add(file, sha1);
+        Path object = objectStore.getPath(sha1);
+
+        Assertions.assertTrue(Files.isSameFile(object, file));
+
+        // Written through the link, so the store object is damaged as well
+        Files.write(file, "damaged".getBytes(StandardCharsets.UTF_8));
+
+        IntegrityScrubber scrubber = this.newScrubber();
+
+        Assertions.assertTrue(scrubber.run(true, () -> false));
+        Assertions.assertEquals(1, this.hits.get());
+        Assertions.assertArrayEquals(IntegrityScrubberTest.content("a.bin"), Files.readAllBytes(file));
+        Assertions.assertTrue(!Files.exists(object) || HashUtils.sha1(object).equals(sha1));
+        Assertions.assertEquals(1, scrubber.getState().getCorruptFiles());
+        Assertions.assertEquals(1, scrubber.getState().getRepairedFiles());
+    }
+
+    @Test
+    public void defersRepairsWhenToldToStop() throws IOException {
+        Path file = this.runtimeDir.resolve("bin").resolve("a.bin");
+        Files.write(file, "damaged".getBytes(StandardCharsets.UTF_8));
+
+        IntegrityScrubber scrubber = this.newScrubber();
+
+        // a.bin is checked first, then the launcher gets busy
+        Assertions.assertFalse(scrubber.run(true, IntegrityScrubberTest.stopAfter(1)));
+        Assertions.assertEquals(0, this.hits.get());
+        Assertions.assertEquals(1, scrubber.getState().getPendingRepairs());
+        Assertions.assertEquals(0, scrubber.getState().getCorruptFiles());
+
+        // Still busy, the repair keeps waiting and is saved with the state
+        Assertions.assertFalse(scrubber.run(false, () -> true));
+        Assertions.assertEquals(0, this.hits.get());
+
+        IntegrityScrubber resumed = this.newScrubber();
+        resumed.load();
+
+        Assertions.assertEquals(1, resumed.getState().getPendingRepairs());
+        Assertions.assertTrue(resumed.run(false, () -> false));
+        Assertions.assertEquals(1, this.hits.get());
+        Assertions.assertEquals(0, resumed.getState().getPendingRepairs());
+        Assertions.assertEquals(1, resumed.getState().getRepairedFiles());
+        Assertions.assertArrayEquals(IntegrityScrubberTest.content("a.bin"), Files.readAllBytes(file));
+    }
+
+    private IntegrityScrubber newScrubber() {
+        return new IntegrityScrubber(
+            this.dir.resolve("integrity.json"), this.dir.resolve("versions"), this.dir.resolve("assets"),
+            this.dir.resolve("libraries"), this.dir.resolve("runtimes"), this.engine, this.settings
+        );
+    }
+
+    // Lets the given number of files through, then reports the launcher as busy
+    private static BooleanSupplier stopAfter(int files) {
+        AtomicInteger calls = new AtomicInteger();
+
+        return () -> calls.incrementAndGet() > files;
+    }
+
+    private static byte[] content(String name) {
+        return ("contents of " + name + "\n").repeat(64).getBytes(StandardCharsets.UTF_8);
+    }
+}
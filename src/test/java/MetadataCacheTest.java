@@ -0,0 +1,102 @@
+import com.sun.net.httpserver.HttpServer;
+import me.theentropyshard.teslauncher.network.MetadataCache;
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MetadataCacheTest {
+    private static final String BODY = "{\"latest\":{\"release\":\"1.21\"}}";
+    private static final String ETAG = "\"v1\"";
+
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    private HttpServer server;
+    @TempDir
+    Path dir;
+    private MetadataCache cache;
+    private String url;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/manifest.json", exchange -> {
+            if (MetadataCacheTest.ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                this.notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+
+                return;
+            }
+
+            this.fullResponses.incrementAndGet();
+
+            byte[] bytes = MetadataCacheTest.BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", MetadataCacheTest.ETAG);
+            exchange.sendResponseHeaders(200, bytes.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        this.server.start();
+
+        this.cache = new MetadataCache(
+            new OkHttpClient(), this.dir.resolve("metadata"), new WorkDirLocks(this.dir.resolve("locks"))
+        );
+        this.url = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/manifest.json";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void revalidatesStaleCopyWithEtag() throws IOException {
+        Path file = this.dir.resolve("version_manifest_v2.json");
+
+        Assertions.assertEquals(MetadataCacheTest.BODY, this.cache.get(this.url, file, Duration.ofHours(12)));
+
+        // Fresh copies are served without asking the server
+        Assertions.assertEquals(MetadataCacheTest.BODY, this.cache.get(this.url, file, Duration.ofHours(12)));
+        Assertions.assertEquals(1, this.fullResponses.get());
+        Assertions.assertEquals(0, this.notModified.get());
+
+        Instant stale = Instant.now().minus(Duration.ofDays(1));
+        Files.setLastModifiedTime(file, FileTime.from(stale));
+
+        Assertions.assertEquals(MetadataCacheTest.BODY, this.cache.get(this.url, file, Duration.ofHours(12)));
+        Assertions.assertEquals(1, this.fullResponses.get());
+        Assertions.assertEquals(1, this.notModified.get());
+
+        // A 304 refreshes the copy, so it is fresh again
+        Assertions.assertTrue(Files.getLastModifiedTime(file).toInstant().isAfter(stale));
+    }
+
+    @Test
+    public void fallsBackToCachedCopyWhenOffline() throws IOException {
+        Path file = this.dir.resolve("all_runtimes.json");
+
+        this.cache.get(this.url, file, Duration.ZERO);
+        this.server.stop(0);
+
+        Assertions.assertEquals(MetadataCacheTest.BODY, this.cache.get(this.url, file, Duration.ZERO));
+        Assertions.assertThrows(IOException.class, () -> this.cache.fetch(this.url, file));
+    }
+}
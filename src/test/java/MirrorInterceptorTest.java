@@ -0,0 +1,182 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import me.theentropyshard.teslauncher.network.mirror.Mirror;
+import me.theentropyshard.teslauncher.network.mirror.MirrorEndpoint;
+import me.theentropyshard.teslauncher.network.mirror.MirrorInterceptor;
+import me.theentropyshard.teslauncher.network.mirror.MirrorRegistry;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MirrorInterceptorTest {
+    private static final String URL = MirrorEndpoint.PISTON_DATA.getPrimaryOrigin() + "v1/objects/abc/file.bin";
+
+    private final AtomicInteger hitsA = new AtomicInteger();
+    private final AtomicInteger hitsB = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private HttpServer server;
+    private MirrorRegistry registry;
+    private OkHttpClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "MirrorServer");
+            thread.setDaemon(true);
+
+            return thread;
+        }));
+        this.server.start();
+
+        String base = "http://127.0.0.1:" + this.server.getAddress().getPort();
+        this.registry = new MirrorRegistry(Map.of("piston-data", List.of(base + "/a/", base + "/b/")));
+        this.client = new OkHttpClient.Builder()
+            .addInterceptor(new MirrorInterceptor(this.registry))
+            .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.release.countDown();
+        this.server.stop(0);
+    }
+
+    @Test
+    public void prefersUnmeasuredThenFasterMirrors() throws Exception {
+        this.serveA(200, 300);
+        this.serveB(200, 0);
+
+        // Neither mirror is measured yet, so configuration order decides
+        Assertions.assertEquals("a", this.fetch());
+        Assertions.assertEquals(1, this.hitsA.get());
+
+        // b has not been measured while a is known to be slow
+        Assertions.assertEquals("b", this.fetch());
+        Assertions.assertEquals("b", this.fetch());
+        Assertions.assertEquals(1, this.hitsA.get());
+        Assertions.assertEquals(2, this.hitsB.get());
+    }
+
+    @Test
+    public void missingFileFallsThroughWithoutCooldown() throws Exception {
+        this.serveA(404, 0);
+        this.serveB(200, 0);
+
+        Assertions.assertEquals("b", this.fetch());
+        Assertions.assertEquals(1, this.hitsA.get());
+        Assertions.assertTrue(this.getMirror(0).isHealthy());
+    }
+
+    @Test
+    public void serverErrorPutsMirrorIntoCooldown() throws Exception {
+        this.serveA(500, 0);
+        this.serveB(200, 0);
+
+        Assertions.assertEquals("b", this.fetch());
+        Assertions.assertFalse(this.getMirror(0).isHealthy());
+
+        // a is ranked behind every healthy mirror until its cooldown runs out
+        Assertions.assertEquals("b", this.fetch());
+        Assertions.assertEquals(1, this.hitsA.get());
+        Assertions.assertEquals(2, this.hitsB.get());
+    }
+
+    @Test
+    public void cancelledCallLeavesMirrorsHealthy() throws Exception {
+        CountDownLatch requested = new CountDownLatch(1);
+
+        this.server.createContext("/a/", exchange -> {
+            this.hitsA.incrementAndGet();
+            requested.countDown();
+
+            try {
+                this.release.await(60, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+
+            }
+
+            exchange.close();
+        });
+        this.serveB(200, 0);
+
+        Call call = this.client.newCall(new Request.Builder().url(MirrorInterceptorTest.URL).build());
+        CompletableFuture<String> body = CompletableFuture.supplyAsync(() -> MirrorInterceptorTest.read(call));
+
+        Assertions.assertTrue(requested.await(5, TimeUnit.SECONDS));
+        call.cancel();
+
+        Assertions.assertThrows(ExecutionException.class, () -> body.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, this.hitsB.get());
+
+        for (Mirror mirror : this.registry.getMirrors(MirrorEndpoint.PISTON_DATA)) {
+            Assertions.assertTrue(mirror.isHealthy(), mirror + " should not be in cooldown");
+        }
+    }
+
+    private void serveA(int code, long delayMillis) {
+        this.server.createContext("/a/", exchange -> {
+            this.hitsA.incrementAndGet();
+            MirrorInterceptorTest.respond(exchange, code, "a", delayMillis);
+        });
+    }
+
+    private void serveB(int code, long delayMillis) {
+        this.server.createContext("/b/", exchange -> {
+            this.hitsB.incrementAndGet();
+            MirrorInterceptorTest.respond(exchange, code, "b", delayMillis);
+        });
+    }
+
+    private Mirror getMirror(int index) {
+        return this.registry.getMirrors(MirrorEndpoint.PISTON_DATA).get(index);
+    }
+
+    private String fetch() {
+        return MirrorInterceptorTest.read(this.client.newCall(new Request.Builder().url(MirrorInterceptorTest.URL).build()));
+    }
+
+    private static String read(Call call) {
+        try (Response response = call.execute()) {
+            return Objects.requireNonNull(response.body()).string();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body, long delayMillis) throws IOException {
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException ignored) {
+
+        }
+
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, data.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+}
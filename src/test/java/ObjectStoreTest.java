@@ -0,0 +1,84 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ObjectStoreTest {
+    private static final byte[] DATA = "object store test data\n".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+    private ObjectStore objectStore;
+    private FileIndex fileIndex;
+    private Path downloaded;
+    private String sha1;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.objectStore = new ObjectStore(this.dir.resolve("store"));
+        this.fileIndex = new FileIndex(this.dir.resolve("file_index.json"), new Settings());
+        this.downloaded = Files.write(this.dir.resolve("downloaded.bin"), ObjectStoreTest.DATA);
+        this.sha1 = HashUtils.sha1(this.downloaded);
+
+        this.objectStore.add(this.downloaded, this.sha1);
+    }
+
+    @Test
+    public void materializesVerifiedObject() throws IOException {
+        Path target = this.dir.resolve("instance/target.bin");
+
+        Assertions.assertTrue(this.objectStore.materialize(this.sha1, ObjectStoreTest.DATA.length, target, this.fileIndex));
+        Assertions.assertArrayEquals(ObjectStoreTest.DATA, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void removesObjectDamagedThroughALink() throws IOException {
+        Path object = this.objectStore.getPath(this.sha1);
+        Assertions.assertTrue(Files.isSameFile(object, this.downloaded));
+
+        // Same size, different bytes, so only the hash can tell
+        byte[] damaged = ObjectStoreTest.DATA.clone();
+        damaged[0] ^= 1;
+        Files.write(this.downloaded, damaged);
+
+        Path target = this.dir.resolve("instance/target.bin");
+
+        Assertions.assertFalse(this.objectStore.materialize(this.sha1, ObjectStoreTest.DATA.length, target, this.fileIndex));
+        Assertions.assertFalse(Files.exists(target));
+        Assertions.assertFalse(Files.exists(object));
+    }
+
+    @Test
+    public void rejectsObjectOfWrongSize() throws IOException {
+        Path target = this.dir.resolve("instance/target.bin");
+
+        Assertions.assertFalse(this.objectStore.materialize(this.sha1, ObjectStoreTest.DATA.length + 1, target, this.fileIndex));
+        Assertions.assertFalse(Files.exists(target));
+    }
+
+    @Test
+    public void copyDoesNotShareTheObject() throws IOException {
+        Path object = this.objectStore.getPath(this.sha1);
+        Path target = this.dir.resolve("instance/resources/sound.ogg");
+        Files.createDirectories(target.getParent());
+
+        ObjectStore.linkOrCopy(object, target);
+        Assertions.assertTrue(Files.isSameFile(object, target));
+
+        // Replaces the link, so that writing the instance file leaves the store alone
+        ObjectStore.copy(object, target);
+        Files.write(target, "edited".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertFalse(Files.isSameFile(object, target));
+        Assertions.assertArrayEquals(ObjectStoreTest.DATA, Files.readAllBytes(object));
+    }
+}
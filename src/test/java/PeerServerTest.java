@@ -0,0 +1,174 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.network.download.DownloadEngine;
+import me.theentropyshard.teslauncher.network.download.DownloadList;
+import me.theentropyshard.teslauncher.network.download.HttpDownload;
+import me.theentropyshard.teslauncher.network.peer.PeerClient;
+import me.theentropyshard.teslauncher.network.peer.PeerServer;
+import me.theentropyshard.teslauncher.network.progress.ProgressListener;
+import me.theentropyshard.teslauncher.network.progress.ProgressNetworkInterceptor;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+import me.theentropyshard.teslauncher.utils.HashUtils;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PeerServerTest {
+    private static final int SIZE = 512 * 1024;
+
+    private final byte[] data = new byte[PeerServerTest.SIZE];
+
+    @TempDir
+    Path dir;
+    private String sha1;
+    private PeerServer server;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        new Random(7).nextBytes(this.data);
+        this.sha1 = HashUtils.toHex(MessageDigest.getInstance("SHA-1").digest(this.data));
+
+        Path file = this.dir.resolve("object.bin");
+        Files.write(file, this.data);
+
+        ObjectStore store = new ObjectStore(this.dir.resolve("peer-store"));
+        store.add(file, this.sha1);
+
+        this.server = new PeerServer(store, List.of(), 0, 1);
+        this.server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void servesObjectBySha1() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", this.server.getPort())) {
+            PeerServerTest.send(socket, "/objects/" + this.sha1);
+
+            InputStream in = socket.getInputStream();
+            Assertions.assertEquals("HTTP/1.1 200 OK", PeerServerTest.readHead(in).get(0));
+            Assertions.assertArrayEquals(this.data, in.readNBytes(PeerServerTest.SIZE + 1));
+        }
+    }
+
+    @Test
+    public void answersMissingObjectWith404() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", this.server.getPort())) {
+            PeerServerTest.send(socket, "/objects/" + "0".repeat(40));
+
+            Assertions.assertEquals("HTTP/1.1 404 Not Found", PeerServerTest.readHead(socket.getInputStream()).get(0));
+        }
+    }
+
+    @Test
+    public void rejectsConnectionsOverTheLimit() throws Exception {
+        try (Socket idle = new Socket("127.0.0.1", this.server.getPort());
+             Socket rejected = new Socket("127.0.0.1", this.server.getPort())) {
+
+            PeerServerTest.send(rejected, "/objects/" + this.sha1);
+
+            Assertions.assertEquals("HTTP/1.1 503 Service Unavailable", PeerServerTest.readHead(rejected.getInputStream()).get(0));
+        }
+
+        // The permit comes back once the idle connection is gone
+        Thread.sleep(200);
+
+        this.servesObjectBySha1();
+    }
+
+    @Test
+    public void engineFetchesFromPeerBeforeOrigin() throws Exception {
+        Settings settings = new Settings();
+        settings.downloadRetries = 0;
+        settings.peers = List.of("127.0.0.1:" + this.server.getPort());
+
+        DownloadEngine engine = TestEngines.create(this.dir, settings);
+
+        try {
+            Path target = this.dir.resolve("downloaded.bin");
+
+            // Nothing listens on port 1, so only the peer can deliver the file
+            DownloadList list = new DownloadList(engine, snapshot -> {});
+            list.add(new HttpDownload.Builder()
+                .httpClient(engine.getHttpClient())
+                .url("http://127.0.0.1:1/origin/object.bin")
+                .expectedSize(this.data.length)
+                .sha1(this.sha1)
+                .saveAs(target)
+                .build());
+            list.downloadAll().get(30, TimeUnit.SECONDS);
+
+            Assertions.assertArrayEquals(this.data, Files.readAllBytes(target));
+            Assertions.assertEquals(1, engine.getMetrics().getPeerHits());
+        } finally {
+            engine.shutdown();
+            engine.getJournal().close();
+        }
+    }
+
+    @Test
+    public void badCopyReportsNoProgress() throws IOException {
+        OkHttpClient parent = new OkHttpClient.Builder()
+            .addNetworkInterceptor(new ProgressNetworkInterceptor())
+            .build();
+        PeerClient client = new PeerClient(parent, List.of("127.0.0.1:" + this.server.getPort()));
+        AtomicLong reported = new AtomicLong();
+        ProgressListener listener = (contentLength, totalBytesRead, bytesReadThisTime, done) -> reported.addAndGet(bytesReadThisTime);
+
+        Path target = this.dir.resolve("fetched.bin");
+        Assertions.assertTrue(client.fetch(this.sha1, PeerServerTest.SIZE, target, listener));
+        Assertions.assertEquals(PeerServerTest.SIZE, reported.get());
+
+        // Same size, different bytes, so only the hash gives it away
+        byte[] damaged = this.data.clone();
+        damaged[0] ^= 1;
+        Files.write(new ObjectStore(this.dir.resolve("peer-store")).getPath(this.sha1), damaged);
+        reported.set(0);
+
+        // The origin sends the whole file after this, bytes counted here would be counted twice
+        PeerClient fresh = new PeerClient(parent, List.of("127.0.0.1:" + this.server.getPort()));
+        Assertions.assertFalse(fresh.fetch(this.sha1, PeerServerTest.SIZE, target, listener));
+        Assertions.assertEquals(0, reported.get());
+    }
+
+    private static void send(Socket socket, String path) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static List<String> readHead(InputStream in) throws IOException {
+        StringBuilder builder = new StringBuilder();
+
+        while (!builder.toString().endsWith("\r\n\r\n")) {
+            int read = in.read();
+
+            if (read == -1) {
+                break;
+            }
+
+            builder.append((char) read);
+        }
+
+        return Arrays.asList(builder.toString().split("\r\n"));
+    }
+}
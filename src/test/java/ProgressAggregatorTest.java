@@ -0,0 +1,68 @@
+import me.theentropyshard.teslauncher.network.progress.ProgressAggregator;
+import me.theentropyshard.teslauncher.network.progress.ProgressSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProgressAggregatorTest {
+    @Test
+    public void countsBytesFromConcurrentStreams() throws InterruptedException {
+        ProgressAggregator aggregator = new ProgressAggregator(8_000_000L + 500L, 500L, 8, () -> 8, () -> 8);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int read = 0; read < 1000; read++) {
+                    aggregator.update(1_000_000L, (read + 1) * 1000L, 1000L, false);
+                }
+
+                aggregator.fileDone();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        ProgressSnapshot snapshot = aggregator.sample();
+
+        Assertions.assertEquals(8_000_000L + 500L, snapshot.getDownloadedBytes());
+        Assertions.assertEquals(8, snapshot.getFilesDone());
+        Assertions.assertEquals(0, snapshot.getFilesFailed());
+        Assertions.assertEquals(8, snapshot.getActiveConnections());
+    }
+
+    @Test
+    public void publishesOnlyWhenSomethingChanged() {
+        ProgressAggregator aggregator = new ProgressAggregator(1000L, 0L, 2, () -> 1, () -> 8);
+
+        Assertions.assertTrue(aggregator.hasChanged(aggregator.sample()));
+        Assertions.assertFalse(aggregator.hasChanged(aggregator.sample()));
+
+        aggregator.update(1000L, 100L, 100L, false);
+        Assertions.assertTrue(aggregator.hasChanged(aggregator.sample()));
+
+        // A failed file moves no bytes, but is still worth a snapshot
+        aggregator.fileFailed();
+        Assertions.assertTrue(aggregator.hasChanged(aggregator.sample()));
+        Assertions.assertFalse(aggregator.hasChanged(aggregator.sample()));
+    }
+
+    @Test
+    public void reportsNoEtaBeforeAnyBytesArrive() throws InterruptedException {
+        ProgressAggregator aggregator = new ProgressAggregator(1_000_000L, 0L, 1, () -> 1, () -> 8);
+
+        Assertions.assertEquals(-1L, aggregator.sample().getEtaSeconds());
+
+        aggregator.update(1_000_000L, 500_000L, 500_000L, false);
+        Thread.sleep(50);
+        ProgressSnapshot snapshot = aggregator.sample();
+
+        Assertions.assertTrue(snapshot.getBytesPerSecond() > 0.0D);
+        Assertions.assertTrue(snapshot.getEtaSeconds() >= 0L);
+    }
+}
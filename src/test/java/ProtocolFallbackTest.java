@@ -0,0 +1,124 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.network.HttpTransport;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ProtocolFallbackTest {
+    private static final int STREAMS = 8;
+
+    private MockWebServer server;
+    private Settings settings;
+
+    @BeforeEach
+    public void setUp() {
+        this.server = new MockWebServer();
+        this.settings = new Settings();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        this.server.shutdown();
+    }
+
+    @Test
+    public void multiplexesDownloadsOverOneH2cConnection() throws Exception {
+        this.server.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        this.server.start();
+
+        for (int i = 0; i < ProtocolFallbackTest.STREAMS; i++) {
+            this.server.enqueue(new MockResponse().setBody("file " + i).setBodyDelay(100, TimeUnit.MILLISECONDS));
+        }
+
+        HttpTransport transport = new HttpTransport(this.settings, "TESLauncherTest");
+        OkHttpClient client = transport.newClient(builder -> builder.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE)));
+
+        List<CompletableFuture<String>> bodies = new ArrayList<>();
+        for (int i = 0; i < ProtocolFallbackTest.STREAMS; i++) {
+            Request request = new Request.Builder().url(this.server.url("/file/" + i)).build();
+
+            bodies.add(CompletableFuture.supplyAsync(() -> ProtocolFallbackTest.fetch(client.newCall(request))));
+        }
+
+        for (CompletableFuture<String> body : bodies) {
+            Assertions.assertTrue(body.get(10, TimeUnit.SECONDS).startsWith("file "));
+        }
+
+        // Every stream after the first one reuses the connection, so the sequence numbers count up on it
+        Set<Integer> sequenceNumbers = new HashSet<>();
+        for (int i = 0; i < ProtocolFallbackTest.STREAMS; i++) {
+            sequenceNumbers.add(this.server.takeRequest().getSequenceNumber());
+        }
+
+        Assertions.assertEquals(ProtocolFallbackTest.STREAMS, sequenceNumbers.size());
+        Assertions.assertTrue(sequenceNumbers.contains(ProtocolFallbackTest.STREAMS - 1));
+        Assertions.assertEquals(Protocol.H2_PRIOR_KNOWLEDGE, transport.getNegotiatedProtocol(this.server.getHostName()));
+    }
+
+    @Test
+    public void cancelledCallDoesNotFallBackToHttp1() throws Exception {
+        this.server.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        this.server.start();
+        this.server.enqueue(new MockResponse().setBody("late").setHeadersDelay(10, TimeUnit.SECONDS));
+
+        HttpTransport transport = new HttpTransport(this.settings, "TESLauncherTest");
+        OkHttpClient client = transport.newClient(builder -> builder.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE)));
+
+        Call call = client.newCall(new Request.Builder().url(this.server.url("/slow")).build());
+        CompletableFuture<String> body = CompletableFuture.supplyAsync(() -> ProtocolFallbackTest.fetch(call));
+
+        Assertions.assertNotNull(this.server.takeRequest(5, TimeUnit.SECONDS));
+        call.cancel();
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> body.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof UncheckedIOException);
+        Assertions.assertFalse(transport.isHttp1Only(this.server.getHostName()));
+    }
+
+    @Test
+    public void cancellingTheCallCancelsTheHttp1Delegate() throws Exception {
+        this.server.start();
+        this.server.enqueue(new MockResponse().setBody("late").setHeadersDelay(10, TimeUnit.SECONDS));
+        this.settings.http1OnlyHosts.add(this.server.getHostName());
+
+        HttpTransport transport = new HttpTransport(this.settings, "TESLauncherTest");
+        OkHttpClient client = transport.newClient();
+
+        Call call = client.newCall(new Request.Builder().url(this.server.url("/slow")).build());
+        CompletableFuture<String> body = CompletableFuture.supplyAsync(() -> ProtocolFallbackTest.fetch(call));
+
+        Assertions.assertNotNull(this.server.takeRequest(5, TimeUnit.SECONDS));
+        call.cancel();
+
+        // Without passing the cancellation on, the delegated call would wait out the whole headers delay
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> body.get(2, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof UncheckedIOException);
+    }
+
+    private static String fetch(Call call) {
+        try (Response response = call.execute()) {
+            return Objects.requireNonNull(response.body()).string();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
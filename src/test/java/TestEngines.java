@@ -0,0 +1,26 @@
+import me.theentropyshard.teslauncher.Settings;
+import me.theentropyshard.teslauncher.network.HttpTransport;
+import me.theentropyshard.teslauncher.network.download.DownloadEngine;
+import me.theentropyshard.teslauncher.storage.DownloadJournal;
+import me.theentropyshard.teslauncher.storage.FileIndex;
+import me.theentropyshard.teslauncher.storage.ObjectStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public final class TestEngines {
+    // An engine with its index, journal and object store inside dir
+    public static DownloadEngine create(Path dir, Settings settings) throws IOException {
+        FileIndex fileIndex = new FileIndex(dir.resolve("file_index.json"), settings);
+        DownloadJournal journal = new DownloadJournal(dir.resolve("download_journal.jsonl"));
+        journal.open(fileIndex);
+
+        return new DownloadEngine(
+            new HttpTransport(settings, "TESLauncherTest"), settings, new ObjectStore(dir.resolve("store")), fileIndex, journal
+        );
+    }
+
+    private TestEngines() {
+        throw new UnsupportedOperationException();
+    }
+}
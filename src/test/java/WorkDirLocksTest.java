@@ -0,0 +1,160 @@
+import me.theentropyshard.teslauncher.storage.WorkDirLocks;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class WorkDirLocksTest {
+    private static final String KEY = WorkDirLocks.objectShard("ab0123456789");
+
+    @TempDir
+    Path dir;
+    private WorkDirLocks locks;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.locks = new WorkDirLocks(this.dir);
+    }
+
+    @Test
+    public void readersShareTheLock() throws Exception {
+        CountDownLatch bothInside = new CountDownLatch(2);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> this.holdShared(bothInside));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> this.holdShared(bothInside));
+
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void writerExcludesReaders() throws Exception {
+        CompletableFuture<Void> reader;
+
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocksTest.KEY)) {
+            reader = CompletableFuture.runAsync(() -> {
+                try (WorkDirLocks.Handle shared = this.locks.shared(WorkDirLocksTest.KEY)) {
+                    // acquired
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            Thread.sleep(200);
+            Assertions.assertFalse(reader.isDone());
+        }
+
+        reader.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void secondInstanceInTheSameJvmWaits() throws Exception {
+        WorkDirLocks other = new WorkDirLocks(this.dir);
+        CompletableFuture<Void> waiter;
+
+        try (WorkDirLocks.Handle lock = this.locks.exclusive(WorkDirLocksTest.KEY)) {
+            // The JVM refuses an overlapping file lock outright instead of letting the second instance block
+            waiter = CompletableFuture.runAsync(() -> {
+                try (WorkDirLocks.Handle shared = other.shared(WorkDirLocksTest.KEY)) {
+                    // acquired
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            Thread.sleep(200);
+            Assertions.assertFalse(waiter.isDone());
+        }
+
+        waiter.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void excludesOtherProcesses() throws Exception {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        Process child = new ProcessBuilder(
+            java.toString(), "-cp", System.getProperty("java.class.path"), WorkDirLocksTest.class.getName(), this.dir.toString()
+        ).redirectErrorStream(true).start();
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(child.getInputStream()));
+            Assertions.assertEquals("locked", reader.readLine());
+
+            CompletableFuture<Void> shared = CompletableFuture.runAsync(() -> {
+                try (WorkDirLocks.Handle lock = this.locks.shared(WorkDirLocksTest.KEY)) {
+                    // acquired
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            Thread.sleep(300);
+            Assertions.assertFalse(shared.isDone());
+
+            // The child releases its lock and exits once its stdin is closed
+            child.getOutputStream().close();
+
+            shared.get(10, TimeUnit.SECONDS);
+        } finally {
+            child.destroy();
+        }
+    }
+
+    @Test
+    public void tryExclusiveGivesUpWhileAnotherProcessHoldsTheKey() throws Exception {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        Process child = new ProcessBuilder(
+            java.toString(), "-cp", System.getProperty("java.class.path"), WorkDirLocksTest.class.getName(), this.dir.toString()
+        ).redirectErrorStream(true).start();
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(child.getInputStream()));
+            Assertions.assertEquals("locked", reader.readLine());
+
+            Assertions.assertNull(this.locks.tryExclusive(WorkDirLocksTest.KEY));
+
+            child.getOutputStream().close();
+            Assertions.assertTrue(child.waitFor(10, TimeUnit.SECONDS));
+
+            try (WorkDirLocks.Handle lock = this.locks.tryExclusive(WorkDirLocksTest.KEY)) {
+                Assertions.assertNotNull(lock);
+            }
+        } finally {
+            child.destroy();
+        }
+    }
+
+    private void holdShared(CountDownLatch bothInside) {
+        try (WorkDirLocks.Handle lock = this.locks.shared(WorkDirLocksTest.KEY)) {
+            bothInside.countDown();
+
+            if (!bothInside.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Readers were serialized");
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Runs in the child process of excludesOtherProcesses
+    public static void main(String[] args) throws IOException {
+        WorkDirLocks locks = new WorkDirLocks(Paths.get(args[0]));
+
+        try (WorkDirLocks.Handle lock = locks.exclusive(WorkDirLocksTest.KEY)) {
+            System.out.println("locked");
+            System.out.flush();
+
+            while (System.in.read() != -1) {
+                // wait for the parent to close stdin
+            }
+        }
+    }
+}